@@ -1,31 +1,58 @@
 package fr.aresrpg.commons.infra.database.mongodb;
 
+import fr.aresrpg.commons.domain.database.AsyncCollection;
+import fr.aresrpg.commons.domain.database.Bulk;
 import fr.aresrpg.commons.domain.database.Collection;
+import fr.aresrpg.commons.domain.database.Cursor;
 import fr.aresrpg.commons.domain.database.Filter;
+import fr.aresrpg.commons.domain.database.Page;
+import fr.aresrpg.commons.domain.database.Projection;
+import fr.aresrpg.commons.domain.database.Query;
 import fr.aresrpg.commons.domain.log.Logger;
 import fr.aresrpg.commons.domain.serialization.Serializer;
 import fr.aresrpg.commons.infra.database.mongodb.serialization.DocumentFormat;
 
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.DeleteOneModel;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 
 public class MongoDBCollection<T> implements Collection<T> {
 	public static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
 	public static final String FIELD_MONGO = "MongoDBCollection";
+	private static final String ID = "_id";
+	private static final String KEYS = "k";
+	private final MongoDBDatabase database;
 	private final MongoCollection<Document> collection;
 	private Serializer<T> serializer;
 	private Class<T> clazz;
 
-	MongoDBCollection(MongoCollection<Document> collection, Serializer<T> serializer, Class<T> clazz) {
+	MongoDBCollection(MongoDBDatabase database, MongoCollection<Document> collection, Serializer<T> serializer, Class<T> clazz) {
+		this.database = database;
 		this.collection = collection;
 		this.serializer = serializer;
 		this.clazz = clazz;
@@ -49,6 +76,87 @@ public class MongoDBCollection<T> implements Collection<T> {
 		}
 	}
 
+	/**
+	 * Get an asynchronous view running on the executor of the database
+	 */
+	@Override
+	public AsyncCollection<T> async() {
+		return database.async(this);
+	}
+
+	/**
+	 * Insert the values with a single ordered insertMany
+	 * 
+	 * @throws IllegalStateException
+	 *             if a value cannot be serialized, nothing is written
+	 */
+	@Override
+	public void putAll(Iterable<? extends T> values) {
+		List<Document> documents = new ArrayList<>();
+		for (T value : values) {
+			Document document = toDocument(value);
+			if (document == null) throw new IllegalStateException("Could not serialize the value " + documents.size() + ", nothing was written");
+			documents.add(document);
+		}
+		if (!documents.isEmpty()) collection.insertMany(documents);
+	}
+
+	/**
+	 * Send the writes with a single bulkWrite, the writes whose value cannot be serialized are skipped unless the bulk is ordered
+	 * 
+	 * @throws IllegalStateException
+	 *             if a value of an ordered bulk cannot be serialized, nothing is written
+	 */
+	@Override
+	public void write(Bulk<T> bulk) {
+		List<WriteModel<Document>> models = new ArrayList<>(bulk.getWrites().size());
+		for (Bulk.Write<T> write : bulk.getWrites()) {
+			WriteModel<Document> model = toWriteModel(write);
+			if (model != null) models.add(model);
+			else if (bulk.isOrdered()) throw new IllegalStateException("Could not serialize the write " + models.size() + " of an ordered bulk, nothing was written");
+		}
+		if (!models.isEmpty()) collection.bulkWrite(models, new BulkWriteOptions().ordered(bulk.isOrdered()));
+	}
+
+	private WriteModel<Document> toWriteModel(Bulk.Write<T> write) {
+		Bson filter = toMongoDBQuery(write.getFilter());
+		switch (write.getType()) {
+			case REMOVE:
+				return new DeleteOneModel<>(filter);
+			case REMOVE_ALL:
+				return new DeleteManyModel<>(filter);
+			default:
+				break;
+		}
+		Document document = toDocument(write.getValue());
+		if (document == null) return null;
+		switch (write.getType()) {
+			case PUT:
+				return new InsertOneModel<>(document);
+			case UPDATE:
+				return new UpdateOneModel<>(filter, new Document("$set", document));
+			case PUT_OR_UPDATE:
+				return new UpdateOneModel<>(filter, new Document("$set", document), UPSERT);
+			case UPDATE_ALL:
+				return new UpdateManyModel<>(filter, new Document("$set", document));
+			case PUT_OR_UPDATE_ALL:
+				return new UpdateManyModel<>(filter, new Document("$set", document), UPSERT);
+			default:
+				throw new IllegalStateException("Unknown write : " + write.getType());
+		}
+	}
+
+	private Document toDocument(T t) {
+		try {
+			Document document = new Document();
+			serializer.serialize(document, t, DocumentFormat.INSTANCE);
+			return document;
+		} catch (IOException e) {
+			Logger.MAIN_LOGGER.severe(FIELD_MONGO, e, "Could'not serialize");
+			return null;
+		}
+	}
+
 	@Override
 	public void update(Filter filter, T t) {
 		try {
@@ -94,41 +202,157 @@ public class MongoDBCollection<T> implements Collection<T> {
 	}
 
 	@Override
-	@SuppressWarnings("unchecked")
 	public T[] find(Filter filter, int limit) {
+		return find(filter, null, limit);
+	}
+
+	/**
+	 * Find the values with the projection applied by the server, so only the projected fields are transferred and deserialized
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public T[] find(Filter filter, Projection projection, int limit) {
 		if (limit == 0) return (T[]) Array.newInstance(getClazz(), 0);
-		try {
-			T[] found = (T[]) Array.newInstance(getClazz(), limit);
-			MongoCursor<Document> cursor;
-			if (filter == null)
-				cursor = collection.find().iterator();
-			else
-				cursor = collection.find(toMongoDBFilter(filter)).iterator();
-			int i;
-			for (i = 0; cursor.hasNext() && i < limit; i++)
-				found[i] = serializer.deserialize(cursor.next(), DocumentFormat.INSTANCE);
-			return Arrays.copyOf(found, i);
+		return toArray(collection.find(toMongoDBQuery(filter)).projection(toMongoDBProjection(projection)).limit(limit), limit);
+	}
+
+	@SuppressWarnings("unchecked")
+	private T[] toArray(FindIterable<Document> documents, int limit) {
+		List<T> found = new ArrayList<>(Math.min(limit, 16));
+		try (MongoCursor<Document> cursor = documents.iterator()) {
+			while (cursor.hasNext())
+				found.add(serializer.deserialize(cursor.next(), DocumentFormat.INSTANCE));
+			return found.toArray((T[]) Array.newInstance(getClazz(), found.size()));
 		} catch (IOException e) {
 			Logger.MAIN_LOGGER.severe(FIELD_MONGO, e, "Could'not deserialize");
 			return (T[]) Array.newInstance(getClazz(), 0);
 		}
 	}
 
+	/**
+	 * Find the values with a driver cursor, the documents are only deserialized when read
+	 */
+	@Override
+	public Cursor<T> cursor(Filter filter, int batchSize) {
+		return cursor(filter, null, batchSize);
+	}
+
+	@Override
+	public Cursor<T> cursor(Filter filter, Projection projection, int batchSize) {
+		return new MongoDBCursor<>(collection.find(toMongoDBQuery(filter)).projection(toMongoDBProjection(projection)).batchSize(batchSize).iterator(), serializer);
+	}
+
 	@Override
+	@SuppressWarnings("unchecked")
 	public T[] sorted(String fieldname, int limit) {
 		if (limit == 0) return (T[]) Array.newInstance(getClazz(), 0);
-		try {
-			T[] found = (T[]) Array.newInstance(getClazz(), limit);
-			MongoCursor<Document> cursor;
-			cursor = collection.find().sort(Filters.exists(fieldname)).iterator();
-			int i;
-			for (i = 0; cursor.hasNext() && i < limit; i++)
-				found[i] = serializer.deserialize(cursor.next(), DocumentFormat.INSTANCE);
-			return Arrays.copyOf(found, i);
+		return toArray(collection.find().sort(Sorts.ascending(fieldname)).limit(limit), limit);
+	}
+
+	/**
+	 * Find a page sorted and limited by the server.<br>
+	 * The values are also sorted by {@code _id} so the continuation, which holds the sort values of the last value in extended JSON, always points between two values. The sort
+	 * fields are always read, even if the projection excludes them, and the null or missing sort fields are sorted before the other values as the server does
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the continuation was not created by a query with the same sort fields
+	 * @throws IllegalStateException
+	 *             if a value cannot be deserialized
+	 */
+	@Override
+	public Page<T> query(Query query) {
+		List<String> keys = new ArrayList<>();
+		List<Bson> sorts = new ArrayList<>();
+		List<Boolean> descending = new ArrayList<>();
+		for (Query.Order order : query.getOrders()) {
+			boolean desc = order.getDirection() == Query.Direction.DESCENDING;
+			keys.add(order.getField());
+			sorts.add(desc ? Sorts.descending(order.getField()) : Sorts.ascending(order.getField()));
+			descending.add(desc);
+		}
+		if (!keys.contains(ID)) {
+			keys.add(ID);
+			sorts.add(Sorts.ascending(ID));
+			descending.add(false);
+		}
+		Bson filter = toMongoDBQuery(query.getFilter());
+		if (query.getContinuation() != null) filter = Filters.and(filter, toKeysetFilter(keys, descending, decodeContinuation(query.getContinuation(), keys.size())));
+		int limit = query.getLimit();
+		FindIterable<Document> documents = collection.find(filter)
+				.projection(toMongoDBProjection(query.getProjection(), keys))
+				.sort(Sorts.orderBy(sorts))
+				.limit(limit == Integer.MAX_VALUE ? 0 : limit + 1); // One more value tells if there is a next page
+		List<T> found = new ArrayList<>(Math.min(limit, 128));
+		Document last = null;
+		boolean next = false;
+		try (MongoCursor<Document> cursor = documents.iterator()) {
+			while (cursor.hasNext()) {
+				Document document = cursor.next();
+				if (found.size() == limit) {
+					next = true;
+					break;
+				}
+				found.add(serializer.deserialize(document, DocumentFormat.INSTANCE));
+				last = document;
+			}
 		} catch (IOException e) {
-			Logger.MAIN_LOGGER.severe(FIELD_MONGO, e, "Could'not deserialize");
-			return (T[]) Array.newInstance(getClazz(), 0);
+			throw new IllegalStateException("Could'not deserialize", e);
+		}
+		return new Page<>(found, next ? encodeContinuation(last, keys) : null);
+	}
+
+	/**
+	 * Create the filter of the values sorted after the sort values of the last value of a page
+	 * 
+	 * @param keys
+	 *            the sort fields
+	 * @param descending
+	 *            the direction of each sort field
+	 * @param values
+	 *            the sort values of the last value
+	 * @return the filter
+	 */
+	static Bson toKeysetFilter(List<String> keys, List<Boolean> descending, List<?> values) {
+		Bson[] after = new Bson[keys.size()];
+		for (int i = 0; i < after.length; i++) {
+			Bson[] equalsThenAfter = new Bson[i + 1];
+			for (int j = 0; j < i; j++)
+				equalsThenAfter[j] = Filters.eq(keys.get(j), values.get(j)); // Also matches the missing fields when the value is null, as the sort does
+			equalsThenAfter[i] = after(keys.get(i), descending.get(i), values.get(i));
+			after[i] = Filters.and(equalsThenAfter);
 		}
+		return Filters.or(after);
+	}
+
+	/**
+	 * Create the filter of the values sorted after a value on one field, the sort puts null and missing fields before any other value
+	 */
+	private static Bson after(String key, boolean descending, Object value) {
+		if (value == null) return descending ? Filters.in(key, Collections.emptyList()) : Filters.ne(key, null); // Nothing is sorted before null
+		return descending ? Filters.or(Filters.lt(key, value), Filters.eq(key, null)) : Filters.gt(key, value);
+	}
+
+	static String encodeContinuation(Document last, List<String> keys) {
+		List<Object> values = new ArrayList<>(keys.size());
+		for (String key : keys)
+			values.add(getPath(last, key));
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(new Document(KEYS, values).toJson().getBytes(StandardCharsets.UTF_8));
+	}
+
+	static List<?> decodeContinuation(String continuation, int size) {
+		try {
+			Object values = Document.parse(new String(Base64.getUrlDecoder().decode(continuation), StandardCharsets.UTF_8)).get(KEYS);
+			if (values instanceof List && ((List<?>) values).size() == size) return (List<?>) values;
+		} catch (RuntimeException e) { // NOSONAR reported below
+		}
+		throw new IllegalArgumentException("Invalid continuation : " + continuation);
+	}
+
+	private static Object getPath(Document document, String path) {
+		Object value = document;
+		for (String name : path.split("\\."))
+			value = value instanceof Document ? ((Document) value).get(name) : null;
+		return value;
 	}
 
 	@Override
@@ -203,6 +427,26 @@ public class MongoDBCollection<T> implements Collection<T> {
 		return mfilter;
 	}
 
+	private static Bson toMongoDBQuery(Filter filter) {
+		return filter == null ? new Document() : toMongoDBFilter(filter);
+	}
+
+	private static Bson toMongoDBProjection(Projection projection) {
+		if (projection == null) return null;
+		return projection.getType() == Projection.Type.INCLUDE ? Projections.include(projection.getFields()) : Projections.exclude(projection.getFields());
+	}
+
+	private static Bson toMongoDBProjection(Projection projection, List<String> keys) {
+		if (projection == null) return null;
+		Set<String> fields = new LinkedHashSet<>(Arrays.asList(projection.getFields()));
+		if (projection.getType() == Projection.Type.INCLUDE) {
+			fields.addAll(keys);
+			return Projections.include(new ArrayList<>(fields));
+		}
+		fields.removeAll(keys);
+		return fields.isEmpty() ? null : Projections.exclude(new ArrayList<>(fields));
+	}
+
 	private static Bson[] toMongoDBFilters(Filter... filters) {
 		Bson[] bfilters = new Bson[filters.length];
 		for (int i = 0; i < bfilters.length; i++) {
@@ -220,16 +464,11 @@ public class MongoDBCollection<T> implements Collection<T> {
 		return collection.count() == 0;
 	}
 
+	/**
+	 * Iterate over the whole collection with a {@link #cursor(Filter) cursor}, the driver cursor is released once the iterator is exhausted
+	 */
 	@Override
 	public Iterator<T> iterator() {
-		collection.find().map(v -> {
-			try {
-				return serializer.deserialize(v, DocumentFormat.INSTANCE);
-			} catch (Exception e) {
-				Logger.MAIN_LOGGER.error(e);
-			}
-			return null;
-		}).iterator();
-		return null;
+		return cursor(null);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package fr.aresrpg.commons.infra.database.mongodb;
+
+import fr.aresrpg.commons.domain.database.Cursor;
+import fr.aresrpg.commons.domain.serialization.Serializer;
+import fr.aresrpg.commons.infra.database.mongodb.serialization.DocumentFormat;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+
+/**
+ * A cursor deserializing the documents of a driver cursor one by one, the cursor is closed once exhausted
+ */
+public class MongoDBCursor<T> implements Cursor<T> {
+	private final MongoCursor<Document> cursor;
+	private final Serializer<T> serializer;
+	private boolean closed;
+
+	MongoDBCursor(MongoCursor<Document> cursor, Serializer<T> serializer) {
+		this.cursor = cursor;
+		this.serializer = serializer;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (closed) return false;
+		if (cursor.hasNext()) return true;
+		close();
+		return false;
+	}
+
+	/**
+	 * Deserialize the next document
+	 * 
+	 * @throws IllegalStateException
+	 *             if the document cannot be deserialized
+	 */
+	@Override
+	public T next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		try {
+			return serializer.deserialize(cursor.next(), DocumentFormat.INSTANCE);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could'not deserialize", e);
+		}
+	}
+
+	@Override
+	public void close() {
+		if (closed) return;
+		closed = true;
+		cursor.close();
+	}
+}
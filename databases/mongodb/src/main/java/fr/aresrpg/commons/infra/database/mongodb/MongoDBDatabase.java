@@ -1,5 +1,8 @@
 package fr.aresrpg.commons.infra.database.mongodb;
 
+import fr.aresrpg.commons.domain.concurrent.ThreadBuilder;
+import fr.aresrpg.commons.domain.concurrent.ThreadPoolBuilder;
+import fr.aresrpg.commons.domain.database.AsyncCollection;
 import fr.aresrpg.commons.domain.database.Collection;
 import fr.aresrpg.commons.domain.database.Database;
 import fr.aresrpg.commons.domain.serialization.Serializer;
@@ -8,6 +11,9 @@ import fr.aresrpg.commons.infra.serialization.unsafe.UnsafeSerializationFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 
 import com.mongodb.*;
 import com.mongodb.client.MongoDatabase;
@@ -18,6 +24,10 @@ public class MongoDBDatabase implements Database {
 	private String name;
 	private Map<String, MongoDBCollection> collections;
 	private SerializationFactory factory;
+	private ExecutorService executor;
+	private final Limit inFlight = new Limit();
+	private final Executor views = task -> getExecutor().execute(task); // The views always run on the current executor
+	private boolean ownExecutor;
 
 	public MongoDBDatabase(MongoDatabase database, MongoClient client) {
 		this.database = database;
@@ -54,6 +64,52 @@ public class MongoDBDatabase implements Database {
 		return client;
 	}
 
+	/**
+	 * Set the executor running the operations of the {@link AsyncCollection asynchronous collections} of this database, the views already created also use it for their next
+	 * operations
+	 * 
+	 * @param executor
+	 *            the executor, it is not shut down when the database is closed
+	 * @param maxInFlight
+	 *            the max number of operations in flight for all the collections
+	 */
+	public synchronized void setExecutor(ExecutorService executor, int maxInFlight) {
+		if (ownExecutor) this.executor.shutdown(); // The operations already submitted still run
+		this.executor = executor;
+		this.ownExecutor = false;
+		inFlight.resize(maxInFlight);
+	}
+
+	/**
+	 * Get an asynchronous view of the collection running on the executor of this database.<br>
+	 * Unless an executor is {@link #setExecutor(ExecutorService, int) set}, the executor has one thread by connection of the pool and the operations in flight are limited to the
+	 * size of the wait queue of the pool, so the driver never rejects an operation. This executor is shut down when the database is closed and created again by the next
+	 * operation of a view
+	 * 
+	 * @param collection
+	 *            the collection of this database
+	 * @param <T>
+	 *            the type of the collection
+	 * @return the asynchronous view
+	 */
+	<T> AsyncCollection<T> async(MongoDBCollection<T> collection) {
+		getExecutor();
+		return new AsyncCollection<>(collection, views, inFlight);
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			MongoClientOptions options = client.getMongoClientOptions();
+			executor = new ThreadPoolBuilder(new ThreadBuilder().setName("MongoDB-" + name + "-%d").setDaemon(true))
+					.setType(ThreadPoolBuilder.PoolType.FIXED)
+					.setParallelism(options.getConnectionsPerHost())
+					.buildAsService();
+			inFlight.resize(options.getConnectionsPerHost() * options.getThreadsAllowedToBlockForConnectionMultiplier());
+			ownExecutor = true;
+		}
+		return executor;
+	}
+
 	@Override
 	public void connect(String host, int port, String user, String password) throws IOException {
 		client = new MongoClient(new ServerAddress(host, port), Collections.singletonList(MongoCredential.createCredential(user, name, password.toCharArray())));
@@ -62,6 +118,13 @@ public class MongoDBDatabase implements Database {
 
 	@Override
 	public void close() {
+		synchronized (this) {
+			if (ownExecutor) {
+				executor.shutdown();
+				executor = null;
+				ownExecutor = false;
+			}
+		}
 		client.close();
 	}
 
@@ -87,8 +150,27 @@ public class MongoDBDatabase implements Database {
 		if (database == null) throw new IllegalStateException("Unable to get the collection ! The database is not connected.");
 		MongoDBCollection<T> collection = collections.get(id);
 		if (collection != null) return collection;
-		collection = new MongoDBCollection<>(database.getCollection(id), serializer, type);
+		collection = new MongoDBCollection<>(this, database.getCollection(id), serializer, type);
 		collections.put(id, collection);
 		return collection;
 	}
+
+	/**
+	 * The limit of the operations in flight shared by all the views, resized in place as the views keep it
+	 */
+	private static final class Limit extends Semaphore {
+		private static final long serialVersionUID = 1L;
+		private int max;
+
+		private Limit() {
+			super(0);
+		}
+
+		private synchronized void resize(int max) {
+			int delta = max - this.max;
+			this.max = max;
+			if (delta > 0) release(delta);
+			else reducePermits(-delta); // The permits of the operations in flight are still released
+		}
+	}
 }
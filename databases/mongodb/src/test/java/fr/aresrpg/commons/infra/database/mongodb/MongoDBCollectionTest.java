@@ -0,0 +1,225 @@
+package fr.aresrpg.commons.infra.database.mongodb;
+
+import fr.aresrpg.commons.domain.database.Bulk;
+import fr.aresrpg.commons.domain.database.Cursor;
+import fr.aresrpg.commons.domain.serialization.Format;
+import fr.aresrpg.commons.domain.serialization.Serializer;
+import fr.aresrpg.commons.infra.serialization.unsafe.UnsafeSerializationFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.mongodb.MongoClient;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MongoDBCollectionTest {
+	private static final Serializer<Player> SERIALIZER = new UnsafeSerializationFactory().createOrGetSerializer(Player.class);
+
+	@Test
+	public void orderedBulkSerializationFailure() {
+		MongoDBCollection<Player> players = new MongoDBCollection<>(null, unreachable(), new FailingSerializer(), Player.class);
+		Bulk<Player> bulk = players.bulk().put(new Player("storm", 1));
+		try {
+			bulk.execute();
+			Assert.fail("Serialization failure skipped in an ordered bulk");
+		} catch (IllegalStateException e) { // NOSONAR expected
+		}
+		players.bulk().setOrdered(false).put(new Player("storm", 1)).execute(); // Skipped, nothing is sent
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void putAllSerializationFailure() {
+		new MongoDBCollection<>(null, unreachable(), new FailingSerializer(), Player.class).putAll(Arrays.asList(new Player("storm", 1), new Player("logan", 2)));
+	}
+
+	@Test
+	public void findLimitedByServer() {
+		FakeCollection fake = new FakeCollection(player("storm", 1), player("logan", 2), player("jean", 3));
+		MongoDBCollection<Player> players = new MongoDBCollection<>(null, fake.proxy(), SERIALIZER, Player.class);
+		Player[] found = players.find(null, 2);
+		Assert.assertEquals("Limit not sent to the server", 2, fake.limit);
+		Assert.assertEquals(2, found.length);
+		Assert.assertEquals("logan", found[1].name);
+		Assert.assertTrue("Driver cursor not closed", fake.closed);
+	}
+
+	@Test
+	public void cursor() {
+		FakeCollection fake = new FakeCollection(player("storm", 1), player("logan", 2));
+		MongoDBCollection<Player> players = new MongoDBCollection<>(null, fake.proxy(), SERIALIZER, Player.class);
+		Cursor<Player> cursor = players.cursor(null, 16);
+		Assert.assertEquals("Batch size not sent to the server", 16, fake.batchSize);
+		Assert.assertEquals("storm", cursor.next().name);
+		Assert.assertEquals(2, cursor.next().score);
+		Assert.assertFalse("Driver cursor not exhausted", fake.closed);
+		Assert.assertFalse(cursor.hasNext());
+		Assert.assertTrue("Exhausted driver cursor not closed", fake.closed);
+		try {
+			cursor.next();
+			Assert.fail("Read after the end");
+		} catch (NoSuchElementException e) { // NOSONAR expected
+		}
+	}
+
+	@Test
+	public void keysetFilter() {
+		Assert.assertEquals("{ \"$or\" : [{ \"$or\" : [{ \"score\" : { \"$lt\" : 5 } }, { \"score\" : null }] }, { \"score\" : 5, \"_id\" : { \"$gt\" : 3 } }] }",
+				json(MongoDBCollection.toKeysetFilter(Arrays.asList("score", "_id"), Arrays.asList(true, false), Arrays.asList(5, 3))));
+		Assert.assertEquals("Values after null ascending", "{ \"$or\" : [{ \"name\" : { \"$ne\" : null } }, { \"name\" : null, \"_id\" : { \"$gt\" : 3 } }] }",
+				json(MongoDBCollection.toKeysetFilter(Arrays.asList("name", "_id"), Arrays.asList(false, false), Arrays.asList(null, 3))));
+		Assert.assertEquals("Values after null descending", "{ \"$or\" : [{ \"name\" : { \"$in\" : [] } }] }",
+				json(MongoDBCollection.toKeysetFilter(Arrays.asList("name"), Arrays.asList(true), Arrays.asList((Object) null))));
+	}
+
+	@Test
+	public void continuation() {
+		List<String> keys = Arrays.asList("stats.score", "name", "_id");
+		Document last = new Document("name", null).append("stats", new Document("score", 5)).append("_id", 3).append("level", 1);
+		String continuation = MongoDBCollection.encodeContinuation(last, keys);
+		Assert.assertEquals("eyAiayIgOiBbNSwgbnVsbCwgM10gfQ", continuation);
+		Assert.assertEquals(Arrays.asList(5, null, 3), MongoDBCollection.decodeContinuation(continuation, keys.size()));
+		for (String invalid : new String[] { continuation.substring(1), "invalid" })
+			try {
+				MongoDBCollection.decodeContinuation(invalid, keys.size());
+				Assert.fail("Invalid continuation accepted : " + invalid);
+			} catch (IllegalArgumentException e) { // NOSONAR expected
+			}
+		try {
+			MongoDBCollection.decodeContinuation(continuation, 2);
+			Assert.fail("Continuation of other sort fields accepted");
+		} catch (IllegalArgumentException e) { // NOSONAR expected
+		}
+	}
+
+	private static String json(Bson bson) {
+		return bson.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry()).toJson();
+	}
+
+	private static Document player(String name, int score) {
+		return new Document("name", name).append("score", score);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static MongoCollection<Document> unreachable() {
+		return (MongoCollection<Document>) Proxy.newProxyInstance(MongoDBCollectionTest.class.getClassLoader(), new Class<?>[] { MongoCollection.class }, (proxy, method, args) -> {
+			throw new AssertionError("Unexpected call to the database : " + method.getName());
+		});
+	}
+
+	/**
+	 * A driver collection returning its documents to any find and recording the options of the last find
+	 */
+	private static final class FakeCollection {
+		private final List<Document> documents;
+		private Bson filter;
+		private Bson projection;
+		private Bson sort;
+		private int limit;
+		private int batchSize;
+		private boolean closed;
+
+		private FakeCollection(Document... documents) {
+			this.documents = Arrays.asList(documents);
+		}
+
+		@SuppressWarnings("unchecked")
+		private MongoCollection<Document> proxy() {
+			return (MongoCollection<Document>) Proxy.newProxyInstance(MongoDBCollectionTest.class.getClassLoader(), new Class<?>[] { MongoCollection.class }, (proxy, method, args) -> {
+				if (!method.getName().equals("find")) throw new AssertionError("Unexpected call to the database : " + method.getName());
+				filter = args == null || !(args[0] instanceof Bson) ? null : (Bson) args[0];
+				projection = sort = null;
+				limit = batchSize = 0;
+				return find();
+			});
+		}
+
+		private FindIterable<?> find() {
+			return (FindIterable<?>) Proxy.newProxyInstance(MongoDBCollectionTest.class.getClassLoader(), new Class<?>[] { FindIterable.class }, (proxy, method, args) -> {
+				switch (method.getName()) {
+					case "projection":
+						projection = (Bson) args[0];
+						return proxy;
+					case "sort":
+						sort = (Bson) args[0];
+						return proxy;
+					case "limit":
+						limit = (Integer) args[0];
+						return proxy;
+					case "batchSize":
+						batchSize = (Integer) args[0];
+						return proxy;
+					case "iterator":
+						closed = false;
+						return cursor(documents.subList(0, limit == 0 ? documents.size() : Math.min(limit, documents.size())).iterator());
+					default:
+						throw new AssertionError("Unexpected call to the find : " + method.getName());
+				}
+			});
+		}
+
+		private MongoCursor<?> cursor(Iterator<Document> iterator) {
+			return (MongoCursor<?>) Proxy.newProxyInstance(MongoDBCollectionTest.class.getClassLoader(), new Class<?>[] { MongoCursor.class }, (proxy, method, args) -> {
+				switch (method.getName()) {
+					case "hasNext":
+						return iterator.hasNext();
+					case "next":
+						return iterator.next();
+					case "close":
+						closed = true;
+						return null;
+					default:
+						throw new AssertionError("Unexpected call to the cursor : " + method.getName());
+				}
+			});
+		}
+	}
+
+	public static class Player {
+		String name;
+		int score;
+
+		public Player(String name, int score) {
+			this.name = name;
+			this.score = score;
+		}
+	}
+
+	private static class FailingSerializer implements Serializer<Player> {
+		@Override
+		public <O> void serialize(O output, Player object, Format<?, O> format) throws IOException {
+			throw new IOException("Not serializable");
+		}
+
+		@Override
+		public <I> void deserialize(I input, Player object, Format<I, ?> format) throws IOException {
+			throw new IOException("Not deserializable");
+		}
+
+		@Override
+		public <I> Player deserialize(I input, Format<I, ?> format) throws IOException {
+			throw new IOException("Not deserializable");
+		}
+
+		@Override
+		public Player deserialize(Map<String, Object> values) throws IOException {
+			throw new IOException("Not deserializable");
+		}
+
+		@Override
+		public void deserialize(Map<String, Object> values, Player object) throws IOException {
+			throw new IOException("Not deserializable");
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package fr.aresrpg.commons.infra.database.mongodb;
+
+import fr.aresrpg.commons.domain.concurrent.ThreadBuilder;
+import fr.aresrpg.commons.domain.concurrent.ThreadPoolBuilder;
+import fr.aresrpg.commons.domain.database.AsyncCollection;
+import fr.aresrpg.commons.infra.database.mongodb.MongoDBCollectionTest.Player;
+import fr.aresrpg.commons.infra.serialization.unsafe.UnsafeSerializationFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MongoDBDatabaseTest {
+	static {
+		Logger.getLogger("org.mongodb.driver").setLevel(Level.OFF); // The client never reaches its server
+	}
+
+	@Test(timeout = 10000)
+	public void viewsFollowTheExecutor() throws Exception {
+		MongoDBDatabase database = new MongoDBDatabase(database(), new MongoClient(new ServerAddress("localhost", 1), MongoClientOptions.builder().connectionsPerHost(2).build()));
+		String[] thread = new String[1];
+		AsyncCollection<Player> view = collection(database, thread).async();
+		Assert.assertEquals(2L, (long) view.count().get());
+		Assert.assertEquals("Default limit not applied", 2 * 5, view.getAvailable());
+		ExecutorService custom = new ThreadPoolBuilder(new ThreadBuilder().setName("Custom-%d").setDaemon(true)).setType(ThreadPoolBuilder.PoolType.FIXED).setParallelism(1)
+				.buildAsService();
+		database.setExecutor(custom, 3);
+		view.count().get();
+		Assert.assertTrue("View not moved to the new executor", thread[0].startsWith("Custom-"));
+		Assert.assertEquals("Limit not resized", 3, view.getAvailable());
+		database.close();
+		Assert.assertEquals("View broken by the close", 2L, (long) view.count().get());
+		Assert.assertFalse("Executor set by the caller shut down", custom.isShutdown());
+		custom.shutdown();
+	}
+
+	@Test(timeout = 10000)
+	public void ownExecutorCreatedAgain() throws Exception {
+		MongoDBDatabase database = new MongoDBDatabase(database(), new MongoClient(new ServerAddress("localhost", 1)));
+		String[] thread = new String[1];
+		AsyncCollection<Player> view = collection(database, thread).async();
+		Assert.assertEquals(2L, (long) view.count().get());
+		database.close();
+		view.count().get();
+		Assert.assertTrue("Closed executor not created again", thread[0].startsWith("MongoDB-test-"));
+		database.close();
+	}
+
+	private static MongoDBCollection<Player> collection(MongoDBDatabase database, String[] thread) {
+		return new MongoDBCollection<>(database, counting(thread), new UnsafeSerializationFactory().createOrGetSerializer(Player.class), Player.class);
+	}
+
+	private static MongoDatabase database() {
+		return (MongoDatabase) Proxy.newProxyInstance(MongoDBDatabaseTest.class.getClassLoader(), new Class<?>[] { MongoDatabase.class }, (proxy, method, args) -> {
+			if (!method.getName().equals("getName")) throw new AssertionError("Unexpected call to the database : " + method.getName());
+			return "test";
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static MongoCollection<Document> counting(String[] thread) {
+		return (MongoCollection<Document>) Proxy.newProxyInstance(MongoDBDatabaseTest.class.getClassLoader(), new Class<?>[] { MongoCollection.class }, (proxy, method, args) -> {
+			if (!method.getName().equals("count")) throw new AssertionError("Unexpected call to the database : " + method.getName());
+			thread[0] = Thread.currentThread().getName();
+			return 2L;
+		});
+	}
+}
@@ -0,0 +1,213 @@
+package fr.aresrpg.commons.benchmark.event;
+
+import fr.aresrpg.commons.domain.event.Event;
+import fr.aresrpg.commons.domain.event.EventBus;
+import fr.aresrpg.commons.domain.event.Subscriber;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmarks of the {@link EventBus} dispatch paths, run them with {@code -prof gc} to see the allocations of each path
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventBusBenchmark {
+	public static final int ASYNC_BATCH = 1000;
+
+	public static class SyncEvent implements Event<SyncEvent> {
+		public static final EventBus<SyncEvent> BUS = new EventBus<>(SyncEvent.class);
+
+		@Override
+		public EventBus<SyncEvent> getBus() {
+			return BUS;
+		}
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	public static class MethodEvent implements Event<MethodEvent> {
+		public static final EventBus<MethodEvent> BUS = new EventBus<>(MethodEvent.class);
+
+		@Override
+		public EventBus<MethodEvent> getBus() {
+			return BUS;
+		}
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	public static class AsyncEvent implements Event<AsyncEvent> {
+		public static final EventBus<AsyncEvent> BUS = new EventBus<>(AsyncEvent.class);
+
+		private volatile boolean received;
+
+		@Override
+		public EventBus<AsyncEvent> getBus() {
+			return BUS;
+		}
+
+		@Override
+		public boolean isAsynchronous() {
+			return true;
+		}
+	}
+
+	public static class ChurnEvent implements Event<ChurnEvent> {
+		public static final EventBus<ChurnEvent> BUS = new EventBus<>(ChurnEvent.class);
+
+		@Override
+		public EventBus<ChurnEvent> getBus() {
+			return BUS;
+		}
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class SyncState {
+		@Param({ "1", "10", "100" })
+		public int subscribers;
+		public final SyncEvent event = new SyncEvent();
+		private final LongAdder sink = new LongAdder();
+
+		@Setup(Level.Trial)
+		public void setup() {
+			for (int i = 0; i < subscribers; i++)
+				SyncEvent.BUS.subscribe(e -> sink.increment(), i);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			for (Subscriber<SyncEvent> subscriber : SyncEvent.BUS.getSubscribers())
+				SyncEvent.BUS.unsubscribe(subscriber);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class MethodState {
+		public final SyncEvent consumerEvent = new SyncEvent();
+		public final MethodEvent methodEvent = new MethodEvent();
+		public int received;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			SyncEvent.BUS.subscribe(e -> received++, 0);
+			MethodEvent.BUS.subscribeMethod(MethodState.class.getMethod("onEvent", MethodEvent.class), this, 0);
+		}
+
+		public void onEvent(MethodEvent event) {
+			received++;
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			for (Subscriber<SyncEvent> subscriber : SyncEvent.BUS.getSubscribers())
+				SyncEvent.BUS.unsubscribe(subscriber);
+			for (Subscriber<MethodEvent> subscriber : MethodEvent.BUS.getSubscribers())
+				MethodEvent.BUS.unsubscribe(subscriber);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class AsyncState {
+		private final AtomicInteger pending = new AtomicInteger();
+		private Subscriber<AsyncEvent> subscriber;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			subscriber = AsyncEvent.BUS.subscribe(e -> {
+				e.received = true;
+				pending.decrementAndGet();
+			}, 0);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			AsyncEvent.BUS.unsubscribe(subscriber);
+		}
+	}
+
+	@State(Scope.Group)
+	public static class ChurnState {
+		public final ChurnEvent event = new ChurnEvent();
+
+		@Setup(Level.Trial)
+		public void setup() {
+			for (int i = 0; i < 10; i++)
+				ChurnEvent.BUS.subscribe(e -> {}, i);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			for (Subscriber<ChurnEvent> subscriber : ChurnEvent.BUS.getSubscribers())
+				ChurnEvent.BUS.unsubscribe(subscriber);
+		}
+	}
+
+	@Benchmark
+	public void syncSend(SyncState state) {
+		state.event.send();
+	}
+
+	@Benchmark
+	public void consumerSend(MethodState state) {
+		state.consumerEvent.send();
+	}
+
+	@Benchmark
+	public void methodSend(MethodState state) {
+		state.methodEvent.send();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ASYNC_BATCH)
+	public void asyncThroughput(AsyncState state) {
+		state.pending.addAndGet(ASYNC_BATCH);
+		for (int i = 0; i < ASYNC_BATCH; i++)
+			new AsyncEvent().send();
+		while (state.pending.get() > 0)
+			Thread.yield();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	public boolean asyncLatency(AsyncState state) {
+		AsyncEvent event = new AsyncEvent();
+		state.pending.incrementAndGet();
+		event.send();
+		while (!event.received)
+			Thread.yield();
+		return event.received;
+	}
+
+	@Benchmark
+	@Group("churn")
+	@GroupThreads(2)
+	public void churnSubscribe(ChurnState state, Blackhole bh) {
+		Subscriber<ChurnEvent> subscriber = ChurnEvent.BUS.subscribe(bh::consume, 5);
+		ChurnEvent.BUS.unsubscribe(subscriber);
+	}
+
+	@Benchmark
+	@Group("churn")
+	@GroupThreads(2)
+	public void churnSend(ChurnState state) {
+		state.event.send();
+	}
+}
@@ -0,0 +1,117 @@
+package fr.aresrpg.commons.benchmark.log;
+
+import fr.aresrpg.commons.domain.log.Logger;
+import fr.aresrpg.commons.domain.log.handler.BaseHandler;
+import fr.aresrpg.commons.domain.log.handler.FileHandler;
+import fr.aresrpg.commons.domain.log.handler.StreamHandler;
+import fr.aresrpg.commons.domain.log.handler.formatters.BasicFormatter;
+import fr.aresrpg.commons.domain.log.handler.formatters.ColorFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the cost of a {@link Logger} call, run them with {@code -prof gc} to see the allocations of each call
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggerBenchmark {
+	public static final int CONTENDED_THREADS = 4;
+
+	public static class NullOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+			// Discarded
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			// Discarded
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class LoggerState {
+		@Param({ "basic", "color" })
+		public String formatter;
+		@Param({ "null", "file" })
+		public String sink;
+		@Param({ "false", "true" })
+		public boolean garbageFree;
+		public Logger logger;
+		public final Integer a = 1000;
+		public final String b = "player";
+		public final Double c = 3.5;
+		public final Exception exception = new IllegalStateException("failure");
+		private Path file;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			BaseHandler handler;
+			if ("file".equals(sink)) {
+				file = Files.createTempFile("logger-benchmark", ".log");
+				handler = new FileHandler(file);
+			} else {
+				StreamHandler stream = new StreamHandler(new NullOutputStream());
+				stream.setAutoFlush(false);
+				handler = stream;
+			}
+			handler.setFormatter("color".equals(formatter) ? new ColorFormatter(new BasicFormatter()) : new BasicFormatter());
+			logger = new Logger("benchmark", new ArrayList<>(Collections.singletonList(handler)));
+			logger.setLevel(Logger.Level.INFO);
+			logger.setGarbageFree(garbageFree);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			logger.close();
+			if (file != null) Files.deleteIfExists(file);
+		}
+	}
+
+	@Benchmark
+	public void disabled(LoggerState state) {
+		state.logger.debug("{} {} {}", state.a, state.b, state.c);
+	}
+
+	@Benchmark
+	public void args0(LoggerState state) {
+		state.logger.info("A message without arguments");
+	}
+
+	@Benchmark
+	public void args3(LoggerState state) {
+		state.logger.info("{} joined with {} and {}", state.a, state.b, state.c);
+	}
+
+	@Benchmark
+	public void args10(LoggerState state) {
+		state.logger.info("{} {} {} {} {} {} {} {} {} {}", state.a, state.b, state.c, state.a, state.b, state.c, state.a, state.b, state.c, state.a);
+	}
+
+	@Benchmark
+	public void throwable(LoggerState state) {
+		state.logger.error(state.exception, "{} failed", state.b);
+	}
+
+	@Benchmark
+	@Threads(CONTENDED_THREADS)
+	public void contendedArgs3(LoggerState state) {
+		state.logger.info("{} joined with {} and {}", state.a, state.b, state.c);
+	}
+
+	@Benchmark
+	@Threads(CONTENDED_THREADS)
+	public void contendedDisabled(LoggerState state) {
+		state.logger.debug("{} {} {}", state.a, state.b, state.c);
+	}
+}
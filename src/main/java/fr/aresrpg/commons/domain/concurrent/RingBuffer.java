@@ -0,0 +1,201 @@
+package fr.aresrpg.commons.domain.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A bounded lock-free queue for multiple producers and a single consumer.<br>
+ * The slots are preallocated and each slot has a sequence number telling if it is free or published, so producers only contend on one CAS and never allocate.
+ * The elements themselves can also be preallocated, the producers then {@link #offer(Object, BiConsumer) copy} their values in the element of the claimed slot
+ * 
+ * @param <T>
+ *            the type of the elements
+ */
+public class RingBuffer<T> {
+	private final int mask;
+	private final Object[] items;
+	private final AtomicLongArray sequences;
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong head = new AtomicLong();
+	private final boolean preallocated;
+
+	/**
+	 * Create a new ring buffer
+	 * 
+	 * @param capacity
+	 *            the capacity of the buffer, rounded up to a power of two
+	 */
+	public RingBuffer(int capacity) {
+		this(capacity, null);
+	}
+
+	/**
+	 * Create a new ring buffer whose elements are preallocated and reused, they are only valid during the call to the consumer of {@link #drain(Consumer, int)}
+	 * 
+	 * @param capacity
+	 *            the capacity of the buffer, rounded up to a power of two
+	 * @param factory
+	 *            the factory of the elements or null to store the offered elements
+	 */
+	public RingBuffer(int capacity, Supplier<? extends T> factory) {
+		if (capacity <= 0 || capacity > 1 << 30) throw new IllegalArgumentException("Invalid capacity : " + capacity);
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) size <<= 1;
+		this.mask = size - 1;
+		this.items = new Object[size];
+		this.sequences = new AtomicLongArray(size);
+		this.preallocated = factory != null;
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+			if (preallocated) items[i] = factory.get();
+		}
+	}
+
+	/**
+	 * Add an element to this buffer, can be called from any thread
+	 * 
+	 * @param item
+	 *            the element
+	 * @return false if the buffer is full
+	 */
+	public boolean offer(T item) {
+		if (preallocated) throw new IllegalStateException("The elements are preallocated, use offer(value, writer)");
+		long position = claim();
+		if (position < 0) return false;
+		int index = (int) position & mask;
+		items[index] = item;
+		sequences.lazySet(index, position + 1); // Publish the item
+		return true;
+	}
+
+	/**
+	 * Copy a value in the preallocated element of a free slot, can be called from any thread
+	 * 
+	 * @param value
+	 *            the value
+	 * @param writer
+	 *            the function copying the value in the element, called before the element is published
+	 * @param <V>
+	 *            the type of the value
+	 * @return false if the buffer is full
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> boolean offer(V value, BiConsumer<? super T, ? super V> writer) {
+		if (!preallocated) throw new IllegalStateException("The elements are not preallocated, use offer(item)");
+		long position = claim();
+		if (position < 0) return false;
+		int index = (int) position & mask;
+		try {
+			writer.accept((T) items[index], value);
+		} finally {
+			sequences.lazySet(index, position + 1); // Publish the element, the slot can't be abandoned once claimed
+		}
+		return true;
+	}
+
+	private long claim() {
+		long position = tail.get();
+		while (true) {
+			long difference = sequences.get((int) position & mask) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) return position;
+				position = tail.get();
+			} else if (difference < 0) return -1; // The slot has not been consumed yet
+			else position = tail.get(); // Another producer took the slot
+		}
+	}
+
+	/**
+	 * Take the oldest element of this buffer, must only be called by the consumer thread
+	 * 
+	 * @return the element or null if the buffer is empty
+	 * @throws IllegalStateException
+	 *             if the elements are preallocated, they must be {@link #drain(Consumer, int) drained}
+	 */
+	@SuppressWarnings("unchecked")
+	public T poll() {
+		if (preallocated) throw new IllegalStateException("The elements are preallocated, use drain");
+		long position = head.get();
+		int index = (int) position & mask;
+		if (sequences.get(index) != position + 1) return null;
+		T item = (T) items[index];
+		items[index] = null;
+		sequences.lazySet(index, position + items.length); // Free the slot for the next lap
+		head.lazySet(position + 1);
+		return item;
+	}
+
+	/**
+	 * Take at most max elements of this buffer, must only be called by the consumer thread
+	 * 
+	 * @param consumer
+	 *            the consumer of the elements
+	 * @param max
+	 *            the max number of elements to take
+	 * @return the number of elements taken
+	 */
+	@SuppressWarnings("unchecked")
+	public int drain(Consumer<? super T> consumer, int max) {
+		int count = 0;
+		T item;
+		if (!preallocated) {
+			while (count < max && (item = poll()) != null) {
+				consumer.accept(item);
+				count++;
+			}
+			return count;
+		}
+		long position = head.get();
+		while (count < max) {
+			int index = (int) position & mask;
+			if (sequences.get(index) != position + 1) break;
+			try {
+				consumer.accept((T) items[index]);
+			} finally {
+				sequences.lazySet(index, position + items.length); // Free the slot once its element is consumed
+				head.lazySet(++position);
+			}
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Get the number of elements in this buffer, the result is only an estimation when producers are running
+	 * 
+	 * @return the size
+	 */
+	public int size() {
+		return (int) Math.max(0, Math.min(tail.get() - head.get(), items.length));
+	}
+
+	/**
+	 * Get if this buffer is empty
+	 * 
+	 * @return true if no element is waiting
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Get the number of elements added to this buffer since its creation
+	 * 
+	 * @return the number of added elements
+	 */
+	public long getOffered() {
+		return tail.get();
+	}
+
+	/**
+	 * Get the capacity of this buffer
+	 * 
+	 * @return the capacity
+	 */
+	public int capacity() {
+		return items.length;
+	}
+}
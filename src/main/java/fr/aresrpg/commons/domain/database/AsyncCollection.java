@@ -0,0 +1,286 @@
+package fr.aresrpg.commons.domain.database;
+
+import fr.aresrpg.commons.domain.concurrent.ThreadBuilder;
+import fr.aresrpg.commons.domain.concurrent.ThreadPoolBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * A view of a {@link Collection} running the operations on an I/O executor and returning their result as a {@link CompletableFuture}.<br>
+ * The number of operations submitted and not yet finished is limited, over the limit the returned future fails with a {@link RejectedExecutionException} instead of blocking the
+ * caller. The callbacks of the futures run on the I/O thread, use the {@code *Async} variants with the executor of the caller to get back to its thread
+ * 
+ * @param <T>
+ *            the type of the collection
+ */
+public class AsyncCollection<T> {
+	/**
+	 * The number of threads of the default executor
+	 */
+	public static final int DEFAULT_THREADS = 4;
+	/**
+	 * The default max number of operations in flight
+	 */
+	public static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+
+	private final Collection<T> collection;
+	private final Executor executor;
+	private final Semaphore inFlight;
+
+	/**
+	 * Create a new asynchronous view sharing its limit with other views
+	 * 
+	 * @param collection
+	 *            the collection
+	 * @param executor
+	 *            the executor running the operations
+	 * @param inFlight
+	 *            the permits of the operations in flight
+	 */
+	public AsyncCollection(Collection<T> collection, Executor executor, Semaphore inFlight) {
+		this.collection = collection;
+		this.executor = executor;
+		this.inFlight = inFlight;
+	}
+
+	/**
+	 * Create a new asynchronous view
+	 * 
+	 * @param collection
+	 *            the collection
+	 * @param executor
+	 *            the executor running the operations
+	 * @param maxInFlight
+	 *            the max number of operations in flight
+	 */
+	public AsyncCollection(Collection<T> collection, Executor executor, int maxInFlight) {
+		this(collection, executor, new Semaphore(maxInFlight));
+	}
+
+	/**
+	 * Create a new asynchronous view running on a shared executor of {@link #DEFAULT_THREADS} threads, all the views of this executor share a limit of
+	 * {@link #DEFAULT_MAX_IN_FLIGHT} operations in flight
+	 * 
+	 * @param collection
+	 *            the collection
+	 */
+	public AsyncCollection(Collection<T> collection) {
+		this(collection, DefaultExecutor.INSTANCE, DefaultExecutor.IN_FLIGHT);
+	}
+
+	/**
+	 * Get the blocking collection of this view
+	 * 
+	 * @return the collection
+	 */
+	public Collection<T> getCollection() {
+		return collection;
+	}
+
+	/**
+	 * Get the number of operations which can still be submitted
+	 * 
+	 * @return the number of free permits
+	 */
+	public int getAvailable() {
+		return inFlight.availablePermits();
+	}
+
+	/**
+	 * Put the value in the collection
+	 * 
+	 * @param value
+	 *            the value
+	 * @return the future completed once the value is put
+	 */
+	public CompletableFuture<Void> put(T value) {
+		return run(() -> collection.put(value));
+	}
+
+	/**
+	 * Put the values in the collection
+	 * 
+	 * @param values
+	 *            the values, they must not be modified until the future is completed
+	 * @return the future completed once the values are put
+	 */
+	public CompletableFuture<Void> putAll(Iterable<? extends T> values) {
+		return run(() -> collection.putAll(values));
+	}
+
+	/**
+	 * Update the value in the collection
+	 * 
+	 * @param filter
+	 *            the filter to find the value
+	 * @param value
+	 *            the new value
+	 * @return the future completed once the value is updated
+	 */
+	public CompletableFuture<Void> update(Filter filter, T value) {
+		return run(() -> collection.update(filter, value));
+	}
+
+	/**
+	 * Put or update the value in the collection
+	 * 
+	 * @param filter
+	 *            the filter to find the value
+	 * @param value
+	 *            the new value
+	 * @return the future completed once the value is put or updated
+	 */
+	public CompletableFuture<Void> putOrUpdate(Filter filter, T value) {
+		return run(() -> collection.putOrUpdate(filter, value));
+	}
+
+	/**
+	 * Update all the values in the collection
+	 * 
+	 * @param filter
+	 *            the filter to find the values
+	 * @param value
+	 *            the new value
+	 * @return the future completed once the values are updated
+	 */
+	public CompletableFuture<Void> updateAll(Filter filter, T value) {
+		return run(() -> collection.updateAll(filter, value));
+	}
+
+	/**
+	 * Put or update all the values in the collection
+	 * 
+	 * @param filter
+	 *            the filter to find the values
+	 * @param value
+	 *            the new value
+	 * @return the future completed once the values are put or updated
+	 */
+	public CompletableFuture<Void> putOrUpdateAll(Filter filter, T value) {
+		return run(() -> collection.putOrUpdateAll(filter, value));
+	}
+
+	/**
+	 * Find the values in the collection
+	 * 
+	 * @param filter
+	 *            the filter to use
+	 * @param max
+	 *            the maximum of value to get
+	 * @return the future of the values found
+	 */
+	public CompletableFuture<T[]> find(Filter filter, int max) {
+		return supply(() -> collection.find(filter, max));
+	}
+
+	/**
+	 * Find the first value corresponding to the filter
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @return the future of the value or of null if there is no value corresponding to the filter
+	 */
+	public CompletableFuture<T> findFirst(Filter filter) {
+		return supply(() -> collection.findFirst(filter));
+	}
+
+	/**
+	 * Find a page of values
+	 * 
+	 * @param query
+	 *            the query, it must not be modified until the future is completed
+	 * @return the future of the page
+	 */
+	public CompletableFuture<Page<T>> query(Query query) {
+		return supply(() -> collection.query(query));
+	}
+
+	/**
+	 * Get if the values exist in the database
+	 * 
+	 * @param filter
+	 *            the filter to use
+	 * @return the future of true if the value exist
+	 */
+	public CompletableFuture<Boolean> exist(Filter filter) {
+		return supply(() -> collection.exist(filter));
+	}
+
+	/**
+	 * Remove the values matching the filter
+	 * 
+	 * @param filter
+	 *            the filter to use
+	 * @param removed
+	 *            the maximum of values to remove
+	 * @return the future of the number of values removed
+	 */
+	public CompletableFuture<Integer> remove(Filter filter, int removed) {
+		return supply(() -> collection.remove(filter, removed));
+	}
+
+	/**
+	 * Remove a value from the collection
+	 * 
+	 * @param filter
+	 *            the filter to find the value
+	 * @return the future of true if the value has been removed
+	 */
+	public CompletableFuture<Boolean> remove(Filter filter) {
+		return supply(() -> collection.remove(filter));
+	}
+
+	/**
+	 * Count the documents in the collection
+	 * 
+	 * @return the future of the number of documents
+	 */
+	public CompletableFuture<Long> count() {
+		return supply(collection::count);
+	}
+
+	private CompletableFuture<Void> run(Runnable task) {
+		return supply(() -> {
+			task.run();
+			return null;
+		});
+	}
+
+	private <R> CompletableFuture<R> supply(Supplier<R> task) {
+		if (!inFlight.tryAcquire()) return failed(new RejectedExecutionException("Too many operations in flight on " + collection.getId()));
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return task.get();
+				} finally {
+					inFlight.release();
+				}
+			}, executor);
+		} catch (RejectedExecutionException e) {
+			inFlight.release();
+			return failed(e);
+		}
+	}
+
+	private static <R> CompletableFuture<R> failed(Throwable t) {
+		CompletableFuture<R> future = new CompletableFuture<>();
+		future.completeExceptionally(t);
+		return future;
+	}
+
+	private static final class DefaultExecutor {
+		private static final ExecutorService INSTANCE = new ThreadPoolBuilder(new ThreadBuilder().setName("AsyncCollection-%d").setDaemon(true))
+				.setType(ThreadPoolBuilder.PoolType.FIXED)
+				.setParallelism(DEFAULT_THREADS)
+				.buildAsService();
+		private static final Semaphore IN_FLIGHT = new Semaphore(DEFAULT_MAX_IN_FLIGHT); // The limit protects the executor, not a collection
+
+		private DefaultExecutor() {
+		}
+	}
+}
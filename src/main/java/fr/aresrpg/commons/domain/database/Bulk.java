@@ -0,0 +1,245 @@
+package fr.aresrpg.commons.domain.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A list of writes sent to a {@link Collection} at once.<br>
+ * The writes are executed in the order they were added, an ordered bulk stops at the first failed write while an unordered one lets the database execute them in any order and
+ * continues after a failure
+ * 
+ * <pre>
+ * collection.bulk().put(player).putOrUpdate(Filter.eq("name", "storm"), other).remove(Filter.eq("banned", true)).execute();
+ * </pre>
+ * 
+ * @param <T>
+ *            the type of the collection
+ */
+public class Bulk<T> {
+	/**
+	 * The type of a write
+	 */
+	public enum Type {
+		PUT,
+		UPDATE,
+		PUT_OR_UPDATE,
+		UPDATE_ALL,
+		PUT_OR_UPDATE_ALL,
+		REMOVE,
+		REMOVE_ALL
+	}
+
+	private final Collection<T> collection;
+	private final List<Write<T>> writes = new ArrayList<>();
+	private boolean ordered = true;
+
+	/**
+	 * Create a new empty bulk
+	 * 
+	 * @param collection
+	 *            the collection executing the bulk
+	 */
+	public Bulk(Collection<T> collection) {
+		this.collection = collection;
+	}
+
+	/**
+	 * Set if the writes must be executed in order, true by default
+	 * 
+	 * @param ordered
+	 *            false to let the database execute the writes in any order and continue after a failure
+	 * @return this bulk
+	 */
+	public Bulk<T> setOrdered(boolean ordered) {
+		this.ordered = ordered;
+		return this;
+	}
+
+	/**
+	 * Add a write doing a {@link Collection#put(Object)}
+	 * 
+	 * @param value
+	 *            the value
+	 * @return this bulk
+	 */
+	public Bulk<T> put(T value) {
+		return add(Type.PUT, null, value);
+	}
+
+	/**
+	 * Add a write doing a {@link Collection#put(Object)} for each value
+	 * 
+	 * @param values
+	 *            the values
+	 * @return this bulk
+	 */
+	public Bulk<T> putAll(Iterable<? extends T> values) {
+		for (T value : values)
+			add(Type.PUT, null, value);
+		return this;
+	}
+
+	/**
+	 * Add a write doing a {@link Collection#update(Filter, Object)}
+	 * 
+	 * @param filter
+	 *            the filter to find the value
+	 * @param value
+	 *            the new value
+	 * @return this bulk
+	 */
+	public Bulk<T> update(Filter filter, T value) {
+		return add(Type.UPDATE, filter, value);
+	}
+
+	/**
+	 * Add a write doing a {@link Collection#putOrUpdate(Filter, Object)}
+	 * 
+	 * @param filter
+	 *            the filter to find the value
+	 * @param value
+	 *            the new value
+	 * @return this bulk
+	 */
+	public Bulk<T> putOrUpdate(Filter filter, T value) {
+		return add(Type.PUT_OR_UPDATE, filter, value);
+	}
+
+	/**
+	 * Add a write doing a {@link Collection#updateAll(Filter, Object)}
+	 * 
+	 * @param filter
+	 *            the filter to find the values
+	 * @param value
+	 *            the new value
+	 * @return this bulk
+	 */
+	public Bulk<T> updateAll(Filter filter, T value) {
+		return add(Type.UPDATE_ALL, filter, value);
+	}
+
+	/**
+	 * Add a write doing a {@link Collection#putOrUpdateAll(Filter, Object)}
+	 * 
+	 * @param filter
+	 *            the filter to find the values
+	 * @param value
+	 *            the new value
+	 * @return this bulk
+	 */
+	public Bulk<T> putOrUpdateAll(Filter filter, T value) {
+		return add(Type.PUT_OR_UPDATE_ALL, filter, value);
+	}
+
+	/**
+	 * Add a write removing the first value matching the filter
+	 * 
+	 * @param filter
+	 *            the filter to find the value
+	 * @return this bulk
+	 */
+	public Bulk<T> remove(Filter filter) {
+		return add(Type.REMOVE, filter, null);
+	}
+
+	/**
+	 * Add a write removing all the values matching the filter
+	 * 
+	 * @param filter
+	 *            the filter to find the values
+	 * @return this bulk
+	 */
+	public Bulk<T> removeAll(Filter filter) {
+		return add(Type.REMOVE_ALL, filter, null);
+	}
+
+	private Bulk<T> add(Type type, Filter filter, T value) {
+		writes.add(new Write<>(type, filter, value));
+		return this;
+	}
+
+	/**
+	 * Get if the writes must be executed in order
+	 * 
+	 * @return true if the bulk is ordered
+	 */
+	public boolean isOrdered() {
+		return ordered;
+	}
+
+	/**
+	 * Get the writes of this bulk
+	 * 
+	 * @return the writes in the order they were added
+	 */
+	public List<Write<T>> getWrites() {
+		return Collections.unmodifiableList(writes);
+	}
+
+	/**
+	 * Get if this bulk has no write
+	 * 
+	 * @return true if there is no write
+	 */
+	public boolean isEmpty() {
+		return writes.isEmpty();
+	}
+
+	/**
+	 * Execute the writes with {@link Collection#write(Bulk)} and clear this bulk so it can be filled again
+	 */
+	public void execute() {
+		if (writes.isEmpty()) return;
+		try {
+			collection.write(this);
+		} finally {
+			writes.clear();
+		}
+	}
+
+	/**
+	 * A write of a bulk
+	 * 
+	 * @param <T>
+	 *            the type of the collection
+	 */
+	public static final class Write<T> {
+		private final Type type;
+		private final Filter filter;
+		private final T value;
+
+		private Write(Type type, Filter filter, T value) {
+			this.type = type;
+			this.filter = filter;
+			this.value = value;
+		}
+
+		/**
+		 * Get the type of this write
+		 * 
+		 * @return the type
+		 */
+		public Type getType() {
+			return type;
+		}
+
+		/**
+		 * Get the filter of this write
+		 * 
+		 * @return the filter or null for a {@link Type#PUT}
+		 */
+		public Filter getFilter() {
+			return filter;
+		}
+
+		/**
+		 * Get the value of this write
+		 * 
+		 * @return the value or null for a {@link Type#REMOVE} or a {@link Type#REMOVE_ALL}
+		 */
+		public T getValue() {
+			return value;
+		}
+	}
+}
@@ -2,6 +2,9 @@ package fr.aresrpg.commons.domain.database;
 
 import fr.aresrpg.commons.domain.Value;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 /**
  * Represent a database collection
  * 
@@ -17,6 +20,79 @@ public interface Collection<T> extends Value<T> {
 	 */
 	void put(T value);
 
+	/**
+	 * Put the values in the collection, by default the values are put one by one
+	 * 
+	 * @param values
+	 *            the values
+	 */
+	default void putAll(Iterable<? extends T> values) {
+		for (T value : values)
+			put(value);
+	}
+
+	/**
+	 * Create a new bulk to send several writes at once
+	 * 
+	 * @return the bulk
+	 */
+	default Bulk<T> bulk() {
+		return new Bulk<>(this);
+	}
+
+	/**
+	 * Execute the writes of the bulk, by default the writes are executed one by one in order.<br>
+	 * An ordered bulk stops at the first failed write, an unordered one executes all the writes and then throws the first failure with the others suppressed
+	 * 
+	 * @param bulk
+	 *            the bulk
+	 */
+	default void write(Bulk<T> bulk) {
+		RuntimeException failure = null;
+		for (Bulk.Write<T> write : bulk.getWrites())
+			try {
+				switch (write.getType()) {
+					case PUT:
+						put(write.getValue());
+						break;
+					case UPDATE:
+						update(write.getFilter(), write.getValue());
+						break;
+					case PUT_OR_UPDATE:
+						putOrUpdate(write.getFilter(), write.getValue());
+						break;
+					case UPDATE_ALL:
+						updateAll(write.getFilter(), write.getValue());
+						break;
+					case PUT_OR_UPDATE_ALL:
+						putOrUpdateAll(write.getFilter(), write.getValue());
+						break;
+					case REMOVE:
+						remove(write.getFilter(), 1);
+						break;
+					case REMOVE_ALL:
+						remove(write.getFilter(), Integer.MAX_VALUE);
+						break;
+					default:
+						throw new IllegalStateException("Unknown write : " + write.getType());
+				}
+			} catch (RuntimeException e) {
+				if (bulk.isOrdered()) throw e;
+				if (failure == null) failure = e;
+				else failure.addSuppressed(e);
+			}
+		if (failure != null) throw failure;
+	}
+
+	/**
+	 * Get an asynchronous view of this collection, by default it runs on the shared executor and limit of {@link AsyncCollection}
+	 * 
+	 * @return the asynchronous view
+	 */
+	default AsyncCollection<T> async() {
+		return new AsyncCollection<>(this);
+	}
+
 	/**
 	 * Update the value in the collection
 	 * 
@@ -69,7 +145,79 @@ public interface Collection<T> extends Value<T> {
 	T[] find(Filter filter, int max);
 
 	/**
-	 * Find the values in the collection and sort them
+	 * Find the values in the collection and only read the projected fields, by default all the fields are read
+	 * 
+	 * @param filter
+	 *            the filter to use
+	 * @param projection
+	 *            the fields to read
+	 * @param max
+	 *            the maximum of value to get
+	 * @return the values found
+	 */
+	default T[] find(Filter filter, Projection projection, int max) {
+		return find(filter, max);
+	}
+
+	/**
+	 * Find the first value corresponding to the filter and only read the projected fields
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param projection
+	 *            the fields to read
+	 * @return the value or null if there is no value corresponding to the filter
+	 */
+	default T findFirst(Filter filter, Projection projection) {
+		T[] found = find(filter, projection, 1);
+		return found != null && found.length >= 1 ? found[0] : null;
+	}
+
+	/**
+	 * Find the values in the collection lazily and only read the projected fields, by default all the fields are read
+	 * 
+	 * @param filter
+	 *            the filter to use or null for all the values
+	 * @param projection
+	 *            the fields to read
+	 * @param batchSize
+	 *            the number of values read from the database at once or 0 for the default of the database
+	 * @return the cursor over the values found
+	 */
+	default Cursor<T> cursor(Filter filter, Projection projection, int batchSize) {
+		return cursor(filter, batchSize);
+	}
+
+	/**
+	 * Find the values in the collection lazily.<br>
+	 * By default all the values are read by the {@link #iterator()} of the collection, and the filtered values are all read by {@link #find(Filter, int)} limited to the
+	 * {@link #count()} of the collection before being returned
+	 * 
+	 * @param filter
+	 *            the filter to use or null for all the values
+	 * @param batchSize
+	 *            the number of values read from the database at once or 0 for the default of the database
+	 * @return the cursor over the values found
+	 */
+	default Cursor<T> cursor(Filter filter, int batchSize) {
+		if (filter == null) return Cursor.of(iterator());
+		T[] found = find(filter, (int) Math.min(count(), Integer.MAX_VALUE)); // Never more values than the collection holds
+		return Cursor.of(found == null ? Collections.<T> emptyIterator() : Arrays.asList(found).iterator());
+	}
+
+	/**
+	 * Find the values in the collection lazily with the default batch size of the database
+	 * 
+	 * @param filter
+	 *            the filter to use or null for all the values
+	 * @return the cursor over the values found
+	 */
+	default Cursor<T> cursor(Filter filter) {
+		return cursor(filter, 0);
+	}
+
+	/**
+	 * Find the values in the collection and sort them by ascending field, use a {@link #query(Query)} for more control
 	 * 
 	 * @param fieldname
 	 *            the field name
@@ -79,6 +227,23 @@ public interface Collection<T> extends Value<T> {
 	 */
 	T[] sorted(String fieldname, int max);
 
+	/**
+	 * Find a page of values with a filter, a sort on several fields and a limit.<br>
+	 * By default all the values matching the filter are read by {@link #cursor(Filter, Projection, int)} and sorted in memory on the fields of the values, the null values
+	 * first
+	 * 
+	 * @param query
+	 *            the query
+	 * @return the page of values
+	 * @throws IllegalArgumentException
+	 *             if the continuation was not created by a query with the same sort fields
+	 * @throws IllegalStateException
+	 *             if a sort field is missing from the values or its values are not comparable
+	 */
+	default Page<T> query(Query query) {
+		return Queries.query(this, query);
+	}
+
 	/**
 	 * Find the first value corresponding to the filter
 	 * 
@@ -0,0 +1,67 @@
+package fr.aresrpg.commons.domain.database;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The values found in a {@link Collection}, read lazily from the database by batches.<br>
+ * A cursor holds resources on the database until it is exhausted or closed, use it in a try-with-resources block when it may not be read until the end
+ * 
+ * <pre>
+ * try (Stream&lt;Player&gt; players = collection.cursor(Filter.eq("online", true)).stream()) {
+ * 	players.forEach(Player::save);
+ * }
+ * </pre>
+ * 
+ * @param <T>
+ *            the type of the values
+ */
+public interface Cursor<T> extends Iterator<T>, Closeable {
+
+	/**
+	 * Release the resources of this cursor, it has no effect on an exhausted or closed cursor
+	 */
+	@Override
+	void close();
+
+	/**
+	 * Get a sequential stream of the remaining values, closing the stream closes this cursor
+	 * 
+	 * @return the stream
+	 */
+	default Stream<T> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+	}
+
+	/**
+	 * Create a cursor over values already read
+	 * 
+	 * @param iterator
+	 *            the values
+	 * @param <T>
+	 *            the type of the values
+	 * @return the cursor
+	 */
+	static <T> Cursor<T> of(Iterator<T> iterator) {
+		return new Cursor<T>() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public T next() {
+				return iterator.next();
+			}
+
+			@Override
+			public void close() {
+				// Nothing is held on the database
+			}
+		};
+	}
+}
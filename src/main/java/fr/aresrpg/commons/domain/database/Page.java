@@ -0,0 +1,68 @@
+package fr.aresrpg.commons.domain.database;
+
+import fr.aresrpg.commons.domain.Value;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The values found by a {@link Query}
+ * 
+ * @param <T>
+ *            the type of the values
+ */
+public class Page<T> implements Value<T> {
+	private final List<T> values;
+	private final String continuation;
+
+	/**
+	 * Create a new page
+	 * 
+	 * @param values
+	 *            the values of the page
+	 * @param continuation
+	 *            the continuation of the next page or null if this page is the last one
+	 */
+	public Page(List<T> values, String continuation) {
+		this.values = Collections.unmodifiableList(values);
+		this.continuation = continuation;
+	}
+
+	/**
+	 * Get the values of this page
+	 * 
+	 * @return the values in the order of the query
+	 */
+	public List<T> getValues() {
+		return values;
+	}
+
+	/**
+	 * Get the continuation to pass to {@link Query#setContinuation(String)} to read the next page
+	 * 
+	 * @return the continuation or null if this page is the last one
+	 */
+	public String getContinuation() {
+		return continuation;
+	}
+
+	/**
+	 * Get if there are values after this page
+	 * 
+	 * @return true if there is a next page
+	 */
+	public boolean hasNext() {
+		return continuation != null;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return values.isEmpty();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return values.iterator();
+	}
+}
@@ -0,0 +1,68 @@
+package fr.aresrpg.commons.domain.database;
+
+/**
+ * The fields read from the database by a find, the fields left out keep the default value of their type
+ */
+public class Projection {
+	public enum Type {
+		INCLUDE,
+		EXCLUDE
+	}
+
+	private final Type type;
+	private final String[] fields;
+
+	private Projection(Type type, String[] fields) {
+		if (fields.length == 0) throw new IllegalArgumentException("A projection needs at least one field");
+		this.type = type;
+		this.fields = fields;
+	}
+
+	/**
+	 * Get the type of this projection
+	 * 
+	 * @return the type
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Get the fields of this projection
+	 * 
+	 * @return the fields
+	 */
+	public String[] getFields() {
+		return fields.clone();
+	}
+
+	/**
+	 * Only read the given fields
+	 * 
+	 * <pre>
+	 * collection.find(Filter.eq("name", "ororo munroe"), Projection.include("name", "level"), 1);
+	 * </pre>
+	 * 
+	 * @param fields
+	 *            the names of the fields to read
+	 * @return the created projection
+	 */
+	public static Projection include(String... fields) {
+		return new Projection(Type.INCLUDE, fields.clone());
+	}
+
+	/**
+	 * Read all the fields except the given ones
+	 * 
+	 * <pre>
+	 * collection.find(Filter.eq("name", "ororo munroe"), Projection.exclude("inventory"), 1);
+	 * </pre>
+	 * 
+	 * @param fields
+	 *            the names of the fields to skip
+	 * @return the created projection
+	 */
+	public static Projection exclude(String... fields) {
+		return new Projection(Type.EXCLUDE, fields.clone());
+	}
+}
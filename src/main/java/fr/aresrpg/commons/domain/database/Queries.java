@@ -0,0 +1,226 @@
+package fr.aresrpg.commons.domain.database;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * The default {@link Collection#query(Query)}, the values matching the filter are read by a {@link Cursor} and sorted in memory.<br>
+ * The continuation holds the sort values of the last value and the number of values sharing them already returned, so the values equal on all the sort fields are
+ * neither skipped nor repeated. The null values are sorted before the others and the sort values must be strings, characters, booleans, numbers or dates
+ */
+final class Queries {
+	private static final byte NULL = 0;
+	private static final byte STRING = 1;
+	private static final byte CHARACTER = 2;
+	private static final byte BOOLEAN = 3;
+	private static final byte BYTE = 4;
+	private static final byte SHORT = 5;
+	private static final byte INTEGER = 6;
+	private static final byte LONG = 7;
+	private static final byte FLOAT = 8;
+	private static final byte DOUBLE = 9;
+	private static final byte DATE = 10;
+
+	private Queries() {
+	}
+
+	static <T> Page<T> query(Collection<T> collection, Query query) {
+		List<Query.Order> orders = query.getOrders();
+		FieldReader reader = new FieldReader(orders);
+		Comparator<Object[]> comparator = comparator(orders);
+		List<T> values = new ArrayList<>();
+		try (Cursor<T> cursor = collection.cursor(query.getFilter(), query.getProjection(), 0)) {
+			while (cursor.hasNext())
+				values.add(cursor.next());
+		}
+		List<Object[]> keys = new ArrayList<>(values.size());
+		for (T value : values)
+			keys.add(reader.read(value));
+		Integer[] order = new Integer[values.size()];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, (a, b) -> comparator.compare(keys.get(a), keys.get(b))); // Stable, the values equal on all the sort fields keep the order of the cursor
+		int start = 0;
+		if (query.getContinuation() != null) {
+			Continuation after = decode(query.getContinuation(), orders.size());
+			while (start < order.length && comparator.compare(keys.get(order[start]), after.keys) < 0)
+				start++;
+			for (int skipped = 0; skipped < after.ties && start < order.length && comparator.compare(keys.get(order[start]), after.keys) == 0; skipped++)
+				start++;
+		}
+		int end = (int) Math.min((long) start + query.getLimit(), order.length);
+		List<T> page = new ArrayList<>(end - start);
+		for (int i = start; i < end; i++)
+			page.add(values.get(order[i]));
+		if (end == order.length) return new Page<>(page, null);
+		Object[] last = keys.get(order[end - 1]);
+		int ties = 1;
+		while (end - 1 - ties >= 0 && comparator.compare(keys.get(order[end - 1 - ties]), last) == 0)
+			ties++;
+		return new Page<>(page, encode(last, ties));
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Comparator<Object[]> comparator(List<Query.Order> orders) {
+		boolean[] descending = new boolean[orders.size()];
+		for (int i = 0; i < descending.length; i++)
+			descending[i] = orders.get(i).getDirection() == Query.Direction.DESCENDING;
+		return (a, b) -> {
+			for (int i = 0; i < descending.length; i++) {
+				int result;
+				if (a[i] == null || b[i] == null) result = a[i] == null ? b[i] == null ? 0 : -1 : 1;
+				else result = ((Comparable) a[i]).compareTo(b[i]);
+				if (result != 0) return descending[i] ? -result : result;
+			}
+			return 0;
+		};
+	}
+
+	static String encode(Object[] keys, int ties) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(ties);
+			out.writeInt(keys.length);
+			for (Object key : keys)
+				write(out, key);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+	}
+
+	private static void write(DataOutputStream out, Object key) throws IOException {
+		if (key == null) out.writeByte(NULL);
+		else if (key instanceof String) {
+			out.writeByte(STRING);
+			out.writeUTF((String) key);
+		} else if (key instanceof Character) {
+			out.writeByte(CHARACTER);
+			out.writeChar((Character) key);
+		} else if (key instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) key);
+		} else if (key instanceof Byte) {
+			out.writeByte(BYTE);
+			out.writeByte((Byte) key);
+		} else if (key instanceof Short) {
+			out.writeByte(SHORT);
+			out.writeShort((Short) key);
+		} else if (key instanceof Integer) {
+			out.writeByte(INTEGER);
+			out.writeInt((Integer) key);
+		} else if (key instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) key);
+		} else if (key instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat((Float) key);
+		} else if (key instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) key);
+		} else if (key instanceof Date) {
+			out.writeByte(DATE);
+			out.writeLong(((Date) key).getTime());
+		} else throw new IllegalStateException("Unsupported sort value : " + key.getClass().getName());
+	}
+
+	static Continuation decode(String continuation, int size) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(continuation)))) {
+			int ties = in.readInt();
+			if (ties > 0 && in.readInt() == size) {
+				Object[] keys = new Object[size];
+				for (int i = 0; i < size; i++)
+					keys[i] = read(in);
+				if (in.read() == -1) return new Continuation(keys, ties);
+			}
+		} catch (IOException | RuntimeException e) { // NOSONAR reported below
+		}
+		throw new IllegalArgumentException("Invalid continuation : " + continuation);
+	}
+
+	private static Object read(DataInputStream in) throws IOException {
+		switch (in.readByte()) {
+			case NULL:
+				return null;
+			case STRING:
+				return in.readUTF();
+			case CHARACTER:
+				return in.readChar();
+			case BOOLEAN:
+				return in.readBoolean();
+			case BYTE:
+				return in.readByte();
+			case SHORT:
+				return in.readShort();
+			case INTEGER:
+				return in.readInt();
+			case LONG:
+				return in.readLong();
+			case FLOAT:
+				return in.readFloat();
+			case DOUBLE:
+				return in.readDouble();
+			case DATE:
+				return new Date(in.readLong());
+			default:
+				throw new IOException("Unknown sort value");
+		}
+	}
+
+	static final class Continuation {
+		private final Object[] keys;
+		private final int ties;
+
+		private Continuation(Object[] keys, int ties) {
+			this.keys = keys;
+			this.ties = ties;
+		}
+	}
+
+	/**
+	 * Read the sort fields of the values by reflection, a field path can go through the fields of the nested objects with dots
+	 */
+	private static final class FieldReader {
+		private final String[][] paths;
+		private final Map<Class<?>, Map<String, Field>> fields = new HashMap<>();
+
+		private FieldReader(List<Query.Order> orders) {
+			this.paths = new String[orders.size()][];
+			for (int i = 0; i < paths.length; i++)
+				paths[i] = orders.get(i).getField().split("\\.");
+		}
+
+		private Object[] read(Object value) {
+			Object[] keys = new Object[paths.length];
+			for (int i = 0; i < paths.length; i++) {
+				Object key = value;
+				for (int j = 0; j < paths[i].length && key != null; j++)
+					key = get(key, paths[i][j]);
+				if (key != null && !(key instanceof Comparable)) throw new IllegalStateException("The sort field " + String.join(".", paths[i]) + " is not comparable");
+				keys[i] = key;
+			}
+			return keys;
+		}
+
+		private Object get(Object value, String name) {
+			Field field = fields.computeIfAbsent(value.getClass(), k -> new HashMap<>()).computeIfAbsent(name, n -> find(value.getClass(), n));
+			try {
+				return field.get(value);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException("Unable to read the sort field " + name, e);
+			}
+		}
+
+		private static Field find(Class<?> clazz, String name) {
+			for (Class<?> c = clazz; c != null; c = c.getSuperclass())
+				try {
+					Field field = c.getDeclaredField(name);
+					field.setAccessible(true);
+					return field;
+				} catch (NoSuchFieldException e) { // NOSONAR look in the superclass
+				}
+			throw new IllegalStateException("Unknown sort field " + name + " in " + clazz.getName());
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package fr.aresrpg.commons.domain.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A find with a filter, a sort on several fields and a limit, returning the values by {@link Page pages}.<br>
+ * The next page is found from the sort values of the last value of the current page carried by its {@link Page#getContinuation() continuation}, so the database never skips
+ * the values of the previous pages. The sort fields should exist in all the values
+ * 
+ * <pre>
+ * Query query = new Query().setFilter(Filter.eq("season", 3)).addSort("score", Query.Direction.DESCENDING).setLimit(20);
+ * Page&lt;Player&gt; first = collection.query(query);
+ * Page&lt;Player&gt; second = collection.query(query.setContinuation(first.getContinuation()));
+ * </pre>
+ */
+public class Query {
+	public enum Direction {
+		ASCENDING,
+		DESCENDING
+	}
+
+	private final List<Order> orders = new ArrayList<>();
+	private Filter filter;
+	private Projection projection;
+	private int limit = 100;
+	private String continuation;
+
+	/**
+	 * Set the filter of the values
+	 * 
+	 * @param filter
+	 *            the filter or null for all the values
+	 * @return this query
+	 */
+	public Query setFilter(Filter filter) {
+		this.filter = filter;
+		return this;
+	}
+
+	/**
+	 * Set the fields read from the database
+	 * 
+	 * @param projection
+	 *            the projection or null for all the fields
+	 * @return this query
+	 */
+	public Query setProjection(Projection projection) {
+		this.projection = projection;
+		return this;
+	}
+
+	/**
+	 * Sort the values on the field, the values equal on the previous sort fields are sorted by this one
+	 * 
+	 * @param field
+	 *            the name of the field
+	 * @param direction
+	 *            the direction of the sort
+	 * @return this query
+	 */
+	public Query addSort(String field, Direction direction) {
+		orders.add(new Order(field, direction));
+		return this;
+	}
+
+	/**
+	 * Set the max number of values of a page
+	 * 
+	 * @param limit
+	 *            the max number of values, 100 by default
+	 * @return this query
+	 */
+	public Query setLimit(int limit) {
+		if (limit <= 0) throw new IllegalArgumentException("Invalid limit : " + limit);
+		this.limit = limit;
+		return this;
+	}
+
+	/**
+	 * Set the page to read
+	 * 
+	 * @param continuation
+	 *            the {@link Page#getContinuation() continuation} of the previous page or null for the first page
+	 * @return this query
+	 */
+	public Query setContinuation(String continuation) {
+		this.continuation = continuation;
+		return this;
+	}
+
+	/**
+	 * Get the filter of the values
+	 * 
+	 * @return the filter or null
+	 */
+	public Filter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Get the fields read from the database
+	 * 
+	 * @return the projection or null
+	 */
+	public Projection getProjection() {
+		return projection;
+	}
+
+	/**
+	 * Get the sort fields
+	 * 
+	 * @return the sort fields in the order they were added
+	 */
+	public List<Order> getOrders() {
+		return Collections.unmodifiableList(orders);
+	}
+
+	/**
+	 * Get the max number of values of a page
+	 * 
+	 * @return the limit
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Get the page to read
+	 * 
+	 * @return the continuation or null for the first page
+	 */
+	public String getContinuation() {
+		return continuation;
+	}
+
+	/**
+	 * A sort field of a query
+	 */
+	public static final class Order {
+		private final String field;
+		private final Direction direction;
+
+		private Order(String field, Direction direction) {
+			this.field = field;
+			this.direction = direction;
+		}
+
+		/**
+		 * Get the name of the field
+		 * 
+		 * @return the field
+		 */
+		public String getField() {
+			return field;
+		}
+
+		/**
+		 * Get the direction of the sort
+		 * 
+		 * @return the direction
+		 */
+		public Direction getDirection() {
+			return direction;
+		}
+	}
+}
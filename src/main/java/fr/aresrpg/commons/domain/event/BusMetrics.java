@@ -0,0 +1,88 @@
+package fr.aresrpg.commons.domain.event;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of the asynchronous dispatch of an {@link EventBus}, collected when its metrics are {@link EventBus#setMetricsEnabled(boolean) enabled}
+ */
+public class BusMetrics {
+	private final LongAdder queued = new LongAdder();
+	private final LongAdder dispatched = new LongAdder();
+	private final LongAdder totalLagNanos = new LongAdder();
+	private final LongAccumulator maxLagNanos = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Record an event submitted to the {@link EventBus#EXECUTOR}
+	 */
+	public void enqueued() {
+		queued.increment();
+	}
+
+	/**
+	 * Record an event taken by an executor thread
+	 * 
+	 * @param lagNanos
+	 *            the time between the submission and the dispatch in nanoseconds
+	 */
+	public void dequeued(long lagNanos) {
+		queued.decrement();
+		dispatched.increment();
+		totalLagNanos.add(lagNanos);
+		maxLagNanos.accumulate(lagNanos);
+	}
+
+	/**
+	 * Get the number of asynchronous events waiting to be dispatched
+	 * 
+	 * @return the queue depth
+	 */
+	public long getQueueDepth() {
+		return queued.sum();
+	}
+
+	/**
+	 * Get the number of asynchronous events dispatched
+	 * 
+	 * @return the number of dispatched events
+	 */
+	public long getDispatched() {
+		return dispatched.sum();
+	}
+
+	/**
+	 * Get the mean time between the submission and the dispatch of an asynchronous event in nanoseconds
+	 * 
+	 * @return the mean dispatch lag or 0 if no event has been dispatched
+	 */
+	public double getMeanLagNanos() {
+		long count = dispatched.sum();
+		return count == 0 ? 0 : (double) totalLagNanos.sum() / count;
+	}
+
+	/**
+	 * Get the longest time between the submission and the dispatch of an asynchronous event
+	 * 
+	 * @param unit
+	 *            the unit of the result
+	 * @return the max dispatch lag
+	 */
+	public long getMaxLag(TimeUnit unit) {
+		return unit.convert(maxLagNanos.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Reset the metrics, except the queue depth which is a gauge
+	 */
+	public void reset() {
+		dispatched.reset();
+		totalLagNanos.reset();
+		maxLagNanos.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "BusMetrics[queued=" + getQueueDepth() + ", dispatched=" + getDispatched() + ", maxLag=" + getMaxLag(TimeUnit.MICROSECONDS) + "us]";
+	}
+}
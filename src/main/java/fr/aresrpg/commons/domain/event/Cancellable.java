@@ -0,0 +1,29 @@
+package fr.aresrpg.commons.domain.event;
+
+/**
+ * An {@link Event} that can be cancelled by one of its subscribers.<br>
+ * Subscribers registered with {@link Subscribe#ignoreCancelled()} are skipped once the event is cancelled
+ */
+public interface Cancellable {
+	/**
+	 * Get if this event has been cancelled
+	 * 
+	 * @return true if the event is cancelled
+	 */
+	boolean isCancelled();
+
+	/**
+	 * Set the cancelled state of this event
+	 * 
+	 * @param cancelled
+	 *            true to cancel the event
+	 */
+	void setCancelled(boolean cancelled);
+
+	/**
+	 * Cancel this event
+	 */
+	default void cancel() {
+		setCancelled(true);
+	}
+}
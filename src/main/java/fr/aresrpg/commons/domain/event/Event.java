@@ -1,7 +1,5 @@
 package fr.aresrpg.commons.domain.event;
 
-import fr.aresrpg.commons.domain.concurrent.Threads;
-
 /**
  * A event that can be sent in a {@link EventBus}
  * 
@@ -23,12 +21,12 @@ public interface Event<T extends Event<T>> {
 	boolean isAsynchronous();
 
 	/**
-	 * Send this event to his bus
+	 * Send this event to his bus and to the buses of its super types
 	 */
 	@SuppressWarnings("unchecked")
 	default void send() {
-		if (getBus().subscribersSize() != 0) {
-			if (isAsynchronous()) EventBus.EXECUTOR.execute(Threads.threadContextSwitch("Event::" + getClass().getSimpleName(), () -> getBus().send((T) this)));
+		if (getBus().hasSubscribers()) {
+			if (isAsynchronous()) getBus().sendAsync((T) this);
 			else getBus().send((T) this);
 		}
 	}
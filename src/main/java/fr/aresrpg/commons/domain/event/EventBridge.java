@@ -0,0 +1,381 @@
+package fr.aresrpg.commons.domain.event;
+
+import fr.aresrpg.commons.domain.concurrent.ThreadBuilder;
+import fr.aresrpg.commons.domain.io.ByteBufferInputStream;
+import fr.aresrpg.commons.domain.io.ByteBufferOutputStream;
+import fr.aresrpg.commons.domain.io.IO;
+import fr.aresrpg.commons.domain.log.Logger;
+import fr.aresrpg.commons.domain.serialization.Format;
+import fr.aresrpg.commons.domain.serialization.Serializer;
+import fr.aresrpg.commons.domain.serialization.factory.SerializationFactory;
+import fr.aresrpg.commons.domain.util.Pair;
+
+import java.io.*;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * A bridge forwarding the events of some buses to a peer process which re-emits them on its own buses.<br>
+ * The events are queued by the sending thread and serialized by a writer thread which coalesces all the queued events in one write.
+ * When the queue is full the sending threads block until the writer catches up, so a slow peer slows down the producers instead of exhausting the memory. The events sent by the
+ * subscribers of the re-emitted events run on the reader thread, which never blocks as the peer may itself be blocked until it reads, they are dropped when the queue is full
+ * and counted in {@link #getDropped()}.<br>
+ * Each frame is written as {@code [int length][int type][payload]}, the type ids are declared to the peer the first time an event type is sent on a forwarded bus.
+ * The peer only re-emits the events of the buses it {@link #receive(EventBus) accepts}, the subclasses of the owner of a forwarded bus are re-emitted on the accepted bus
+ * 
+ * <pre>
+ * // Shard A
+ * EventBridge bridge = EventBridge.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), 4242), factory, BinaryFormat.INSTANCE);
+ * bridge.forward(PlayerMoveEvent.BUS, null);
+ * // Shard B
+ * EventBridge bridge = EventBridge.accept(server, factory, BinaryFormat.INSTANCE);
+ * bridge.receive(PlayerMoveEvent.BUS);
+ * </pre>
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class EventBridge implements Closeable {
+	/**
+	 * The default number of events queued before blocking the senders
+	 */
+	public static final int DEFAULT_QUEUE_SIZE = 16 * 1024;
+	/**
+	 * The default size of the read and write buffers, they grow when a frame doesn't fit
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	private static final int HEADER_SIZE = Integer.BYTES * 2;
+	private static final int DECLARE = -1;
+	private static final String LOG_CHANNEL = "EventBridge";
+
+	private final SocketChannel channel;
+	private final SerializationFactory factory;
+	private final Format<InputStream, OutputStream> format;
+	private final BlockingQueue<Pair<Class<?>, Object>> queue;
+	private final Map<String, EventBus> receivable = new ConcurrentHashMap<>();
+	private final List<Pair<EventBus, Subscriber>> forwarded = new CopyOnWriteArrayList<>();
+	private final ThreadLocal<Object> receiving = new ThreadLocal<>(); // The event being re-emitted, only this instance is not forwarded back
+	private final Map<Class<?>, Map<Class<?>, Type>> sentTypes = new HashMap<>(); // Writer thread only, by bus owner then event class
+	private final Map<Integer, Type> receivedTypes = new HashMap<>(); // Reader thread only
+	private final LongAdder dropped = new LongAdder();
+	private int nextType; // Writer thread only
+	private final Thread writer;
+	private final Thread reader;
+	private ByteBuffer output;
+	private OutputStream outputStream;
+	private volatile boolean closed;
+
+	/**
+	 * Create a bridge over a connected channel and start its threads
+	 * 
+	 * @param channel
+	 *            the channel connected to the peer
+	 * @param factory
+	 *            the factory of the event serializers
+	 * @param format
+	 *            the format of the events, must be the same on both sides
+	 * @param queueSize
+	 *            the number of events queued before blocking the senders
+	 * @throws IOException
+	 *             if the channel can't be configured
+	 */
+	public EventBridge(SocketChannel channel, SerializationFactory factory, Format<InputStream, OutputStream> format, int queueSize) throws IOException {
+		this.channel = channel;
+		this.factory = factory;
+		this.format = format;
+		this.queue = new ArrayBlockingQueue<>(queueSize);
+		this.output = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+		this.outputStream = new ByteBufferOutputStream(output);
+		channel.configureBlocking(true);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true); // Writes are already coalesced
+		this.writer = new ThreadBuilder().setName("EventBridge-Writer-%d").setDaemon(true).setRunnable(this::write).build();
+		this.reader = new ThreadBuilder().setName("EventBridge-Reader-%d").setDaemon(true).setRunnable(this::read).build();
+		writer.start();
+		reader.start();
+	}
+
+	/**
+	 * Connect a bridge to a peer
+	 * 
+	 * @param address
+	 *            the address of the peer, usually a loopback address
+	 * @param factory
+	 *            the factory of the event serializers
+	 * @param format
+	 *            the format of the events, must be the same on both sides
+	 * @return the bridge
+	 * @throws IOException
+	 *             if the connection failed
+	 */
+	public static EventBridge connect(SocketAddress address, SerializationFactory factory, Format<InputStream, OutputStream> format) throws IOException {
+		return new EventBridge(SocketChannel.open(address), factory, format, DEFAULT_QUEUE_SIZE);
+	}
+
+	/**
+	 * Accept a bridge from a peer
+	 * 
+	 * @param server
+	 *            the server channel
+	 * @param factory
+	 *            the factory of the event serializers
+	 * @param format
+	 *            the format of the events, must be the same on both sides
+	 * @return the bridge
+	 * @throws IOException
+	 *             if the connection failed
+	 */
+	public static EventBridge accept(ServerSocketChannel server, SerializationFactory factory, Format<InputStream, OutputStream> format) throws IOException {
+		return new EventBridge(server.accept(), factory, format, DEFAULT_QUEUE_SIZE);
+	}
+
+	/**
+	 * Forward the events of the bus accepted by the filter to the peer.<br>
+	 * The events re-emitted by this bridge are never forwarded back to the peer
+	 * 
+	 * @param bus
+	 *            the bus
+	 * @param filter
+	 *            the filter selecting the events to forward or null to forward all events
+	 * @param <E>
+	 *            the type of the events
+	 * @return the subscriber of the bridge
+	 */
+	public <E> Subscriber<E> forward(EventBus<E> bus, Predicate<? super E> filter) {
+		Class<?> owner = bus.getOwner();
+		Subscriber<E> subscriber = bus.subscribe(e -> enqueue(owner, e), Integer.MAX_VALUE, true, filter);
+		forwarded.add(new Pair<>(bus, subscriber));
+		return subscriber;
+	}
+
+	/**
+	 * Accept the events of the bus type sent by the peer and re-emit them on this bus
+	 * 
+	 * @param bus
+	 *            the bus
+	 */
+	public void receive(EventBus<?> bus) {
+		receivable.put(bus.getOwner().getName(), bus);
+	}
+
+	private void enqueue(Class<?> owner, Object event) {
+		if (closed || receiving.get() == event) return;
+		Pair<Class<?>, Object> queued = new Pair<>(owner, event);
+		if (Thread.currentThread() == reader) { // Blocking would stop reading the peer, which may be blocked writing to this side
+			if (!queue.offer(queued)) dropped.increment();
+			return;
+		}
+		try {
+			queue.put(queued);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void write() {
+		List<Pair<Class<?>, Object>> batch = new ArrayList<>();
+		try {
+			while (!closed) {
+				batch.add(queue.take());
+				queue.drainTo(batch);
+				for (Pair<Class<?>, Object> event : batch)
+					writeEvent(event.getFirst(), event.getSecond());
+				batch.clear();
+				flush();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException | RuntimeException e) {
+			if (!closed) Logger.MAIN_LOGGER.severe(LOG_CHANNEL, e, "Unable to write to the peer");
+		} finally {
+			closeQuietly();
+		}
+	}
+
+	private void writeEvent(Class<?> owner, Object event) throws IOException {
+		Map<Class<?>, Type> types = sentTypes.computeIfAbsent(owner, k -> new HashMap<>());
+		Type type = types.get(event.getClass());
+		if (type == null) {
+			type = new Type(nextType++, null, factory.createOrGetSerializer(event.getClass()));
+			types.put(event.getClass(), type);
+			writeFrame(DECLARE, type.id, new String[] { owner.getName(), event.getClass().getName() });
+		}
+		writeFrame(type.id, event, type.serializer);
+	}
+
+	private void writeFrame(int type, Object value, Object extra) throws IOException {
+		while (true) {
+			int start = output.position();
+			if (output.remaining() >= HEADER_SIZE) {
+				try {
+					output.position(start + HEADER_SIZE);
+					if (type == DECLARE) {
+						output.putInt((Integer) value);
+						for (String name : (String[]) extra) {
+							byte[] bytes = name.getBytes(IO.DEFAULT_CHARSET);
+							output.putInt(bytes.length);
+							output.put(bytes);
+						}
+					} else ((Serializer) extra).serialize(outputStream, value, format);
+					output.putInt(start, output.position() - start - Integer.BYTES);
+					output.putInt(start + Integer.BYTES, type);
+					return;
+				} catch (BufferOverflowException e) { // NOSONAR the buffer is full
+					output.position(start);
+				}
+			}
+			if (start == 0) { // The frame is larger than the buffer
+				output = ByteBuffer.allocate(output.capacity() * 2);
+				outputStream = new ByteBufferOutputStream(output);
+			} else flush();
+		}
+	}
+
+	private void flush() throws IOException {
+		output.flip();
+		while (output.hasRemaining())
+			channel.write(output);
+		output.clear();
+	}
+
+	private void read() {
+		ByteBuffer input = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+		try {
+			while (!closed && channel.read(input) >= 0) {
+				input.flip();
+				while (input.remaining() >= Integer.BYTES) {
+					int start = input.position();
+					int length = input.getInt(start);
+					if (input.remaining() < Integer.BYTES + length) break;
+					ByteBuffer frame = input.duplicate();
+					frame.limit(start + Integer.BYTES + length).position(start + HEADER_SIZE);
+					readFrame(input.getInt(start + Integer.BYTES), frame);
+					input.position(start + Integer.BYTES + length);
+				}
+				input.compact();
+				if (!input.hasRemaining()) { // The frame is larger than the buffer
+					input.flip();
+					input = ByteBuffer.allocate(input.capacity() * 2).put(input);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			if (!closed) Logger.MAIN_LOGGER.severe(LOG_CHANNEL, e, "Unable to read from the peer");
+		} finally {
+			closeQuietly();
+		}
+	}
+
+	private void readFrame(int type, ByteBuffer frame) throws IOException {
+		if (type == DECLARE) {
+			int id = frame.getInt();
+			EventBus bus = receivable.get(readString(frame));
+			Class<?> clazz = bus == null ? null : resolve(bus.getOwner(), readString(frame));
+			receivedTypes.put(id, clazz == null ? null : new Type(id, bus, factory.createOrGetSerializer(clazz)));
+			return;
+		}
+		Type received = receivedTypes.get(type);
+		if (received == null) return; // Not accepted by this side
+		Object event = received.serializer.deserialize(new ByteBufferInputStream(frame), format);
+		receiving.set(event);
+		try {
+			received.bus.send(event);
+		} catch (RuntimeException e) {
+			Logger.MAIN_LOGGER.severe(LOG_CHANNEL, e, "Unable to dispatch " + event);
+		} finally {
+			receiving.remove();
+		}
+	}
+
+	private static String readString(ByteBuffer frame) {
+		byte[] bytes = new byte[frame.getInt()];
+		frame.get(bytes);
+		return new String(bytes, IO.DEFAULT_CHARSET);
+	}
+
+	/**
+	 * Find the class of the events sent by the peer on a bus
+	 * 
+	 * @param owner
+	 *            the owner of the accepted bus
+	 * @param name
+	 *            the name of the class of the events
+	 * @return the class or null if it is not a subclass of the owner known by this side
+	 */
+	private static Class<?> resolve(Class<?> owner, String name) {
+		if (owner.getName().equals(name)) return owner;
+		try {
+			Class<?> clazz = Class.forName(name, false, owner.getClassLoader());
+			if (owner.isAssignableFrom(clazz)) return clazz;
+			Logger.MAIN_LOGGER.severe(LOG_CHANNEL, "The event " + name + " sent on the bus of " + owner.getName() + " is not a subclass of it");
+		} catch (ClassNotFoundException e) {
+			Logger.MAIN_LOGGER.severe(LOG_CHANNEL, e, "Unknown event " + name + " sent on the bus of " + owner.getName());
+		}
+		return null;
+	}
+
+	/**
+	 * Get the number of events waiting to be written
+	 * 
+	 * @return the queue depth
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Get the number of events sent from the reader thread and dropped because the queue was full
+	 * 
+	 * @return the number of dropped events
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Get if this bridge is closed, a bridge is closed when its peer disconnects
+	 * 
+	 * @return true if the bridge is closed
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (IOException e) {
+			Logger.MAIN_LOGGER.severe(LOG_CHANNEL, e, "Unable to close the bridge");
+		}
+	}
+
+	/**
+	 * Stop forwarding the events and close the connection, the queued events are discarded
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) return;
+		closed = true;
+		Events.unregister(forwarded);
+		forwarded.clear();
+		queue.clear();
+		writer.interrupt();
+		channel.close();
+	}
+
+	private static final class Type {
+		private final int id;
+		private final EventBus bus;
+		private final Serializer serializer;
+
+		private Type(int id, EventBus bus, Serializer serializer) {
+			this.id = id;
+			this.bus = bus;
+			this.serializer = serializer;
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package fr.aresrpg.commons.domain.event;
 
+import fr.aresrpg.commons.domain.concurrent.Threads;
 import fr.aresrpg.commons.domain.functional.consumer.BiConsumer;
 import fr.aresrpg.commons.domain.functional.consumer.Consumer;
 import fr.aresrpg.commons.domain.unsafe.UnsafeAccessor;
@@ -9,20 +10,30 @@ import java.lang.invoke.*;
 import java.lang.reflect.Method;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
- * A event bus that dispatch event to subscribers
+ * A event bus that dispatch event to subscribers.<br>
+ * The events are also dispatched to the subscribers of the buses of their super types, so a subscriber of a parent event receives all its children events
  * 
  * @author Duarte David {@literal <deltaduartedavid@gmail.com>}
  */
 @SuppressWarnings("rawtypes")
 public class EventBus<E> {
-	private static final Map<Class<?>, EventBus<?>> buses = new HashMap<>();
+	private static final Map<Class<?>, EventBus<?>> buses = new ConcurrentHashMap<>();
+	private static final Subscriber[] EMPTY = new Subscriber[0];
+	// Incremented each time a new bus is registered, the hierarchies of the buses are then walked again
+	private static final AtomicInteger GENERATION = new AtomicInteger();
 	public static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(40);
 	public static final Comparator<Subscriber> PRIORITY_COMPARATOR = (s1, s2) -> Integer.compare(s1.getPriority(), s2.getPriority());
 
-	private final PriorityBlockingQueue<Subscriber<E>> subscribers;
+	// Copy on write arrays sorted by priority, the dispatch only read them
+	private volatile Subscriber<E>[] subscribers;
+	private final Map<Object, Subscriber<E>[]> keyedSubscribers;
 	private final Class<E> owner;
+	private volatile Dispatch<E> dispatch;
+	private volatile BusMetrics metrics;
 
 	/**
 	 * Create a new event bus for the provided owner
@@ -30,21 +41,150 @@ public class EventBus<E> {
 	 * @param owner
 	 *            the owner of the bus
 	 */
+	@SuppressWarnings("unchecked")
 	public EventBus(Class<E> owner) {
-		registerBus(owner, this);
 		this.owner = owner;
-		this.subscribers = new PriorityBlockingQueue<>(11, PRIORITY_COMPARATOR);
+		this.subscribers = EMPTY;
+		this.keyedSubscribers = new ConcurrentHashMap<>();
+		registerBus(owner, this); // Last, the other threads can get the bus as soon as it is registered
 	}
 
 	/**
-	 * Send an object in this bus
+	 * Send an object in this bus and in the buses of its super types.<br>
+	 * The subscribers are called by priority, a {@link Keyed} event is only sent to the keyless subscribers and to the subscribers of its key
 	 * 
 	 * @param event
 	 *            the object to send
 	 */
 	public void send(E event) {
-		for (Subscriber<E> subscriber : subscribers)
-			subscriber.getConsumer().accept(event);
+		Dispatch<E> current = getDispatch();
+		Subscriber<E>[] global = current.subscribers;
+		Subscriber<E>[] keyed = null;
+		if (event instanceof Keyed) {
+			Object key = ((Keyed) event).getKey();
+			if (key != null) keyed = current.getKeyed(key);
+		}
+		Cancellable cancellable = event instanceof Cancellable ? (Cancellable) event : null;
+		if (keyed == null) {
+			for (Subscriber<E> subscriber : global)
+				dispatch(subscriber, event, cancellable);
+			return;
+		}
+		int i = 0;
+		int j = 0;
+		while (i < global.length || j < keyed.length) {
+			if (j == keyed.length || i < global.length && global[i].getPriority() <= keyed[j].getPriority()) dispatch(global[i++], event, cancellable);
+			else dispatch(keyed[j++], event, cancellable);
+		}
+	}
+
+	/**
+	 * Get the flattened subscribers of this bus and of its super types buses.<br>
+	 * The list is cached until the keyless subscribers of a bus of the hierarchy change, the hierarchy itself is only walked again when a new bus is registered
+	 * 
+	 * @return the dispatch list
+	 */
+	private Dispatch<E> getDispatch() {
+		Dispatch<E> current = dispatch;
+		int generation = GENERATION.get();
+		if (current == null || current.generation != generation) dispatch = current = new Dispatch<>(generation, getHierarchy());
+		else if (!current.isCurrent()) dispatch = current = new Dispatch<>(generation, current.hierarchy);
+		return current;
+	}
+
+	/**
+	 * Get this bus and the registered buses of all the super classes and interfaces of its owner, the nearest first.<br>
+	 * This bus is used even if another bus is registered for its owner, so its subscribers are always called
+	 * 
+	 * @return the buses
+	 */
+	private EventBus[] getHierarchy() {
+		Set<Class<?>> types = new LinkedHashSet<>();
+		Deque<Class<?>> queue = new ArrayDeque<>();
+		queue.add(owner);
+		while (!queue.isEmpty()) {
+			Class<?> current = queue.poll();
+			if (!types.add(current)) continue;
+			if (current.getSuperclass() != null) queue.add(current.getSuperclass());
+			Collections.addAll(queue, current.getInterfaces());
+		}
+		List<EventBus> hierarchy = new ArrayList<>();
+		for (Class<?> c : types) {
+			EventBus<?> bus = c == owner ? this : buses.get(c);
+			if (bus != null) hierarchy.add(bus);
+		}
+		return hierarchy.toArray(new EventBus[hierarchy.size()]);
+	}
+
+	private static <E> void dispatch(Subscriber<E> subscriber, E event, Cancellable cancellable) {
+		if (subscriber.isExpired()) unsubscribing(subscriber); // Lazily drop the collected weak listeners
+		else if (subscriber.accept(event, cancellable != null && cancellable.isCancelled())) {
+			SubscriberMetrics metrics = subscriber.getMetrics();
+			if (metrics == null) subscriber.getConsumer().accept(event);
+			else {
+				long start = System.nanoTime();
+				boolean failed = true;
+				try {
+					subscriber.getConsumer().accept(event);
+					failed = false;
+				} finally {
+					metrics.record(System.nanoTime() - start, failed);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Send an object in this bus from a thread of the {@link #EXECUTOR}
+	 * 
+	 * @param event
+	 *            the object to send
+	 */
+	public void sendAsync(E event) {
+		String name = "Event::" + event.getClass().getSimpleName();
+		BusMetrics busMetrics = metrics;
+		if (busMetrics == null) {
+			EXECUTOR.execute(Threads.threadContextSwitch(name, () -> send(event)));
+			return;
+		}
+		long submitted = System.nanoTime();
+		busMetrics.enqueued();
+		EXECUTOR.execute(Threads.threadContextSwitch(name, () -> {
+			busMetrics.dequeued(System.nanoTime() - submitted);
+			send(event);
+		}));
+	}
+
+	/**
+	 * Enable or disable the metrics of this bus and of its subscribers.<br>
+	 * When enabled each invocation of a subscriber is timed, see {@link Subscriber#getMetrics()} and {@link #getMetrics()}
+	 * 
+	 * @param enabled
+	 *            true to collect the metrics
+	 */
+	public synchronized void setMetricsEnabled(boolean enabled) {
+		if (enabled == (metrics != null)) return;
+		metrics = enabled ? new BusMetrics() : null;
+		for (Subscriber<E> subscriber : getSubscribers())
+			subscriber.setMetrics(enabled ? new SubscriberMetrics() : null);
+	}
+
+	/**
+	 * Get if the metrics of this bus are enabled
+	 * 
+	 * @return true if the metrics are collected
+	 */
+	public boolean isMetricsEnabled() {
+		return metrics != null;
+	}
+
+	/**
+	 * Get the asynchronous dispatch metrics of this bus
+	 * 
+	 * @return the metrics or null if they are disabled
+	 */
+	public BusMetrics getMetrics() {
+		return metrics;
 	}
 
 	/**
@@ -57,9 +197,7 @@ public class EventBus<E> {
 	 * @return a Subscriber instance to use with {@link #unsubscribe(Subscriber)}
 	 */
 	public Subscriber<E> subscribe(Consumer<E> consumer, int priority) {
-		Subscriber<E> subscriber = new Subscriber<>(consumer, priority, owner);
-		this.subscribers.add(subscriber);
-		return subscriber;
+		return subscribe(new Subscriber<>(consumer, priority, owner));
 	}
 
 	/**
@@ -70,8 +208,56 @@ public class EventBus<E> {
 	 * @return a Subscriber instance to use with {@link #unsubscribe(Subscriber)}
 	 */
 	public Subscriber<E> subscribe(Consumer<E> consumer) {
-		Subscriber<E> subscriber = new Subscriber<>(consumer, 0, owner);
-		this.subscribers.add(subscriber);
+		return subscribe(consumer, 0);
+	}
+
+	/**
+	 * Subscribe to this bus using a consumer
+	 * 
+	 * @param consumer
+	 *            the consumer to consume the event
+	 * @param priority
+	 *            the priority of this consumer
+	 * @param ignoreCancelled
+	 *            if the consumer must be skipped for {@link Cancellable cancelled} events
+	 * @param filter
+	 *            the filter tested before calling the consumer or null
+	 * @return a Subscriber instance to use with {@link #unsubscribe(Subscriber)}
+	 */
+	public Subscriber<E> subscribe(Consumer<E> consumer, int priority, boolean ignoreCancelled, Predicate<? super E> filter) {
+		return subscribe(new Subscriber<>(consumer, priority, owner, ignoreCancelled, filter, null));
+	}
+
+	/**
+	 * Subscribe to the {@link Keyed} events of this bus having the provided key.<br>
+	 * The keyed subscribers are indexed so they cost nothing to the events of the other keys
+	 * 
+	 * @param key
+	 *            the key of the events
+	 * @param consumer
+	 *            the consumer to consume the event
+	 * @param priority
+	 *            the priority of this consumer
+	 * @return a Subscriber instance to use with {@link #unsubscribe(Subscriber)}
+	 */
+	public Subscriber<E> subscribeKey(Object key, Consumer<E> consumer, int priority) {
+		Objects.requireNonNull(key);
+		return subscribe(new Subscriber<>(consumer, priority, owner, false, null, key));
+	}
+
+	/**
+	 * Subscribe the provided subscriber to this bus
+	 * 
+	 * @param subscriber
+	 *            the subscriber
+	 * @return the subscriber
+	 */
+	public synchronized Subscriber<E> subscribe(Subscriber<E> subscriber) {
+		if (metrics != null && subscriber.getMetrics() == null) subscriber.setMetrics(new SubscriberMetrics());
+		Object key = subscriber.getKey();
+		if (key == null) {
+			subscribers = insert(subscribers, subscriber);
+		} else keyedSubscribers.put(key, insert(keyedSubscribers.getOrDefault(key, empty()), subscriber));
 		return subscriber;
 	}
 
@@ -108,19 +294,54 @@ public class EventBus<E> {
 	 * @throws Exception
 	 *             if an error occurred during the conversion to a lambda
 	 */
-	@SuppressWarnings("unchecked")
 	public Subscriber<E> subscribeMethod(MethodHandles.Lookup lookup, MethodHandle method, Object instance, int priority) throws Exception {
+		return subscribe(toConsumer(lookup, method, instance), priority);
+	}
+
+	/**
+	 * Transform a method to a consumer of this bus events using {@link LambdaMetafactory}
+	 * 
+	 * @param lookup
+	 *            the method lookup to use
+	 * @param method
+	 *            the method to transform
+	 * @param instance
+	 *            the instance of the method owner or null if the method is static
+	 * @return a consumer calling the method
+	 * @throws ReflectiveOperationException
+	 *             if an error occurred during the conversion to a lambda
+	 */
+	@SuppressWarnings("unchecked")
+	public Consumer<E> toConsumer(MethodHandles.Lookup lookup, MethodHandle method, Object instance) throws ReflectiveOperationException {
+		if (instance != null) return Consumers.from(toBiConsumer(lookup, method, instance.getClass()), instance);
 		try {
-			if (instance == null) return subscribe((Consumer<E>) LambdaMetafactory
+			return (Consumer<E>) LambdaMetafactory
 					.metafactory(lookup, "accept", MethodType.methodType(Consumer.class), MethodType.methodType(void.class, Object.class), method, MethodType.methodType(void.class, owner)).getTarget()
-					.invoke(), priority);
-
-			else return subscribe(
-					Consumers.from(
-							(BiConsumer<Object, E>) LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
-									MethodType.methodType(void.class, Object.class, Object.class), method, MethodType.methodType(void.class, instance.getClass(), owner)).getTarget().invoke(),
-							instance),
-					priority);
+					.invoke();
+		} catch (Throwable e) { // NOSONAR
+			throw new ReflectiveOperationException(e);
+		}
+	}
+
+	/**
+	 * Transform an instance method to a consumer taking the instance and the event using {@link LambdaMetafactory}.<br>
+	 * The created consumer doesn't depend on an instance so it can be cached and reused for all the instances of the type
+	 * 
+	 * @param lookup
+	 *            the method lookup to use
+	 * @param method
+	 *            the method to transform
+	 * @param type
+	 *            the type of the method owner
+	 * @return a consumer calling the method on the instance passed as first argument
+	 * @throws ReflectiveOperationException
+	 *             if an error occurred during the conversion to a lambda
+	 */
+	@SuppressWarnings("unchecked")
+	public BiConsumer<Object, E> toBiConsumer(MethodHandles.Lookup lookup, MethodHandle method, Class<?> type) throws ReflectiveOperationException {
+		try {
+			return (BiConsumer<Object, E>) LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+					MethodType.methodType(void.class, Object.class, Object.class), method, MethodType.methodType(void.class, type, owner)).getTarget().invoke();
 		} catch (Throwable e) { // NOSONAR
 			throw new ReflectiveOperationException(e);
 		}
@@ -132,8 +353,40 @@ public class EventBus<E> {
 	 * @param subscriber
 	 *            the subscriber to remove
 	 */
-	public void unsubscribe(Subscriber<E> subscriber) {
-		this.subscribers.remove(subscriber);
+	public synchronized void unsubscribe(Subscriber<E> subscriber) {
+		Object key = subscriber.getKey();
+		if (key == null) {
+			subscribers = remove(subscribers, subscriber);
+		} else {
+			Subscriber<E>[] keyed = keyedSubscribers.get(key);
+			if (keyed == null) return;
+			keyed = remove(keyed, subscriber);
+			if (keyed.length == 0) keyedSubscribers.remove(key);
+			else keyedSubscribers.put(key, keyed);
+		}
+	}
+
+	/**
+	 * Unregister all the provided subscribers at once
+	 * 
+	 * @param toRemove
+	 *            the subscribers to remove
+	 */
+	public synchronized void unsubscribeAll(Collection<? extends Subscriber<E>> toRemove) {
+		if (toRemove.isEmpty()) return;
+		Set<Subscriber<E>> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+		removed.addAll(toRemove);
+		subscribers = removeAll(subscribers, removed);
+		Set<Object> keys = new HashSet<>();
+		for (Subscriber<E> subscriber : removed)
+			if (subscriber.getKey() != null) keys.add(subscriber.getKey());
+		for (Object key : keys) {
+			Subscriber<E>[] keyed = keyedSubscribers.get(key);
+			if (keyed == null) continue;
+			keyed = removeAll(keyed, removed);
+			if (keyed.length == 0) keyedSubscribers.remove(key);
+			else keyedSubscribers.put(key, keyed);
+		}
 	}
 
 	/**
@@ -142,7 +395,11 @@ public class EventBus<E> {
 	 * @return an immutable collection of the subscribers of this bus
 	 */
 	public Collection<Subscriber<E>> getSubscribers() {
-		return Collections.unmodifiableCollection(subscribers);
+		if (keyedSubscribers.isEmpty()) return Collections.unmodifiableList(Arrays.asList(subscribers));
+		List<Subscriber<E>> all = new ArrayList<>(Arrays.asList(subscribers));
+		for (Subscriber<E>[] keyed : keyedSubscribers.values())
+			all.addAll(Arrays.asList(keyed));
+		return Collections.unmodifiableList(all);
 	}
 
 	/**
@@ -151,7 +408,69 @@ public class EventBus<E> {
 	 * @return the number of subscribers
 	 */
 	public int subscribersSize() {
-		return subscribers.size();
+		int size = subscribers.length;
+		for (Subscriber<E>[] keyed : keyedSubscribers.values())
+			size += keyed.length;
+		return size;
+	}
+
+	/**
+	 * Get if an event sent in this bus would be received by a subscriber of this bus or of a super type bus
+	 * 
+	 * @return true if there is at least one subscriber
+	 */
+	public boolean hasSubscribers() {
+		Dispatch<E> current = getDispatch();
+		if (current.subscribers.length != 0) return true;
+		for (EventBus bus : current.hierarchy)
+			if (!bus.keyedSubscribers.isEmpty()) return true;
+		return false;
+	}
+
+	/**
+	 * Get the owner of this bus
+	 * 
+	 * @return the type of the events of this bus
+	 */
+	public Class<E> getOwner() {
+		return owner;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E> Subscriber<E>[] empty() {
+		return EMPTY;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E> Subscriber<E>[] insert(Subscriber<E>[] array, Subscriber<E> subscriber) {
+		int index = array.length;
+		while (index > 0 && array[index - 1].getPriority() > subscriber.getPriority()) // Keep the subscription order for same priorities
+			index--;
+		Subscriber<E>[] copy = new Subscriber[array.length + 1];
+		System.arraycopy(array, 0, copy, 0, index);
+		copy[index] = subscriber;
+		System.arraycopy(array, index, copy, index + 1, array.length - index);
+		return copy;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E> Subscriber<E>[] remove(Subscriber<E>[] array, Subscriber<E> subscriber) {
+		for (int i = 0; i < array.length; i++) {
+			if (array[i] != subscriber) continue;
+			Subscriber<E>[] copy = new Subscriber[array.length - 1];
+			System.arraycopy(array, 0, copy, 0, i);
+			System.arraycopy(array, i + 1, copy, i, array.length - i - 1);
+			return copy;
+		}
+		return array;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E> Subscriber<E>[] removeAll(Subscriber<E>[] array, Set<Subscriber<E>> removed) {
+		List<Subscriber<E>> kept = new ArrayList<>(array.length);
+		for (Subscriber<E> subscriber : array)
+			if (!removed.contains(subscriber)) kept.add(subscriber);
+		return kept.size() == array.length ? array : kept.toArray(new Subscriber[kept.size()]);
 	}
 
 	/**
@@ -163,11 +482,14 @@ public class EventBus<E> {
 	 *            the bus instance
 	 */
 	private static void registerBus(Class<?> owner, EventBus<?> bus) {
-		if (buses.putIfAbsent(owner, bus) == null) new BusRegisterEvent(owner, bus).send();
+		if (buses.putIfAbsent(owner, bus) == null) {
+			GENERATION.incrementAndGet();
+			new BusRegisterEvent(owner, bus).send();
+		}
 	}
 
 	/**
-	 * Get the registered bus with the specified owner
+	 * Get the registered bus with the specified owner, the owner class is initialized if its bus is not registered yet
 	 * 
 	 * @param owner
 	 *            the owner of the bus
@@ -177,8 +499,12 @@ public class EventBus<E> {
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T> EventBus<T> getBus(Class<T> owner) {
-		UnsafeAccessor.getUnsafe().ensureClassInitialized(owner);
-		return (EventBus<T>) buses.get(owner);
+		EventBus<?> bus = buses.get(owner);
+		if (bus == null) {
+			UnsafeAccessor.getUnsafe().ensureClassInitialized(owner);
+			bus = buses.get(owner);
+		}
+		return (EventBus<T>) bus;
 	}
 
 	public static <T> void unsubscribing(Subscriber<T> sub) {
@@ -194,4 +520,70 @@ public class EventBus<E> {
 		return Collections.unmodifiableMap(buses);
 	}
 
+	/**
+	 * The cached dispatch list of a bus
+	 * 
+	 * @param <E>
+	 *            the type of the events
+	 */
+	@SuppressWarnings("unchecked")
+	private static class Dispatch<E> {
+		private final int generation;
+		private final EventBus[] hierarchy;
+		// The copy on write arrays of the buses the list was built from
+		private final Subscriber[][] snapshot;
+		private final Subscriber<E>[] subscribers;
+
+		Dispatch(int generation, EventBus[] hierarchy) {
+			this.generation = generation;
+			this.hierarchy = hierarchy;
+			this.snapshot = new Subscriber[hierarchy.length][];
+			for (int i = 0; i < hierarchy.length; i++)
+				snapshot[i] = hierarchy[i].subscribers;
+			if (hierarchy.length == 1) this.subscribers = snapshot[0];
+			else {
+				List<Subscriber<E>> all = new ArrayList<>();
+				for (Subscriber[] busSubscribers : snapshot)
+					Collections.addAll(all, (Subscriber<E>[]) busSubscribers);
+				all.sort(PRIORITY_COMPARATOR); // Stable, the nearest bus subscribers stay first
+				this.subscribers = all.toArray(new Subscriber[all.size()]);
+			}
+		}
+
+		/**
+		 * Get if the keyless subscribers of the buses of the hierarchy are still the ones of this list
+		 * 
+		 * @return true if the list is up to date
+		 */
+		boolean isCurrent() {
+			for (int i = 0; i < hierarchy.length; i++)
+				if (hierarchy[i].subscribers != snapshot[i]) return false;
+			return true;
+		}
+
+		/**
+		 * Get the subscribers of the key in all the buses of the hierarchy
+		 * 
+		 * @param key
+		 *            the key
+		 * @return the subscribers sorted by priority or null if there is no subscriber
+		 */
+		Subscriber<E>[] getKeyed(Object key) {
+			Subscriber<E>[] found = null;
+			for (EventBus bus : hierarchy) {
+				if (bus.keyedSubscribers.isEmpty()) continue;
+				Subscriber<E>[] keyed = (Subscriber<E>[]) bus.keyedSubscribers.get(key);
+				if (keyed == null) continue;
+				if (found == null) found = keyed;
+				else {
+					Subscriber<E>[] merged = Arrays.copyOf(found, found.length + keyed.length);
+					System.arraycopy(keyed, 0, merged, found.length, keyed.length);
+					Arrays.sort(merged, PRIORITY_COMPARATOR);
+					found = merged;
+				}
+			}
+			return found;
+		}
+	}
+
 }
@@ -0,0 +1,448 @@
+package fr.aresrpg.commons.domain.event;
+
+import fr.aresrpg.commons.domain.concurrent.RingBuffer;
+import fr.aresrpg.commons.domain.concurrent.ThreadBuilder;
+import fr.aresrpg.commons.domain.io.ByteBufferInputStream;
+import fr.aresrpg.commons.domain.io.ByteBufferOutputStream;
+import fr.aresrpg.commons.domain.log.Logger;
+import fr.aresrpg.commons.domain.serialization.Format;
+import fr.aresrpg.commons.domain.serialization.Serializer;
+
+import java.io.*;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * An append-only journal of events stored in memory-mapped segment files.<br>
+ * Each record is written as {@code [int length][long timestamp][payload]} where the payload is the event serialized with the provided {@link Format}.
+ * The length is written after the payload so an interrupted write is never read back. When a segment is full the journal rolls to a new one.<br>
+ * The events of the {@link #attach(EventBus) attached} buses are only enqueued by the sending thread, a background thread serializes them.
+ * What happens when its queue is full depends on the {@link OverflowPolicy}.<br>
+ * The events can later be replayed in a bus for a time range
+ * 
+ * <pre>
+ * EventJournal&lt;TradeEvent&gt; journal = new EventJournal&lt;&gt;(Paths.get("journal/trades"), serializer, BinaryFormat.INSTANCE);
+ * journal.attach(TradeEvent.BUS, e -&gt; e.getAmount() &gt; 0);
+ * // Later
+ * journal.replay(TradeEvent.BUS, from, to);
+ * </pre>
+ * 
+ * @param <E>
+ *            the type of the journaled events
+ */
+public class EventJournal<E> implements Closeable {
+	/**
+	 * The default size of a segment
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+	/**
+	 * The extension of the segment files
+	 */
+	public static final String EXTENSION = ".journal";
+	/**
+	 * The default capacity of the queue of the attached buses
+	 */
+	public static final int DEFAULT_CAPACITY = 8192;
+	private static final int BATCH_SIZE = 512;
+	private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+	private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long FULL_PARK = TimeUnit.MICROSECONDS.toNanos(50);
+	private static final String LOG_CHANNEL = "EventJournal";
+	private static final ThreadLocal<Boolean> REPLAYING = ThreadLocal.withInitial(() -> false);
+
+	private final Path directory;
+	private final Serializer<E> serializer;
+	private final Format<InputStream, OutputStream> format;
+	private final int segmentSize;
+	private final RingBuffer<Record<E>> buffer;
+	private final OverflowPolicy policy;
+	private final LongAdder dropped = new LongAdder();
+	private final Thread writer;
+	private volatile long written;
+	private volatile boolean sleeping;
+	private volatile boolean running = true;
+	private FileChannel channel;
+	private MappedByteBuffer segment;
+	private OutputStream output;
+	private int sequence;
+	private boolean closed;
+
+	/**
+	 * What to do with an event when the queue of the attached buses is full
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * Wait until the background thread frees a slot
+		 */
+		BLOCK,
+		/**
+		 * Drop the event, it is counted in {@link EventJournal#getDropped()}
+		 */
+		DROP
+	}
+
+	/**
+	 * Open a journal, appending to its last segment if the directory already contains one, and start its background thread
+	 * 
+	 * @param directory
+	 *            the directory of the segment files
+	 * @param serializer
+	 *            the serializer of the events
+	 * @param format
+	 *            the format used to write the events
+	 * @param segmentSize
+	 *            the size of a segment file in bytes
+	 * @param capacity
+	 *            the capacity of the queue of the attached buses
+	 * @param policy
+	 *            the policy applied when the queue is full
+	 * @throws IOException
+	 *             if the journal can't be opened
+	 */
+	public EventJournal(Path directory, Serializer<E> serializer, Format<InputStream, OutputStream> format, int segmentSize, int capacity, OverflowPolicy policy)
+			throws IOException {
+		if (segmentSize <= HEADER_SIZE) throw new IllegalArgumentException("Segment size too small : " + segmentSize);
+		this.directory = directory;
+		this.serializer = serializer;
+		this.format = format;
+		this.segmentSize = segmentSize;
+		this.buffer = new RingBuffer<>(capacity);
+		this.policy = policy;
+		Files.createDirectories(directory);
+		Path[] segments = getSegments();
+		if (segments.length > 0) {
+			Path last = segments[segments.length - 1];
+			sequence = getSequence(last);
+			open(last);
+			segment.position(findEnd(segment));
+		}
+		this.writer = new ThreadBuilder().setName("EventJournal-%d").setDaemon(true).setRunnable(this::run).build();
+		writer.start();
+	}
+
+	/**
+	 * Open a journal with a queue of {@link #DEFAULT_CAPACITY} blocking when full
+	 * 
+	 * @param directory
+	 *            the directory of the segment files
+	 * @param serializer
+	 *            the serializer of the events
+	 * @param format
+	 *            the format used to write the events
+	 * @param segmentSize
+	 *            the size of a segment file in bytes
+	 * @throws IOException
+	 *             if the journal can't be opened
+	 */
+	public EventJournal(Path directory, Serializer<E> serializer, Format<InputStream, OutputStream> format, int segmentSize) throws IOException {
+		this(directory, serializer, format, segmentSize, DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+	}
+
+	/**
+	 * Open a journal with segments of {@link #DEFAULT_SEGMENT_SIZE}
+	 * 
+	 * @param directory
+	 *            the directory of the segment files
+	 * @param serializer
+	 *            the serializer of the events
+	 * @param format
+	 *            the format used to write the events
+	 * @throws IOException
+	 *             if the journal can't be opened
+	 */
+	public EventJournal(Path directory, Serializer<E> serializer, Format<InputStream, OutputStream> format) throws IOException {
+		this(directory, serializer, format, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Journal the events sent in the bus and accepted by the filter.<br>
+	 * The journal subscribes with the lowest priority so it records the events in their final state, cancelled events are not journaled.
+	 * The events are serialized later by the background thread so they must not be modified once sent
+	 * 
+	 * @param bus
+	 *            the bus
+	 * @param filter
+	 *            the filter selecting the events to journal or null to journal all events
+	 * @return the subscriber of the journal, used to detach it with {@link EventBus#unsubscribe(Subscriber)}
+	 */
+	public Subscriber<E> attach(EventBus<E> bus, Predicate<? super E> filter) {
+		return bus.subscribe(this::enqueue, Integer.MAX_VALUE, true, filter);
+	}
+
+	/**
+	 * Journal all the events sent in the bus
+	 * 
+	 * @param bus
+	 *            the bus
+	 * @return the subscriber of the journal
+	 */
+	public Subscriber<E> attach(EventBus<E> bus) {
+		return attach(bus, null);
+	}
+
+	private void enqueue(E event) {
+		if (REPLAYING.get()) return;
+		Record<E> record = new Record<>(System.currentTimeMillis(), event);
+		if (!running) { // Fails like a direct append
+			record(record);
+			return;
+		}
+		if (!buffer.offer(record) && !overflow(record)) {
+			dropped.increment();
+			return;
+		}
+		if (sleeping) LockSupport.unpark(writer);
+	}
+
+	private boolean overflow(Record<E> record) {
+		if (policy == OverflowPolicy.DROP) return false;
+		while (!buffer.offer(record)) {
+			if (!running) return false;
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(FULL_PARK);
+		}
+		return true;
+	}
+
+	private void run() {
+		while (running || !buffer.isEmpty()) {
+			int count = buffer.drain(this::record, BATCH_SIZE);
+			if (count > 0) {
+				written += count; // NOSONAR only written by the writer
+				continue;
+			}
+			sleeping = true;
+			if (running && buffer.isEmpty()) LockSupport.parkNanos(this, IDLE_PARK);
+			sleeping = false;
+		}
+	}
+
+	private void record(Record<E> record) {
+		try {
+			append(record.timestamp, record.event);
+		} catch (IOException | RuntimeException e) {
+			Logger.MAIN_LOGGER.severe(LOG_CHANNEL, e, "Unable to journal " + record.event);
+		}
+	}
+
+	/**
+	 * Append an event to this journal now, on the calling thread
+	 * 
+	 * @param event
+	 *            the event
+	 * @throws IOException
+	 *             if the event can't be written
+	 */
+	public void append(E event) throws IOException {
+		append(System.currentTimeMillis(), event);
+	}
+
+	private synchronized void append(long timestamp, E event) throws IOException {
+		if (closed) throw new IOException("Journal closed");
+		if (segment == null) roll(timestamp);
+		int start = segment.position();
+		try {
+			write(start, timestamp, event);
+		} catch (BufferOverflowException e) { // NOSONAR the segment is full
+			segment.position(start);
+			if (start == 0) throw new IOException("Event larger than a segment : " + event, e);
+			roll(timestamp);
+			try {
+				write(0, timestamp, event);
+			} catch (BufferOverflowException ex) { // NOSONAR
+				segment.position(0);
+				throw new IOException("Event larger than a segment : " + event, ex);
+			}
+		}
+	}
+
+	private void write(int start, long timestamp, E event) throws IOException {
+		if (segmentSize - start < HEADER_SIZE) throw new BufferOverflowException();
+		segment.position(start + HEADER_SIZE);
+		serializer.serialize(output, event, format);
+		int end = segment.position();
+		if (segmentSize - end >= Integer.BYTES) segment.putInt(end, 0); // Terminate the records if a previous write left garbage
+		segment.putLong(start + Integer.BYTES, timestamp);
+		segment.putInt(start, end - start - HEADER_SIZE);
+	}
+
+	private void roll(long timestamp) throws IOException {
+		if (channel != null) {
+			segment.force();
+			channel.close();
+		}
+		open(directory.resolve(String.format("%010d-%d%s", ++sequence, timestamp, EXTENSION)));
+	}
+
+	private void open(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		segment = channel.map(MapMode.READ_WRITE, 0, segmentSize);
+		output = new ByteBufferOutputStream(segment);
+	}
+
+	/**
+	 * Wait until the events enqueued before this call are written and force them to the storage device
+	 */
+	public void flush() {
+		long target = buffer.getOffered();
+		while (running && written < target) {
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(FULL_PARK);
+		}
+		synchronized (this) {
+			if (segment != null) segment.force();
+		}
+	}
+
+	/**
+	 * Get the number of events dropped because the queue was full
+	 * 
+	 * @return the number of dropped events
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Send the journaled events of the time range in the bus.<br>
+	 * The replayed events are not journaled again
+	 * 
+	 * @param bus
+	 *            the bus
+	 * @param from
+	 *            the first timestamp in milliseconds (inclusive)
+	 * @param to
+	 *            the last timestamp in milliseconds (inclusive)
+	 * @return the number of replayed events
+	 * @throws IOException
+	 *             if the journal can't be read
+	 */
+	public int replay(EventBus<E> bus, long from, long to) throws IOException {
+		boolean replaying = REPLAYING.get();
+		REPLAYING.set(true);
+		try {
+			return replay(from, to, bus::send);
+		} finally {
+			REPLAYING.set(replaying);
+		}
+	}
+
+	/**
+	 * Read the journaled events of the time range in their order of writing
+	 * 
+	 * @param from
+	 *            the first timestamp in milliseconds (inclusive)
+	 * @param to
+	 *            the last timestamp in milliseconds (inclusive)
+	 * @param consumer
+	 *            the consumer of the events
+	 * @return the number of read events
+	 * @throws IOException
+	 *             if the journal can't be read
+	 */
+	public int replay(long from, long to, java.util.function.Consumer<? super E> consumer) throws IOException {
+		Path[] segments = getSegments();
+		int count = 0;
+		for (int i = 0; i < segments.length; i++) {
+			if (getTimestamp(segments[i]) > to) break;
+			if (i + 1 < segments.length && getTimestamp(segments[i + 1]) < from) continue; // The whole segment is before the range
+			try (FileChannel in = FileChannel.open(segments[i], StandardOpenOption.READ)) {
+				ByteBuffer buffer = in.map(MapMode.READ_ONLY, 0, in.size());
+				count += replay(buffer, from, to, consumer);
+			}
+		}
+		return count;
+	}
+
+	private int replay(ByteBuffer buffer, long from, long to, java.util.function.Consumer<? super E> consumer) throws IOException {
+		int count = 0;
+		int position = 0;
+		int length;
+		while (buffer.limit() - position >= HEADER_SIZE && (length = buffer.getInt(position)) > 0) {
+			long timestamp = buffer.getLong(position + Integer.BYTES);
+			int start = position + HEADER_SIZE;
+			position = start + length;
+			if (timestamp < from || timestamp > to) continue;
+			ByteBuffer record = buffer.duplicate();
+			record.limit(position).position(start);
+			consumer.accept(serializer.deserialize(new ByteBufferInputStream(record), format));
+			count++;
+		}
+		return count;
+	}
+
+	private static int findEnd(ByteBuffer buffer) {
+		int position = 0;
+		int length;
+		while (buffer.limit() - position >= HEADER_SIZE && (length = buffer.getInt(position)) > 0)
+			position += HEADER_SIZE + length;
+		return position;
+	}
+
+	private Path[] getSegments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(p -> p.getFileName().toString().endsWith(EXTENSION)).sorted(Comparator.comparingInt(EventJournal::getSequence)).toArray(Path[]::new);
+		}
+	}
+
+	private static int getSequence(Path segment) {
+		String name = segment.getFileName().toString();
+		return Integer.parseInt(name.substring(0, name.indexOf('-')));
+	}
+
+	private static long getTimestamp(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(name.indexOf('-') + 1, name.length() - EXTENSION.length()));
+	}
+
+	/**
+	 * Get the directory of the segment files
+	 * 
+	 * @return the directory
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Write the enqueued events, stop the background thread and close the segment
+	 */
+	@Override
+	public void close() throws IOException {
+		running = false;
+		LockSupport.unpark(writer);
+		try {
+			if (Thread.currentThread() != writer) writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			if (closed) return;
+			closed = true;
+			if (channel != null) {
+				segment.force();
+				channel.close();
+			}
+		}
+	}
+
+	private static final class Record<E> {
+		private final long timestamp;
+		private final E event;
+
+		private Record(long timestamp, E event) {
+			this.timestamp = timestamp;
+			this.event = event;
+		}
+	}
+}
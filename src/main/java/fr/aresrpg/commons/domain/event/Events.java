@@ -1,10 +1,17 @@
 package fr.aresrpg.commons.domain.event;
 
+import fr.aresrpg.commons.domain.functional.consumer.BiConsumer;
+import fr.aresrpg.commons.domain.functional.consumer.Consumer;
+import fr.aresrpg.commons.domain.util.Consumers;
 import fr.aresrpg.commons.domain.util.Pair;
 
+import java.lang.invoke.*;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 
 /**
  * An util class for events
@@ -12,6 +19,18 @@ import java.util.List;
  * @author Sceat {@literal <sceat@aresrpg.fr>}
  */
 public class Events {
+	// The subscribe methods are scanned and transformed to lambdas once per listener class, a ClassValue doesn't keep the class loader of the listener reachable
+	private static final ClassValue<ListenerMethod[]> LISTENERS = new ClassValue<ListenerMethod[]>() {
+		@Override
+		protected ListenerMethod[] computeValue(Class<?> type) {
+			try {
+				return scan(type);
+			} catch (ReflectiveOperationException e) {
+				throw new UndeclaredThrowableException(e); // Unwrapped by getListenerMethods, nothing is cached on failure
+			}
+		}
+	};
+
 	private Events() {
 	}
 
@@ -22,22 +41,192 @@ public class Events {
 	 *            the instance to register
 	 * @throws IllegalArgumentException
 	 *             if the methods are not consumers
+	 * @throws IllegalStateException
+	 *             if the listener has keyed methods and a null key
 	 * @throws Exception
 	 *             if an exception from the registering occurred
 	 */
-	@SuppressWarnings({ "unchecked" })
+	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public static List<Pair<EventBus, Subscriber>> register(Listener listener) throws Exception {
-		ArrayList<Pair<EventBus, Subscriber>> list = new ArrayList<>();
-		for (Method m : listener.getClass().getDeclaredMethods()) {
+		ListenerMethod[] methods = getListenerMethods(listener.getClass());
+		Object listenerKey = getKey(listener, methods);
+		ArrayList<Pair<EventBus, Subscriber>> list = new ArrayList<>(methods.length);
+		for (ListenerMethod m : methods) {
+			Predicate<Object> filter = m.filter == null ? null : e -> m.filter.test(listener, e);
+			Object key = m.keyed ? listenerKey : null;
+			Subscriber<Object> subscriber = new Subscriber<>(Consumers.from(m.consumer, listener), m.priority, m.getOwner(), m.ignoreCancelled, filter, key);
+			list.add(new Pair<EventBus, Subscriber>(m.bus, m.bus.subscribe(subscriber)));
+		}
+		return list;
+	}
+
+	/**
+	 * Register all {@link Subscribe} in the provided object without keeping it reachable.<br>
+	 * Once the listener is garbage collected its subscribers are dropped by the buses during the next dispatch
+	 * 
+	 * @param listener
+	 *            the instance to register
+	 * @throws IllegalArgumentException
+	 *             if the methods are not consumers
+	 * @throws IllegalStateException
+	 *             if the listener has keyed methods and a null key
+	 * @throws Exception
+	 *             if an exception from the registering occurred
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static List<Pair<EventBus, Subscriber>> registerWeak(Listener listener) throws Exception {
+		ListenerMethod[] methods = getListenerMethods(listener.getClass());
+		Object listenerKey = getKey(listener, methods);
+		ArrayList<Pair<EventBus, Subscriber>> list = new ArrayList<>(methods.length);
+		WeakReference<Listener> reference = new WeakReference<>(listener);
+		for (ListenerMethod m : methods) {
+			// The lambdas must only capture the reference
+			Predicate<Object> filter = m.filter == null ? null : e -> {
+				Listener l = reference.get();
+				return l != null && m.filter.test(l, e);
+			};
+			Consumer<Object> consumer = e -> {
+				Listener l = reference.get();
+				if (l != null) m.consumer.accept(l, e);
+			};
+			Object key = m.keyed ? listenerKey : null;
+			Subscriber<Object> subscriber = new Subscriber<>(consumer, m.priority, m.getOwner(), m.ignoreCancelled, filter, key, reference);
+			list.add(new Pair<EventBus, Subscriber>(m.bus, m.bus.subscribe(subscriber)));
+		}
+		return list;
+	}
+
+	/**
+	 * Get the key of a listener having keyed subscribe methods, it is checked before any subscription so a failed registration subscribes nothing
+	 * 
+	 * @param listener
+	 *            the listener
+	 * @param methods
+	 *            the subscribe methods of the listener
+	 * @return the key or null if no method is keyed
+	 * @throws IllegalStateException
+	 *             if a method is keyed and the listener has no key, it would receive the events of all the keys
+	 */
+	private static Object getKey(Listener listener, ListenerMethod[] methods) {
+		for (ListenerMethod m : methods) {
+			if (!m.keyed) continue;
+			Object key = ((Keyed) listener).getKey();
+			if (key == null) throw new IllegalStateException("The listener " + listener.getClass().getName() + " has keyed subscribe methods but no key");
+			return key;
+		}
+		return null;
+	}
+
+	/**
+	 * Unregister the subscribers returned by {@link #register(Listener)}, the subscribers of a same bus are removed at once
+	 * 
+	 * @param subscribers
+	 *            the subscribers to unregister
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static void unregister(Collection<Pair<EventBus, Subscriber>> subscribers) {
+		Map<EventBus, List<Subscriber>> byBus = new IdentityHashMap<>();
+		for (Pair<EventBus, Subscriber> pair : subscribers)
+			byBus.computeIfAbsent(pair.getFirst(), b -> new ArrayList<>()).add(pair.getSecond());
+		for (Map.Entry<EventBus, List<Subscriber>> e : byBus.entrySet())
+			e.getKey().unsubscribeAll(e.getValue());
+	}
+
+	/**
+	 * Get the cached subscribe methods of a listener class
+	 * 
+	 * @param clazz
+	 *            the listener class
+	 * @return the subscribe methods
+	 * @throws ReflectiveOperationException
+	 *             if a method can't be transformed to a lambda
+	 */
+	private static ListenerMethod[] getListenerMethods(Class<?> clazz) throws ReflectiveOperationException {
+		try {
+			return LISTENERS.get(clazz);
+		} catch (UndeclaredThrowableException e) {
+			throw (ReflectiveOperationException) e.getUndeclaredThrowable();
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static ListenerMethod[] scan(Class<?> clazz) throws ReflectiveOperationException {
+		List<ListenerMethod> methods = new ArrayList<>();
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		for (Method m : clazz.getDeclaredMethods()) {
 			Subscribe event = m.getAnnotation(Subscribe.class);
 			if (event == null) continue;
 			if (m.getParameterCount() != 1) throw new IllegalArgumentException("The method " + m.toGenericString() + " must have only one parameter");
 			if (!Event.class.isAssignableFrom(m.getParameterTypes()[0]))
 				throw new IllegalArgumentException("The parameter of the method " + m.toGenericString() + " must extend Event.class");
+			if (event.keyed() && !Keyed.class.isAssignableFrom(clazz))
+				throw new IllegalArgumentException("The method " + m.toGenericString() + " is keyed but the listener doesn't implement Keyed");
 			EventBus bus = EventBus.getBus((Class<Event<?>>) m.getParameterTypes()[0]);
-			list.add(new Pair<EventBus, Subscriber>(bus, bus.subscribeMethod(m, listener, event.priority())));
+			BiPredicate<Object, Object> filter = event.filter().isEmpty() ? null : createFilter(lookup, clazz, event.filter(), m.getParameterTypes()[0]);
+			methods.add(new ListenerMethod(bus, bus.toBiConsumer(lookup, lookup.unreflect(m), clazz), event, filter));
+		}
+		return methods.toArray(new ListenerMethod[methods.size()]);
+	}
+
+	/**
+	 * Transform the filter method of a listener class to a predicate using {@link LambdaMetafactory}
+	 * 
+	 * @param lookup
+	 *            the method lookup to use
+	 * @param clazz
+	 *            the listener class
+	 * @param name
+	 *            the name of the filter method
+	 * @param type
+	 *            the type of the filtered events
+	 * @return a predicate calling the filter method on the listener passed as first argument
+	 * @throws ReflectiveOperationException
+	 *             if the method is not found or can't be converted to a lambda
+	 */
+	@SuppressWarnings("unchecked")
+	private static BiPredicate<Object, Object> createFilter(MethodHandles.Lookup lookup, Class<?> clazz, String name, Class<?> type) throws ReflectiveOperationException {
+		Method method = findFilter(clazz, name, type);
+		try {
+			return (BiPredicate<Object, Object>) LambdaMetafactory.metafactory(lookup, "test", MethodType.methodType(BiPredicate.class),
+					MethodType.methodType(boolean.class, Object.class, Object.class), lookup.unreflect(method), MethodType.methodType(boolean.class, clazz, type))
+					.getTarget().invoke();
+		} catch (Throwable e) { // NOSONAR
+			throw new ReflectiveOperationException(e);
+		}
+	}
+
+	private static Method findFilter(Class<?> clazz, String name, Class<?> type) throws NoSuchMethodException {
+		for (Method m : clazz.getDeclaredMethods())
+			if (m.getName().equals(name) && m.getParameterCount() == 1 && m.getParameterTypes()[0].isAssignableFrom(type) && m.getReturnType() == boolean.class) return m;
+		throw new NoSuchMethodException("The filter " + name + " of " + clazz.getName() + " must be a boolean method taking a " + type.getName());
+	}
+
+	/**
+	 * A scanned subscribe method of a listener class
+	 */
+	@SuppressWarnings("rawtypes")
+	private static class ListenerMethod {
+		private final EventBus bus;
+		private final BiConsumer<Object, Object> consumer;
+		private final BiPredicate<Object, Object> filter;
+		private final int priority;
+		private final boolean ignoreCancelled;
+		private final boolean keyed;
+
+		@SuppressWarnings("unchecked")
+		ListenerMethod(EventBus bus, BiConsumer consumer, Subscribe subscribe, BiPredicate<Object, Object> filter) {
+			this.bus = bus;
+			this.consumer = consumer;
+			this.filter = filter;
+			this.priority = subscribe.priority();
+			this.ignoreCancelled = subscribe.ignoreCancelled();
+			this.keyed = subscribe.keyed();
+		}
+
+		@SuppressWarnings("unchecked")
+		Class<Object> getOwner() {
+			return bus.getOwner();
 		}
-		return list;
 	}
 
 }
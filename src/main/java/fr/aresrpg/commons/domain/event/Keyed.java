@@ -0,0 +1,15 @@
+package fr.aresrpg.commons.domain.event;
+
+/**
+ * An object identified by a key, used to index subscriptions in an {@link EventBus}.<br>
+ * A keyed {@link Event} is only dispatched to the keyless subscribers and to the subscribers registered with the same key,
+ * a keyed {@link Listener} registers its {@link Subscribe#keyed()} methods with its key
+ */
+public interface Keyed {
+	/**
+	 * Get the key of this object
+	 * 
+	 * @return the key or null if this object is not keyed
+	 */
+	Object getKey();
+}
@@ -18,4 +18,27 @@ public @interface Subscribe {
 	 */
 	int priority() default 0;
 
+	/**
+	 * Get if this consumer must be skipped when the event is {@link Cancellable#isCancelled() cancelled}
+	 * 
+	 * @return true to ignore cancelled events
+	 */
+	boolean ignoreCancelled() default false;
+
+	/**
+	 * Get the name of a method of the listener used to filter the events before calling this consumer.<br>
+	 * The method must take the event as only parameter and return a boolean
+	 * 
+	 * @return the filter method name or an empty string for no filter
+	 */
+	String filter() default "";
+
+	/**
+	 * Get if this consumer only receive the events having the same {@link Keyed#getKey() key} as the listener.<br>
+	 * The listener must implement {@link Keyed}
+	 * 
+	 * @return true if the subscription is keyed
+	 */
+	boolean keyed() default false;
+
 }
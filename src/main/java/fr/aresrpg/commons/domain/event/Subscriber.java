@@ -2,6 +2,9 @@ package fr.aresrpg.commons.domain.event;
 
 import fr.aresrpg.commons.domain.functional.consumer.Consumer;
 
+import java.lang.ref.WeakReference;
+import java.util.function.Predicate;
+
 /**
  * A subscriber of an {@link EventBus}
  * 
@@ -11,6 +14,11 @@ public class Subscriber<E> {
 	private Class<E> clazz;
 	private Consumer<E> consumer;
 	private int priority;
+	private boolean ignoreCancelled;
+	private Predicate<? super E> filter;
+	private Object key;
+	private WeakReference<?> reference;
+	private volatile SubscriberMetrics metrics;
 
 	/**
 	 * Create a new subscriber
@@ -19,11 +27,57 @@ public class Subscriber<E> {
 	 *            the consumer of this subscriber
 	 * @param priority
 	 *            the priority of this subscriber in the event bus
+	 * @param clazz
+	 *            the type of the consumed events
+	 * @param ignoreCancelled
+	 *            if this subscriber must be skipped for cancelled events
+	 * @param filter
+	 *            the filter tested before calling the consumer or null
+	 * @param key
+	 *            the key of the events to consume or null to consume all events
+	 * @param reference
+	 *            a weak reference to the object owning this subscriber, once cleared the subscriber is dropped by the bus, or null for a strong subscriber
 	 */
-	public Subscriber(Consumer<E> consumer, int priority, Class<E> clazz) {
+	public Subscriber(Consumer<E> consumer, int priority, Class<E> clazz, boolean ignoreCancelled, Predicate<? super E> filter, Object key, WeakReference<?> reference) {
 		this.consumer = consumer;
 		this.priority = priority;
 		this.clazz = clazz;
+		this.ignoreCancelled = ignoreCancelled;
+		this.filter = filter;
+		this.key = key;
+		this.reference = reference;
+	}
+
+	/**
+	 * Create a new subscriber
+	 * 
+	 * @param consumer
+	 *            the consumer of this subscriber
+	 * @param priority
+	 *            the priority of this subscriber in the event bus
+	 * @param clazz
+	 *            the type of the consumed events
+	 * @param ignoreCancelled
+	 *            if this subscriber must be skipped for cancelled events
+	 * @param filter
+	 *            the filter tested before calling the consumer or null
+	 * @param key
+	 *            the key of the events to consume or null to consume all events
+	 */
+	public Subscriber(Consumer<E> consumer, int priority, Class<E> clazz, boolean ignoreCancelled, Predicate<? super E> filter, Object key) {
+		this(consumer, priority, clazz, ignoreCancelled, filter, key, null);
+	}
+
+	/**
+	 * Create a new subscriber
+	 * 
+	 * @param consumer
+	 *            the consumer of this subscriber
+	 * @param priority
+	 *            the priority of this subscriber in the event bus
+	 */
+	public Subscriber(Consumer<E> consumer, int priority, Class<E> clazz) {
+		this(consumer, priority, clazz, false, null, null);
 	}
 
 	/**
@@ -50,4 +104,72 @@ public class Subscriber<E> {
 	public int getPriority() {
 		return priority;
 	}
+
+	/**
+	 * Get if this subscriber is skipped for cancelled events
+	 * 
+	 * @return true if cancelled events are ignored
+	 */
+	public boolean isIgnoreCancelled() {
+		return ignoreCancelled;
+	}
+
+	/**
+	 * Get the filter of this subscriber
+	 * 
+	 * @return the filter or null if there is no filter
+	 */
+	public Predicate<? super E> getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Get the key of the events consumed by this subscriber
+	 * 
+	 * @return the key or null if this subscriber consume all events
+	 */
+	public Object getKey() {
+		return key;
+	}
+
+	/**
+	 * Get the metrics of this subscriber
+	 * 
+	 * @return the metrics or null if the metrics of the bus are disabled
+	 */
+	public SubscriberMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set the metrics of this subscriber
+	 * 
+	 * @param metrics
+	 *            the metrics or null to disable them
+	 */
+	void setMetrics(SubscriberMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Get if the object owning this weak subscriber has been garbage collected
+	 * 
+	 * @return true if this subscriber is weak and its owner has been collected
+	 */
+	public boolean isExpired() {
+		return reference != null && reference.get() == null;
+	}
+
+	/**
+	 * Test if the event must be passed to the consumer
+	 * 
+	 * @param event
+	 *            the event
+	 * @param cancelled
+	 *            if the event is cancelled
+	 * @return true if the consumer must be called
+	 */
+	public boolean accept(E event, boolean cancelled) {
+		return !(cancelled && ignoreCancelled) && (filter == null || filter.test(event));
+	}
 }
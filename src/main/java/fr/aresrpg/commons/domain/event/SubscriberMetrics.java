@@ -0,0 +1,97 @@
+package fr.aresrpg.commons.domain.event;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a {@link Subscriber}, collected when the metrics of its {@link EventBus} are {@link EventBus#setMetricsEnabled(boolean) enabled}.<br>
+ * The counters are striped so concurrent dispatches don't contend on them
+ */
+public class SubscriberMetrics {
+	private final LongAdder invocations = new LongAdder();
+	private final LongAdder exceptions = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Record an invocation of the subscriber
+	 * 
+	 * @param nanos
+	 *            the duration of the invocation in nanoseconds
+	 * @param failed
+	 *            if the invocation has thrown an exception
+	 */
+	public void record(long nanos, boolean failed) {
+		invocations.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+		if (failed) exceptions.increment();
+	}
+
+	/**
+	 * Get the number of invocations of the subscriber
+	 * 
+	 * @return the number of invocations
+	 */
+	public long getInvocations() {
+		return invocations.sum();
+	}
+
+	/**
+	 * Get the number of invocations that have thrown an exception
+	 * 
+	 * @return the number of exceptions
+	 */
+	public long getExceptions() {
+		return exceptions.sum();
+	}
+
+	/**
+	 * Get the cumulative time spent in the subscriber
+	 * 
+	 * @param unit
+	 *            the unit of the result
+	 * @return the total latency
+	 */
+	public long getTotalLatency(TimeUnit unit) {
+		return unit.convert(totalNanos.sum(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Get the longest invocation of the subscriber
+	 * 
+	 * @param unit
+	 *            the unit of the result
+	 * @return the max latency
+	 */
+	public long getMaxLatency(TimeUnit unit) {
+		return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Get the mean time of an invocation in nanoseconds
+	 * 
+	 * @return the mean latency or 0 if the subscriber has never been invoked
+	 */
+	public double getMeanLatencyNanos() {
+		long count = invocations.sum();
+		return count == 0 ? 0 : (double) totalNanos.sum() / count;
+	}
+
+	/**
+	 * Reset all the metrics
+	 */
+	public void reset() {
+		invocations.reset();
+		exceptions.reset();
+		totalNanos.reset();
+		maxNanos.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "SubscriberMetrics[invocations=" + getInvocations() + ", exceptions=" + getExceptions() + ", total=" + getTotalLatency(TimeUnit.MICROSECONDS) + "us, max="
+				+ getMaxLatency(TimeUnit.MICROSECONDS) + "us]";
+	}
+}
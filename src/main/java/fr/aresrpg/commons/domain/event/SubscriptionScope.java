@@ -0,0 +1,134 @@
+package fr.aresrpg.commons.domain.event;
+
+import fr.aresrpg.commons.domain.functional.consumer.Consumer;
+import fr.aresrpg.commons.domain.util.Pair;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A group of subscriptions unregistered all at once when the scope is closed.<br>
+ * Typically one scope is created per player or per plugin and closed when it leaves
+ * 
+ * <pre>
+ * SubscriptionScope scope = new SubscriptionScope();
+ * scope.register(new PlayerListener(player));
+ * scope.subscribe(PlayerQuitEvent.BUS, e -&gt; save(e.getPlayer()), 0);
+ * // Later
+ * scope.close();
+ * </pre>
+ */
+@SuppressWarnings("rawtypes")
+public class SubscriptionScope implements Closeable {
+	private final boolean weak;
+	private List<Pair<EventBus, Subscriber>> subscribers;
+
+	/**
+	 * Create a new scope
+	 * 
+	 * @param weak
+	 *            if the listeners registered in this scope must be registered with {@link Events#registerWeak(Listener)}
+	 */
+	public SubscriptionScope(boolean weak) {
+		this.weak = weak;
+		this.subscribers = new ArrayList<>();
+	}
+
+	/**
+	 * Create a new scope keeping its listeners strongly reachable
+	 */
+	public SubscriptionScope() {
+		this(false);
+	}
+
+	/**
+	 * Register all {@link Subscribe} of the listener in this scope
+	 * 
+	 * @param listener
+	 *            the listener
+	 * @return this
+	 * @throws Exception
+	 *             if an exception from the registering occurred
+	 * @see Events#register(Listener)
+	 */
+	public SubscriptionScope register(Listener listener) throws Exception {
+		List<Pair<EventBus, Subscriber>> registered = weak ? Events.registerWeak(listener) : Events.register(listener);
+		synchronized (this) {
+			if (subscribers != null) {
+				subscribers.addAll(registered);
+				return this;
+			}
+		}
+		Events.unregister(registered); // Closed concurrently
+		throw new IllegalStateException("The scope is closed");
+	}
+
+	/**
+	 * Subscribe to a bus in this scope
+	 * 
+	 * @param bus
+	 *            the bus
+	 * @param consumer
+	 *            the consumer to consume the event
+	 * @param priority
+	 *            the priority of this consumer
+	 * @param <E>
+	 *            the type of the events
+	 * @return the subscriber
+	 */
+	public <E> Subscriber<E> subscribe(EventBus<E> bus, Consumer<E> consumer, int priority) {
+		return add(bus, bus.subscribe(consumer, priority));
+	}
+
+	/**
+	 * Add an existing subscription to this scope
+	 * 
+	 * @param bus
+	 *            the bus of the subscriber
+	 * @param subscriber
+	 *            the subscriber
+	 * @param <E>
+	 *            the type of the events
+	 * @return the subscriber
+	 */
+	public synchronized <E> Subscriber<E> add(EventBus<E> bus, Subscriber<E> subscriber) {
+		if (subscribers == null) {
+			bus.unsubscribe(subscriber);
+			throw new IllegalStateException("The scope is closed");
+		}
+		subscribers.add(new Pair<>(bus, subscriber));
+		return subscriber;
+	}
+
+	/**
+	 * Get the number of subscriptions owned by this scope
+	 * 
+	 * @return the number of subscriptions
+	 */
+	public synchronized int size() {
+		return subscribers == null ? 0 : subscribers.size();
+	}
+
+	/**
+	 * Get if this scope has been closed
+	 * 
+	 * @return true if the scope is closed
+	 */
+	public synchronized boolean isClosed() {
+		return subscribers == null;
+	}
+
+	/**
+	 * Unregister all the subscriptions of this scope, the scope can't be used after
+	 */
+	@Override
+	public void close() {
+		List<Pair<EventBus, Subscriber>> toRemove;
+		synchronized (this) {
+			toRemove = subscribers;
+			subscribers = null;
+		}
+		if (toRemove != null) Events.unregister(toRemove);
+	}
+}
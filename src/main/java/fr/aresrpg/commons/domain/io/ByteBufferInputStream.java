@@ -24,18 +24,20 @@ public class ByteBufferInputStream extends InputStream {
 
 	@Override
 	public int read() throws IOException {
-		return buffer.get();
+		return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
 	}
 
 	@Override
-	public int read(byte[] b) throws IOException {
-		buffer.get(b);
-		return b.length;
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) return 0;
+		if (!buffer.hasRemaining()) return -1;
+		int read = Math.min(len, buffer.remaining());
+		buffer.get(b, off, read);
+		return read;
 	}
 
 	@Override
-	public int read(byte[] b, int off, int len) throws IOException {
-		buffer.get(b, off, len);
-		return len;
+	public int available() throws IOException {
+		return buffer.remaining();
 	}
 }
@@ -1,11 +1,15 @@
 package fr.aresrpg.commons.domain.log;
 
+import java.util.Arrays;
+
 /**
  * A logger message with is context
  * 
  * @author Duarte David {@literal <deltaduartedavid@gmail.com>}
  */
 public class Log {
+	private static final int MAX_BUFFERED_ARGS = 8;
+
 	private Logger.Level level;
 	private String channel;
 	private String message;
@@ -15,7 +19,12 @@ public class Log {
 	private long millis;
 	private Thread thread;
 	private StackTraceElement source;
+	private boolean sourcePending;
 	private Logger logger;
+	private MessageTemplate template;
+	private boolean pooled;
+	private Object[][] argsBuffers; // The copied args by length, only allocated by copy
+	boolean inUse; // NOSONAR managed by the logger owning the pooled instance
 
 	/**
 	 * Create a new logged message
@@ -54,6 +63,147 @@ public class Log {
 		this.logger = logger;
 	}
 
+	/**
+	 * Create a new logged message whose source is only captured if it is asked on the thread of the log
+	 * 
+	 * @param level
+	 *            the level of this log
+	 * @param channel
+	 *            the channel were the message is logged
+	 * @param message
+	 *            the message of this log
+	 * @param baseMessage
+	 *            the base message without replaced variables
+	 * @param args
+	 *            the args passed to this log
+	 * @param throwable
+	 *            the throwable of this log
+	 * @param millis
+	 *            the time of the log
+	 * @param thread
+	 *            the thread were the log has bean created
+	 * @param captureSource
+	 *            if the source can be captured on demand
+	 * @param logger
+	 *            the logger used
+	 */
+	public Log(Logger.Level level, String channel, String message, String baseMessage, Object[] args, Throwable throwable, long millis, Thread thread, boolean captureSource,
+			Logger logger) {
+		this(level, channel, message, baseMessage, args, throwable, millis, thread, null, logger);
+		this.sourcePending = captureSource;
+	}
+
+	/**
+	 * Create a reusable log, filled by {@link #set(Logger.Level, String, MessageTemplate, Object[], Throwable, long, Thread, boolean, Logger)}
+	 */
+	Log() {
+		this.pooled = true;
+	}
+
+	/**
+	 * Reset this pooled log, its message is only rendered if asked with {@link #getMessage()}
+	 */
+	void set(Logger.Level level, String channel, MessageTemplate template, Object[] args, Throwable throwable, long millis, Thread thread, boolean captureSource, Logger logger) {
+		this.level = level;
+		this.channel = channel;
+		this.template = template;
+		this.message = null;
+		this.baseMessage = template.getMessage();
+		this.args = args;
+		this.throwable = throwable;
+		this.millis = millis;
+		this.thread = thread;
+		this.source = null;
+		this.sourcePending = captureSource;
+		this.logger = logger;
+	}
+
+	/**
+	 * Create an empty reusable log filled by {@link #copy(Log)}, used by the handlers buffering logs without allocating
+	 * 
+	 * @return the log
+	 */
+	public static Log reusable() {
+		return new Log();
+	}
+
+	/**
+	 * Copy a log in this reusable log.<br>
+	 * The message is not rendered and the args are copied in arrays owned by this log, so copying the logs of the same arity never allocates
+	 * 
+	 * @param log
+	 *            the log to copy, its source must already be captured
+	 * @throws IllegalStateException
+	 *             if this log is not {@link #isPooled() pooled}
+	 */
+	public void copy(Log log) {
+		if (!pooled) throw new IllegalStateException("Only a pooled log can be reused");
+		this.level = log.level;
+		this.channel = log.channel;
+		this.template = log.template;
+		this.message = log.message;
+		this.baseMessage = log.baseMessage;
+		this.args = copyArgs(log.args);
+		this.throwable = log.throwable;
+		this.millis = log.millis;
+		this.thread = log.thread;
+		this.source = log.source;
+		this.sourcePending = false;
+		this.logger = log.logger;
+	}
+
+	private Object[] copyArgs(Object[] from) {
+		if (from == null) return null;
+		if (from.length > MAX_BUFFERED_ARGS) return from.clone();
+		if (argsBuffers == null) argsBuffers = new Object[MAX_BUFFERED_ARGS + 1][];
+		Object[] to = argsBuffers[from.length];
+		if (to == null) to = argsBuffers[from.length] = new Object[from.length];
+		System.arraycopy(from, 0, to, 0, from.length);
+		return to;
+	}
+
+	/**
+	 * Clear the references of this pooled log once handled
+	 */
+	public void clear() {
+		if (!pooled) return;
+		if (args != null && argsBuffers != null && args.length <= MAX_BUFFERED_ARGS && args == argsBuffers[args.length]) Arrays.fill(args, null);
+		this.args = null;
+		this.throwable = null;
+		this.message = null;
+		this.source = null;
+	}
+
+	/**
+	 * Get if this log is reused by its logger, a pooled log is only valid during the call to the handlers
+	 * 
+	 * @return true if this log is pooled
+	 */
+	public boolean isPooled() {
+		return pooled;
+	}
+
+	/**
+	 * Get a log that stays valid after the call to the handlers, handlers keeping logs must use it
+	 * 
+	 * @return this log or a copy if it is pooled
+	 */
+	public Log snapshot() {
+		if (!pooled) return this;
+		return new Log(level, channel, getMessage(), baseMessage, args == null ? null : args.clone(), throwable, millis, thread, source, logger);
+	}
+
+	/**
+	 * Append the message of this log to the builder without rendering it as a string
+	 * 
+	 * @param builder
+	 *            the builder
+	 * @return the builder
+	 */
+	public StringBuilder appendMessage(StringBuilder builder) {
+		return message != null || template == null ? builder.append(message) : template.appendTo(builder, args);
+	}
+
 	/**
 	 * Get the level of this log
 	 * 
@@ -78,6 +228,7 @@ public class Log {
 	 * @return the message
 	 */
 	public String getMessage() {
+		if (message == null && template != null) message = template.format(args);
 		return message;
 	}
 
@@ -127,14 +278,32 @@ public class Log {
 	}
 
 	/**
-	 * Get the source of this log
+	 * Get the source of this log, captured on the first call if it is made on the thread of the log
 	 * 
-	 * @return the source
+	 * @return the source or null if it has not been captured
 	 */
 	public StackTraceElement getSource() {
+		captureSource();
 		return source;
 	}
 
+	/**
+	 * Capture the source of this log now if it can be captured, must be called on the thread of the log before passing it to another thread
+	 */
+	public void captureSource() {
+		if (!sourcePending || Thread.currentThread() != thread) return;
+		sourcePending = false;
+		StackTraceElement[] elements = new Throwable().getStackTrace();
+		String loggerClass = logger.getClass().getName();
+		for (int i = elements.length - 1; i >= 0; i--) {
+			String name = elements[i].getClassName();
+			if (name.equals(loggerClass) || name.equals(Logger.class.getName())) { // The first frame after the outermost logger call
+				source = i + 1 < elements.length ? elements[i + 1] : null;
+				return;
+			}
+		}
+	}
+
 	/**
 	 * Get the logger of this log
 	 * 
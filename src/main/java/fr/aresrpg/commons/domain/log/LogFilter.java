@@ -0,0 +1,34 @@
+package fr.aresrpg.commons.domain.log;
+
+/**
+ * A stage of the {@link Logger} deciding if a log is sent to the handlers.<br>
+ * Filters are called after the level and channel checks and before the message is formatted, they only see the message without its arguments
+ */
+@FunctionalInterface
+public interface LogFilter {
+	/**
+	 * Get if a log must be sent to the handlers
+	 * 
+	 * @param logger
+	 *            the logger of the log
+	 * @param level
+	 *            the level of the log
+	 * @param channel
+	 *            the channel of the log, may be null
+	 * @param message
+	 *            the message of the log without replaced arguments
+	 * @param throwable
+	 *            the throwable of the log, may be null
+	 * @return true to keep the log
+	 */
+	boolean accept(Logger logger, Logger.Level level, String channel, String message, Throwable throwable);
+
+	/**
+	 * Called when the logger is flushed or closed before its handlers, a filter holding back counts or logs must send them now
+	 * 
+	 * @param logger
+	 *            the logger
+	 */
+	default void flush(Logger logger) {
+	}
+}
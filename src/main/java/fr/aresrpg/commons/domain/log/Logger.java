@@ -3,10 +3,11 @@ package fr.aresrpg.commons.domain.log;
 import fr.aresrpg.commons.domain.condition.Option;
 import fr.aresrpg.commons.domain.log.handler.Handler;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 /**
@@ -14,7 +15,7 @@ import java.util.regex.Pattern;
  * 
  * @author Duarte David {@literal <deltaduartedavid@gmail.com>}
  */
-public class Logger {
+public class Logger implements Closeable {
 	/**
 	 * The logger of AresCommons
 	 */
@@ -36,26 +37,54 @@ public class Logger {
 	 * @author Duarte David {@literal <deltaduartedavid@gmail.com>}
 	 */
 	public enum Level {
-		INFO(false),
-		SUCCESS(false),
-		WARNING(false),
-		DEBUG(false),
-		ERROR(true),
-		SEVERE(true);
-
+		INFO(1, false),
+		SUCCESS(2, false),
+		WARNING(3, false),
+		DEBUG(0, false),
+		ERROR(4, true),
+		SEVERE(5, true);
+
+		private final int severity;
 		private final boolean error;
 
-		Level(boolean error) {
+		Level(int severity, boolean error) {
+			this.severity = severity;
 			this.error = error;
 		}
 
 		public boolean isError() {
 			return error;
 		}
+
+		/**
+		 * Get the severity of this level, {@link #DEBUG} is the least severe and {@link #SEVERE} the most
+		 * 
+		 * @return the severity
+		 */
+		public int getSeverity() {
+			return severity;
+		}
+
+		/**
+		 * Get if this level is at least as severe as the other level
+		 * 
+		 * @param other
+		 *            the other level
+		 * @return true if this level is as severe or more severe
+		 */
+		public boolean isAtLeast(Level other) {
+			return severity >= other.severity;
+		}
 	}
 
 	private final String name;
 	private final List<Handler> handlers;
+	private volatile Level level = Level.DEBUG;
+	private volatile Predicate<String> channelFilter;
+	private volatile Set<Level> sourceLevels = EnumSet.allOf(Level.class);
+	private volatile boolean garbageFree;
+	private final List<LogFilter> filters = new CopyOnWriteArrayList<>();
+	private final ThreadLocal<Log> pool = ThreadLocal.withInitial(Log::new);
 
 	/**
 	 * Create a new logger
@@ -623,21 +652,7 @@ public class Logger {
 	}
 
 	private String processArgs(String message, Object... args) {
-		if (args == null) return message;
-		StringBuilder sb = new StringBuilder();
-		Matcher matcher = ARGS_PATTERN.matcher(message);
-		int index = 0;
-		int i = 0;
-		while (true) {
-			if (!matcher.find()) {
-				sb.append(message.substring(index));
-				return sb.toString();
-			}
-			String n = matcher.group(1);
-			sb.append(message.substring(index, matcher.start()));
-			if (args.length != 0) sb.append(args[n == null ? i++ : Integer.parseInt(n)]);
-			index = matcher.end();
-		}
+		return MessageTemplate.of(message).format(args);
 	}
 
 	/**
@@ -651,23 +666,202 @@ public class Logger {
 	}
 
 	private void broadcast(Level level, String channel, String message, Object[] args, Throwable t) {
-		Log log = new Log(level, channel, processArgs(message, args), message, args, t, System.currentTimeMillis(), Thread.currentThread(), findSource(), this);
+		if (!isLoggable(level, channel)) return; // Before any formatting or stack walking
+		for (int i = 0; i < filters.size(); i++)
+			if (!filters.get(i).accept(this, level, channel, message, t)) return;
+		if (garbageFree) {
+			broadcastPooled(level, channel, message, args, t);
+			return;
+		}
+		dispatch(new Log(level, channel, processArgs(message, args), message, args, t, System.currentTimeMillis(), Thread.currentThread(), sourceLevels.contains(level), this));
+	}
+
+	private void broadcastPooled(Level level, String channel, String message, Object[] args, Throwable t) {
+		Log log = pool.get();
+		if (log.inUse) log = new Log(); // A handler is logging, the pooled log is still being handled
+		log.inUse = true;
 		try {
-			for (Handler handler : handlers)
-				handler.handle(log);
+			log.set(level, channel, MessageTemplate.of(message), args, t, System.currentTimeMillis(), Thread.currentThread(), sourceLevels.contains(level), this);
+			dispatch(log);
+		} finally {
+			log.clear();
+			log.inUse = false;
+		}
+	}
+
+	private void dispatch(Log log) {
+		try {
+			for (int i = 0; i < handlers.size(); i++) {
+				Handler handler = handlers.get(i);
+				if (handler.isLoggable(log.getLevel(), log.getChannel())) handler.handle(log);
+			}
 		} catch (IOException e) {
 			MAIN_LOGGER.severe(e);
 		}
 	}
 
-	private StackTraceElement findSource() {
-		StackTraceElement[] elements = Thread.currentThread().getStackTrace();
-		for (int i = 1; i < elements.length; i++) {
-			StackTraceElement element = elements[i];
-			if (!element.getClassName().equals(getClass().getName())) // Ignore logger calls
-				return element;
+	/**
+	 * Add a filter called before the logs are formatted, the filters are called in their order of addition
+	 * 
+	 * @param filter
+	 *            the filter to add
+	 */
+	public void addFilter(LogFilter filter) {
+		filters.add(filter);
+	}
+
+	/**
+	 * Remove a filter of this logger
+	 * 
+	 * @param filter
+	 *            the filter to remove
+	 */
+	public void removeFilter(LogFilter filter) {
+		filters.remove(filter);
+	}
+
+	/**
+	 * Get the filters of this logger
+	 * 
+	 * @return an unmodifiable view of the filters
+	 */
+	public List<LogFilter> getFilters() {
+		return Collections.unmodifiableList(filters);
+	}
+
+	/**
+	 * Set if this logger reuses its logs instead of allocating them.<br>
+	 * In garbage-free mode the message is only rendered in the buffers of the handlers and a {@link Log} is only valid during the call to the handlers,
+	 * a handler keeping a log must keep its {@link Log#snapshot()}. An asynchronous logger copies the logs in preallocated logs and renders them on its background thread
+	 * 
+	 * @param garbageFree
+	 *            true to reuse the logs
+	 */
+	public void setGarbageFree(boolean garbageFree) {
+		this.garbageFree = garbageFree;
+	}
+
+	/**
+	 * Get if this logger reuses its logs
+	 * 
+	 * @return true if the logs are reused
+	 */
+	public boolean isGarbageFree() {
+		return garbageFree;
+	}
+
+	/**
+	 * Get if a log of this level and channel would be handled by at least one handler.<br>
+	 * Use it to guard expensive arguments, a log rejected here costs no formatting
+	 * 
+	 * @param level
+	 *            the level
+	 * @param channel
+	 *            the channel
+	 * @return true if the log would be handled
+	 */
+	public boolean isLoggable(Level level, String channel) {
+		if (!level.isAtLeast(this.level)) return false;
+		Predicate<String> filter = channelFilter;
+		if (filter != null && !filter.test(channel)) return false;
+		for (int i = 0; i < handlers.size(); i++)
+			if (handlers.get(i).isLoggable(level, channel)) return true;
+		return false;
+	}
+
+	/**
+	 * Get if a log of this level in the default channel would be handled by at least one handler
+	 * 
+	 * @param level
+	 *            the level
+	 * @return true if the log would be handled
+	 * @see #isLoggable(Level, String)
+	 */
+	public boolean isLoggable(Level level) {
+		return isLoggable(level, DEFAULT_CHANEL);
+	}
+
+	/**
+	 * Set the least severe level handled by this logger
+	 * 
+	 * @param level
+	 *            the minimum level
+	 */
+	public void setLevel(Level level) {
+		this.level = level;
+	}
+
+	/**
+	 * Get the least severe level handled by this logger
+	 * 
+	 * @return the minimum level
+	 */
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Set the filter of the channels handled by this logger
+	 * 
+	 * @param channelFilter
+	 *            the filter, tested with the channel of each log which may be null, or null to accept all channels
+	 */
+	public void setChannelFilter(Predicate<String> channelFilter) {
+		this.channelFilter = channelFilter;
+	}
+
+	/**
+	 * Get the filter of the channels handled by this logger
+	 * 
+	 * @return the filter or null if all channels are accepted
+	 */
+	public Predicate<String> getChannelFilter() {
+		return channelFilter;
+	}
+
+	/**
+	 * Set the levels of the logs whose source can be captured.<br>
+	 * The source is only captured when a handler asks it with {@link Log#getSource()}, walking the stack is expensive so it can be restricted to the errors
+	 * 
+	 * @param levels
+	 *            the levels
+	 */
+	public void setSourceLevels(Set<Level> levels) {
+		this.sourceLevels = levels.isEmpty() ? EnumSet.noneOf(Level.class) : EnumSet.copyOf(levels);
+	}
+
+	/**
+	 * Get the levels of the logs whose source can be captured
+	 * 
+	 * @return the levels
+	 */
+	public Set<Level> getSourceLevels() {
+		return Collections.unmodifiableSet(sourceLevels);
+	}
+
+	/**
+	 * Flush the filters and the handlers of this logger
+	 */
+	public void flush() {
+		for (int i = 0; i < filters.size(); i++)
+			filters.get(i).flush(this);
+		try {
+			for (Handler handler : handlers)
+				handler.flush();
+		} catch (IOException e) {
+			MAIN_LOGGER.severe(e);
 		}
-		return null;
+	}
+
+	/**
+	 * Close the handlers of this logger, an asynchronous logger writes its pending logs before returning
+	 */
+	@Override
+	public void close() throws IOException {
+		for (int i = 0; i < filters.size(); i++)
+			filters.get(i).flush(this);
+		for (Handler handler : handlers)
+			handler.close();
 	}
 
 	/**
@@ -3,12 +3,19 @@ package fr.aresrpg.commons.domain.log;
 import fr.aresrpg.commons.domain.builder.Builder;
 import fr.aresrpg.commons.domain.condition.Option;
 import fr.aresrpg.commons.domain.functional.suplier.Supplier;
+import fr.aresrpg.commons.domain.log.handler.AsyncHandler;
+import fr.aresrpg.commons.domain.log.handler.AsyncHandler.OverflowPolicy;
 import fr.aresrpg.commons.domain.log.handler.ConsoleHandler;
 import fr.aresrpg.commons.domain.log.handler.Handler;
+import fr.aresrpg.commons.domain.log.handler.StreamHandler;
 import fr.aresrpg.commons.domain.log.handler.formatters.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -20,6 +27,14 @@ import java.util.stream.Collectors;
 public class LoggerBuilder implements Builder<Logger> {
 	private List<Supplier<Handler>> handlers;
 	private final String name;
+	private boolean asynchronous;
+	private int capacity = AsyncHandler.DEFAULT_CAPACITY;
+	private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+	private Logger.Level level = Logger.Level.DEBUG;
+	private Predicate<String> channelFilter;
+	private Set<Logger.Level> sourceLevels = EnumSet.allOf(Logger.Level.class);
+	private boolean garbageFree;
+	private List<LogFilter> filters = new ArrayList<>();
 
 	/**
 	 * Create a new logger builder
@@ -85,6 +100,96 @@ public class LoggerBuilder implements Builder<Logger> {
 		return this;
 	}
 
+	/**
+	 * Make the handlers of the logger run on a background thread, see {@link AsyncHandler}
+	 * 
+	 * @param asynchronous
+	 *            if the logger must be asynchronous
+	 * @param capacity
+	 *            the number of logs buffered before applying the overflow policy
+	 * @param overflowPolicy
+	 *            the policy applied when the buffer is full
+	 * @return this
+	 */
+	public LoggerBuilder setAsynchronous(boolean asynchronous, int capacity, OverflowPolicy overflowPolicy) {
+		this.asynchronous = asynchronous;
+		this.capacity = capacity;
+		this.overflowPolicy = overflowPolicy;
+		return this;
+	}
+
+	/**
+	 * Make the handlers of the logger run on a background thread with a buffer of {@link AsyncHandler#DEFAULT_CAPACITY} blocking when full
+	 * 
+	 * @param asynchronous
+	 *            if the logger must be asynchronous
+	 * @return this
+	 */
+	public LoggerBuilder setAsynchronous(boolean asynchronous) {
+		return setAsynchronous(asynchronous, AsyncHandler.DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+	}
+
+	/**
+	 * Set the least severe level handled by the logger, the less severe logs are rejected before being formatted
+	 * 
+	 * @param level
+	 *            the minimum level
+	 * @return this
+	 */
+	public LoggerBuilder setLevel(Logger.Level level) {
+		this.level = level;
+		return this;
+	}
+
+	/**
+	 * Set the filter of the channels handled by the logger
+	 * 
+	 * @param channelFilter
+	 *            the filter, tested with the channel of each log which may be null, or null to accept all channels
+	 * @return this
+	 */
+	public LoggerBuilder setChannelFilter(Predicate<String> channelFilter) {
+		this.channelFilter = channelFilter;
+		return this;
+	}
+
+	/**
+	 * Set the levels of the logs whose source can be captured, see {@link Logger#setSourceLevels(Set)}
+	 * 
+	 * @param levels
+	 *            the levels
+	 * @return this
+	 */
+	public LoggerBuilder setSourceLevels(Logger.Level... levels) {
+		this.sourceLevels = EnumSet.noneOf(Logger.Level.class);
+		Collections.addAll(sourceLevels, levels);
+		return this;
+	}
+
+	/**
+	 * Set if the logger reuses its logs instead of allocating them, see {@link Logger#setGarbageFree(boolean)}
+	 * 
+	 * @param garbageFree
+	 *            true to reuse the logs
+	 * @return this
+	 */
+	public LoggerBuilder setGarbageFree(boolean garbageFree) {
+		this.garbageFree = garbageFree;
+		return this;
+	}
+
+	/**
+	 * Add a filter to the logger, see {@link Logger#addFilter(LogFilter)}
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @return this
+	 */
+	public LoggerBuilder addFilter(LogFilter filter) {
+		filters.add(filter);
+		return this;
+	}
+
 	/**
 	 * Build the logger
 	 * 
@@ -92,6 +197,21 @@ public class LoggerBuilder implements Builder<Logger> {
 	 */
 	@Override
 	public Logger build() {
-		return new Logger(name, handlers.stream().map(Supplier::get).collect(Collectors.toList()));
+		List<Handler> built = handlers.stream().map(Supplier::get).collect(Collectors.toList());
+		if (asynchronous) {
+			for (Handler handler : built)
+				if (handler instanceof StreamHandler) ((StreamHandler) handler).setAutoFlush(false); // Flushed once per batch
+			AsyncHandler async = new AsyncHandler(built, capacity, overflowPolicy);
+			built = new ArrayList<>();
+			built.add(async);
+		}
+		Logger logger = new Logger(name, built);
+		logger.setLevel(level);
+		logger.setChannelFilter(channelFilter);
+		logger.setSourceLevels(sourceLevels);
+		logger.setGarbageFree(garbageFree);
+		for (LogFilter filter : filters)
+			logger.addFilter(filter);
+		return logger;
 	}
 }
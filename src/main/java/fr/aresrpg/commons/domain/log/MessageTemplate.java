@@ -0,0 +1,144 @@
+package fr.aresrpg.commons.domain.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+
+/**
+ * A log message parsed once into literals and placeholders.<br>
+ * The placeholders follow the {@link Logger#ARGS_PATTERN}, {@code {}} takes the next argument and {@code {n}} the argument n.
+ * When no argument is passed the placeholders are removed
+ */
+public final class MessageTemplate {
+	/**
+	 * The number of slots of the cache, a message evicts the template of the previous message sharing its slot
+	 */
+	public static final int MAX_CACHED = 4096;
+	private static final int MAX_BUILDER_CAPACITY = 8192;
+	private static final int NEXT_ARG = -1;
+	// Direct-mapped by hash, the templates are immutable so a racy read sees a complete template or a miss
+	private static final MessageTemplate[] CACHE = new MessageTemplate[MAX_CACHED];
+	private static final ThreadLocal<Buffer> BUFFER = ThreadLocal.withInitial(Buffer::new);
+
+	private final String message;
+	private final String[] literals;
+	private final int[] indexes;
+
+	private MessageTemplate(String message, String[] literals, int[] indexes) {
+		this.message = message;
+		this.literals = literals;
+		this.indexes = indexes;
+	}
+
+	/**
+	 * Get the template of a message, parsed on the first call
+	 * 
+	 * @param message
+	 *            the message
+	 * @return the template
+	 */
+	public static MessageTemplate of(String message) {
+		int hash = message.hashCode();
+		int slot = (hash ^ hash >>> 16) & MAX_CACHED - 1;
+		MessageTemplate template = CACHE[slot];
+		if (template != null && (template.message == message || template.message.equals(message))) return template; // NOSONAR identity first
+		template = parse(message);
+		CACHE[slot] = template; // Dynamic messages only evict one slot each
+		return template;
+	}
+
+	/**
+	 * Parse a message without caching it
+	 * 
+	 * @param message
+	 *            the message
+	 * @return the template
+	 */
+	public static MessageTemplate parse(String message) {
+		List<String> literals = new ArrayList<>();
+		List<Integer> indexes = new ArrayList<>();
+		Matcher matcher = Logger.ARGS_PATTERN.matcher(message);
+		int index = 0;
+		while (matcher.find()) {
+			String n = matcher.group(1);
+			literals.add(message.substring(index, matcher.start()));
+			indexes.add(n == null ? NEXT_ARG : Integer.parseInt(n));
+			index = matcher.end();
+		}
+		literals.add(message.substring(index));
+		int[] idx = new int[indexes.size()];
+		for (int i = 0; i < idx.length; i++)
+			idx[i] = indexes.get(i);
+		return new MessageTemplate(message, literals.toArray(new String[literals.size()]), idx);
+	}
+
+	/**
+	 * Append the message with its arguments to the builder
+	 * 
+	 * @param builder
+	 *            the builder
+	 * @param args
+	 *            the arguments
+	 * @return the builder
+	 */
+	public StringBuilder appendTo(StringBuilder builder, Object... args) {
+		if (args == null) return builder.append(message);
+		int next = 0;
+		for (int i = 0; i < indexes.length; i++) {
+			builder.append(literals[i]);
+			if (args.length != 0) builder.append(args[indexes[i] == NEXT_ARG ? next++ : indexes[i]]);
+		}
+		return builder.append(literals[indexes.length]);
+	}
+
+	/**
+	 * Format the message with its arguments in a buffer reused by the thread
+	 * 
+	 * @param args
+	 *            the arguments
+	 * @return the formatted message
+	 */
+	public String format(Object... args) {
+		if (args == null || indexes.length == 0) return message;
+		Buffer buffer = BUFFER.get();
+		if (buffer.used) return appendTo(new StringBuilder(), args).toString(); // An argument is logging from its toString
+		buffer.used = true;
+		try {
+			StringBuilder builder = buffer.builder;
+			builder.setLength(0);
+			String result = appendTo(builder, args).toString();
+			if (builder.capacity() > MAX_BUILDER_CAPACITY) buffer.builder = new StringBuilder();
+			return result;
+		} finally {
+			buffer.used = false;
+		}
+	}
+
+	/**
+	 * Get the number of placeholders of this template
+	 * 
+	 * @return the number of placeholders
+	 */
+	public int getPlaceholders() {
+		return indexes.length;
+	}
+
+	/**
+	 * Get the message of this template
+	 * 
+	 * @return the message
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public String toString() {
+		return message;
+	}
+
+	private static final class Buffer {
+		private StringBuilder builder = new StringBuilder();
+		private boolean used;
+	}
+}
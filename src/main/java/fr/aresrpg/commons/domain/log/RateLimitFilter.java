@@ -0,0 +1,141 @@
+package fr.aresrpg.commons.domain.log;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link LogFilter} limiting how often a same log is repeated.<br>
+ * Each message and channel has a token bucket refilled at a fixed rate, a log consumes a token and is suppressed when the bucket is empty.
+ * The buckets are a fixed array indexed by the hash of the message and channel so the memory stays bounded, keys sharing a slot share their limit.
+ * The number of suppressed logs is reported by a summary log with the next accepted occurrence, every summary interval while the logs are still suppressed,
+ * or when the logger is flushed or closed
+ */
+public class RateLimitFilter implements LogFilter {
+	/**
+	 * The message of the summaries, the arguments are the number of suppressed logs and their message
+	 */
+	public static final String SUMMARY = "Suppressed {} occurrences of \"{}\"";
+	private static final long REJECTED = -1;
+
+	private final Bucket[] buckets;
+	private final int mask;
+	private final double permitsPerNano;
+	private final double burst;
+	private final long summaryInterval;
+
+	/**
+	 * Create a new rate limit filter
+	 * 
+	 * @param slots
+	 *            the number of buckets, rounded up to a power of two
+	 * @param permitsPerSecond
+	 *            the number of logs allowed by second for a message once the burst is consumed
+	 * @param burst
+	 *            the number of logs allowed at once for a message
+	 * @param summaryInterval
+	 *            the min delay between two summaries of a message while its logs are suppressed
+	 * @param unit
+	 *            the unit of the delay
+	 */
+	public RateLimitFilter(int slots, double permitsPerSecond, int burst, long summaryInterval, TimeUnit unit) {
+		if (slots <= 0 || slots > 1 << 30) throw new IllegalArgumentException("Invalid slots : " + slots);
+		if (permitsPerSecond <= 0 || burst <= 0) throw new IllegalArgumentException("Invalid rate : " + permitsPerSecond + " with burst " + burst);
+		int size = Integer.highestOneBit(slots);
+		if (size < slots) size <<= 1;
+		this.buckets = new Bucket[size];
+		this.mask = size - 1;
+		this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+		this.burst = burst;
+		this.summaryInterval = unit.toNanos(summaryInterval);
+		long now = System.nanoTime();
+		for (int i = 0; i < size; i++)
+			buckets[i] = new Bucket(burst, now);
+	}
+
+	/**
+	 * Create a new rate limit filter of 1024 slots reporting the suppressed logs every minute
+	 * 
+	 * @param permitsPerSecond
+	 *            the number of logs allowed by second for a message once the burst is consumed
+	 * @param burst
+	 *            the number of logs allowed at once for a message
+	 */
+	public RateLimitFilter(double permitsPerSecond, int burst) {
+		this(1024, permitsPerSecond, burst, 1, TimeUnit.MINUTES);
+	}
+
+	@Override
+	public boolean accept(Logger logger, Logger.Level level, String channel, String message, Throwable throwable) {
+		if (SUMMARY.equals(message)) return true; // The summaries are never limited
+		int hash = 31 * Objects.hashCode(channel) + Objects.hashCode(message);
+		Bucket bucket = buckets[(hash ^ hash >>> 16) & mask];
+		long result = bucket.acquire(System.nanoTime(), permitsPerNano, burst, summaryInterval, level, channel, message);
+		long suppressed = result >= 0 ? result : -result - 1;
+		if (suppressed > 0) logger.log(level, channel, SUMMARY, suppressed, message);
+		return result >= 0;
+	}
+
+	/**
+	 * Report the logs suppressed since their last summary
+	 */
+	@Override
+	public void flush(Logger logger) {
+		long now = System.nanoTime();
+		for (Bucket bucket : buckets) {
+			Logger.Level level;
+			String channel;
+			String message;
+			long suppressed;
+			synchronized (bucket) {
+				if (bucket.suppressed == 0) continue;
+				level = bucket.level;
+				channel = bucket.channel;
+				message = bucket.message;
+				suppressed = bucket.report(now);
+			}
+			logger.log(level, channel, SUMMARY, suppressed, message);
+		}
+	}
+
+	private static final class Bucket {
+		private double tokens;
+		private long refilled;
+		private long summarized;
+		private long suppressed;
+		private Logger.Level level; // The last suppressed log
+		private String channel;
+		private String message;
+
+		private Bucket(double tokens, long now) {
+			this.tokens = tokens;
+			this.refilled = now;
+			this.summarized = now;
+		}
+
+		/**
+		 * @return the number of suppressed logs to report if the log is accepted, or minus one minus this number if it is suppressed
+		 */
+		private synchronized long acquire(long now, double permitsPerNano, double burst, long summaryInterval, Logger.Level level, String channel, String message) {
+			tokens = Math.min(burst, tokens + (now - refilled) * permitsPerNano);
+			refilled = now;
+			if (tokens >= 1) {
+				tokens--;
+				return report(now);
+			}
+			suppressed++;
+			this.level = level;
+			this.channel = channel;
+			this.message = message;
+			if (now - summarized < summaryInterval) return REJECTED;
+			return -report(now) - 1;
+		}
+
+		private long report(long now) {
+			long count = suppressed;
+			suppressed = 0;
+			summarized = now;
+			message = null;
+			return count;
+		}
+	}
+}
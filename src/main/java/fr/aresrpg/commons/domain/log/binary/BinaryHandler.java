@@ -0,0 +1,189 @@
+package fr.aresrpg.commons.domain.log.binary;
+
+import static fr.aresrpg.commons.domain.log.binary.BinaryLogFormat.*;
+
+import fr.aresrpg.commons.domain.log.Log;
+import fr.aresrpg.commons.domain.log.handler.BaseHandler;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * An handler writing the logs in a compact binary layout instead of rendering them.<br>
+ * The template of the message and its raw arguments are written, so the cost of formatting is only paid when the logs are read with the {@link BinaryLogDecoder}.
+ * The logs are buffered and written when the buffer is full or when the handler is flushed, wrap it in an {@link fr.aresrpg.commons.domain.log.handler.AsyncHandler AsyncHandler} to flush it regularly.
+ * Arguments other than primitive wrappers and strings are written with their {@link Object#toString()}
+ */
+public class BinaryHandler extends BaseHandler {
+	/**
+	 * The default size of the buffer, it grows when a single log does not fit in it
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+	private final WritableByteChannel channel;
+	private final Map<String, Integer> channels = new HashMap<>();
+	private final Map<String, Integer> templates = new HashMap<>();
+	private final Map<Thread, Boolean> threads = new WeakHashMap<>();
+	private ByteBuffer buffer;
+	private boolean closed;
+
+	/**
+	 * Create a new binary handler writing to the channel, the header is written unless the channel is a non empty file
+	 * 
+	 * @param channel
+	 *            the channel
+	 * @param bufferSize
+	 *            the size of the buffer
+	 * @throws IOException
+	 *             if the header cannot be written
+	 */
+	public BinaryHandler(WritableByteChannel channel, int bufferSize) throws IOException {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		if (!(channel instanceof FileChannel) || ((FileChannel) channel).size() == 0) buffer.putInt(MAGIC).put(VERSION);
+	}
+
+	/**
+	 * Create a new binary handler appending to the file
+	 * 
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             if the file cannot be opened
+	 */
+	public BinaryHandler(Path file) throws IOException {
+		this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND), DEFAULT_BUFFER_SIZE);
+	}
+
+	@Override
+	public synchronized void handle(Log log) throws IOException {
+		if (closed) throw new IOException("The handler is closed");
+		String template = log.getBaseMessage();
+		Object[] args = log.getArgs();
+		if (template == null) {
+			template = log.getMessage();
+			args = null;
+		}
+		Thread thread = log.getThread();
+		if (thread != null && threads.put(thread, Boolean.TRUE) == null) {
+			ensure(1 + 8 + 4 + thread.getName().length() * 3);
+			buffer.put(THREAD).putLong(thread.getId());
+			putString(thread.getName());
+		}
+		int channelId = log.getChannel() == null ? NO_ID : define(channels, CHANNEL, log.getChannel());
+		int templateId = define(templates, TEMPLATE, template);
+		String error = log.getThrowable() == null ? null : getErrorFormatter().formatError(log.getLevel(), log.getThrowable());
+		while (true) {
+			int start = buffer.position();
+			try {
+				buffer.put(LOG).putLong(log.getMillis()).put((byte) log.getLevel().ordinal()).putInt(channelId);
+				if (channelId == INLINE) putString(log.getChannel());
+				buffer.putInt(templateId);
+				if (templateId == INLINE) putString(template);
+				buffer.putLong(thread == null ? -1 : thread.getId());
+				putArgs(args);
+				buffer.put((byte) (error == null ? 0 : 1));
+				if (error != null) putString(error);
+				return;
+			} catch (BufferOverflowException e) { // NOSONAR the log is written again once the buffer is emptied or grown
+				buffer.position(start);
+				ensure(start == 0 ? buffer.capacity() * 2 : buffer.capacity());
+			}
+		}
+	}
+
+	private int define(Map<String, Integer> ids, byte type, String value) throws IOException {
+		Integer id = ids.get(value);
+		if (id != null) return id;
+		if (ids.size() >= MAX_DEFINITIONS) return INLINE; // Messages built dynamically are not kept
+		int next = ids.size();
+		ensure(1 + 4 + 4 + value.length() * 3);
+		buffer.put(type).putInt(next);
+		putString(value);
+		ids.put(value, next);
+		return next;
+	}
+
+	private void putArgs(Object[] args) {
+		if (args == null) {
+			buffer.putShort((short) -1);
+			return;
+		}
+		int count = Math.min(args.length, Short.MAX_VALUE);
+		buffer.putShort((short) count);
+		for (int i = 0; i < count; i++)
+			putArg(args[i]);
+	}
+
+	private void putArg(Object arg) {
+		if (arg == null) buffer.put(TAG_NULL);
+		else if (arg instanceof Boolean) buffer.put((Boolean) arg ? TAG_TRUE : TAG_FALSE);
+		else if (arg instanceof Byte) buffer.put(TAG_BYTE).put((Byte) arg);
+		else if (arg instanceof Short) buffer.put(TAG_SHORT).putShort((Short) arg);
+		else if (arg instanceof Character) buffer.put(TAG_CHAR).putChar((Character) arg);
+		else if (arg instanceof Integer) buffer.put(TAG_INT).putInt((Integer) arg);
+		else if (arg instanceof Long) buffer.put(TAG_LONG).putLong((Long) arg);
+		else if (arg instanceof Float) buffer.put(TAG_FLOAT).putFloat((Float) arg);
+		else if (arg instanceof Double) buffer.put(TAG_DOUBLE).putDouble((Double) arg);
+		else {
+			buffer.put(TAG_STRING);
+			putString(String.valueOf(arg));
+		}
+	}
+
+	private void putString(String s) {
+		int start = buffer.position();
+		buffer.putInt(0);
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) buffer.put((byte) c);
+			else if (c < 0x800) buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+			else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				buffer.put((byte) (0xF0 | cp >> 18)).put((byte) (0x80 | cp >> 12 & 0x3F)).put((byte) (0x80 | cp >> 6 & 0x3F)).put((byte) (0x80 | cp & 0x3F));
+			} else if (Character.isSurrogate(c)) buffer.put((byte) '?');
+			else buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+		}
+		buffer.putInt(start, buffer.position() - start - 4);
+	}
+
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() >= bytes) return;
+		writeBuffer();
+		if (buffer.capacity() < bytes) buffer = ByteBuffer.allocateDirect(Math.max(bytes, buffer.capacity() * 2));
+	}
+
+	private void writeBuffer() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	@Override
+	public synchronized void flush() throws IOException {
+		if (!closed) writeBuffer();
+	}
+
+	/**
+	 * Write the buffered logs and close the channel
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) return;
+		closed = true;
+		try {
+			writeBuffer();
+		} finally {
+			channel.close();
+		}
+	}
+}
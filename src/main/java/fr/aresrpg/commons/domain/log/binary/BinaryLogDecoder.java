@@ -0,0 +1,366 @@
+package fr.aresrpg.commons.domain.log.binary;
+
+import static fr.aresrpg.commons.domain.log.binary.BinaryLogFormat.*;
+
+import fr.aresrpg.commons.domain.log.Logger;
+import fr.aresrpg.commons.domain.log.MessageTemplate;
+import fr.aresrpg.commons.domain.log.handler.formatters.CachedDateFormat;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A reader of the logs written by a {@link BinaryHandler}, the logs can be rendered as text or as JSON.<br>
+ * Run it with {@code BinaryLogDecoder <file> [--json]} to print a file
+ */
+public class BinaryLogDecoder implements Closeable {
+	private static final CachedDateFormat DATE_FORMAT = new CachedDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+	private static final Logger.Level[] LEVELS = Logger.Level.values();
+
+	private final DataInputStream in;
+	private final Map<Integer, String> channels = new HashMap<>();
+	private final Map<Integer, String> templates = new HashMap<>();
+	private final Map<Long, String> threads = new HashMap<>();
+
+	/**
+	 * Create a new decoder and read the header of the stream
+	 * 
+	 * @param in
+	 *            the stream written by a {@link BinaryHandler}
+	 * @throws IOException
+	 *             if the stream is not a binary log
+	 */
+	public BinaryLogDecoder(InputStream in) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+		if (this.in.readInt() != MAGIC) throw new IOException("Not a binary log");
+		byte version = this.in.readByte();
+		if (version != VERSION) throw new IOException("Unsupported binary log version : " + version);
+	}
+
+	/**
+	 * Read the next log
+	 * 
+	 * @return the log or null at the end of the stream
+	 * @throws IOException
+	 *             if the stream is corrupted
+	 */
+	public Entry next() throws IOException {
+		try {
+			while (true) {
+				int type = in.read();
+				switch (type) {
+					case -1:
+						return null;
+					case CHANNEL:
+						channels.put(in.readInt(), readString());
+						break;
+					case TEMPLATE:
+						templates.put(in.readInt(), readString());
+						break;
+					case THREAD:
+						threads.put(in.readLong(), readString());
+						break;
+					case LOG:
+						return readLog();
+					default:
+						throw new IOException("Unknown record type : " + type);
+				}
+			}
+		} catch (EOFException e) { // NOSONAR the last record was cut when the process stopped
+			return null;
+		}
+	}
+
+	private Entry readLog() throws IOException {
+		long millis = in.readLong();
+		int level = in.readByte();
+		if (level < 0 || level >= LEVELS.length) throw new IOException("Unknown level : " + level);
+		String channel = readReference(channels);
+		String template = readReference(templates);
+		long thread = in.readLong();
+		Object[] args = readArgs();
+		String error = in.readByte() == 0 ? null : readString();
+		return new Entry(millis, LEVELS[level], channel, template, args, thread, threads.get(thread), error);
+	}
+
+	private String readReference(Map<Integer, String> ids) throws IOException {
+		int id = in.readInt();
+		if (id == NO_ID) return null;
+		if (id == INLINE) return readString();
+		String value = ids.get(id);
+		if (value == null) throw new IOException("Undefined id : " + id);
+		return value;
+	}
+
+	private Object[] readArgs() throws IOException {
+		int count = in.readShort();
+		if (count < 0) return null; // NOSONAR no args array is not the same as an empty one
+		Object[] args = new Object[count];
+		for (int i = 0; i < count; i++)
+			args[i] = readArg();
+		return args;
+	}
+
+	private Object readArg() throws IOException {
+		byte tag = in.readByte();
+		switch (tag) {
+			case TAG_NULL:
+				return null;
+			case TAG_TRUE:
+				return true;
+			case TAG_FALSE:
+				return false;
+			case TAG_BYTE:
+				return in.readByte();
+			case TAG_SHORT:
+				return in.readShort();
+			case TAG_CHAR:
+				return in.readChar();
+			case TAG_INT:
+				return in.readInt();
+			case TAG_LONG:
+				return in.readLong();
+			case TAG_FLOAT:
+				return in.readFloat();
+			case TAG_DOUBLE:
+				return in.readDouble();
+			case TAG_STRING:
+				return readString();
+			default:
+				throw new IOException("Unknown argument tag : " + tag);
+		}
+	}
+
+	private String readString() throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Print a binary log file as text or as JSON with one log per line
+	 * 
+	 * @param args
+	 *            the file and optionally {@code --json}
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		PrintStream out = System.out; // NOSONAR command line tool
+		if (args.length == 0) {
+			out.println("Usage : BinaryLogDecoder <file> [--json]");
+			return;
+		}
+		boolean json = args.length > 1 && "--json".equals(args[1]);
+		try (BinaryLogDecoder decoder = new BinaryLogDecoder(Files.newInputStream(Paths.get(args[0])))) {
+			Entry entry;
+			while ((entry = decoder.next()) != null)
+				out.println(json ? entry.toJson() : entry.toText());
+		}
+	}
+
+	/**
+	 * A log read from a binary log
+	 */
+	public static final class Entry {
+		private final long millis;
+		private final Logger.Level level;
+		private final String channel;
+		private final String template;
+		private final Object[] args;
+		private final long threadId;
+		private final String threadName;
+		private final String error;
+
+		private Entry(long millis, Logger.Level level, String channel, String template, Object[] args, long threadId, String threadName, String error) {
+			this.millis = millis;
+			this.level = level;
+			this.channel = channel;
+			this.template = template;
+			this.args = args;
+			this.threadId = threadId;
+			this.threadName = threadName;
+			this.error = error;
+		}
+
+		/**
+		 * Get the time of this log
+		 * 
+		 * @return the time in milliseconds
+		 */
+		public long getMillis() {
+			return millis;
+		}
+
+		/**
+		 * Get the level of this log
+		 * 
+		 * @return the level
+		 */
+		public Logger.Level getLevel() {
+			return level;
+		}
+
+		/**
+		 * Get the channel of this log
+		 * 
+		 * @return the channel or null
+		 */
+		public String getChannel() {
+			return channel;
+		}
+
+		/**
+		 * Get the message without argument replaced of this log
+		 * 
+		 * @return the template
+		 */
+		public String getTemplate() {
+			return template;
+		}
+
+		/**
+		 * Get the arguments of this log, other objects than primitive wrappers are read as strings
+		 * 
+		 * @return the arguments or null
+		 */
+		public Object[] getArgs() {
+			return args; // NOSONAR read only once
+		}
+
+		/**
+		 * Get the id of the thread of this log
+		 * 
+		 * @return the thread id or -1
+		 */
+		public long getThreadId() {
+			return threadId;
+		}
+
+		/**
+		 * Get the name of the thread of this log
+		 * 
+		 * @return the thread name or null
+		 */
+		public String getThreadName() {
+			return threadName;
+		}
+
+		/**
+		 * Get the formatted stack trace of this log
+		 * 
+		 * @return the stack trace or null
+		 */
+		public String getError() {
+			return error;
+		}
+
+		/**
+		 * Get the message with its arguments
+		 * 
+		 * @return the message
+		 */
+		public String getMessage() {
+			return MessageTemplate.of(template).format(args);
+		}
+
+		/**
+		 * Render this log like the {@link fr.aresrpg.commons.domain.log.handler.formatters.BasicFormatter BasicFormatter} with the date
+		 * 
+		 * @return the text
+		 */
+		public String toText() {
+			StringBuilder sb = new StringBuilder().append('[');
+			DATE_FORMAT.appendTo(sb, millis).append(']').append('[').append(threadName).append(']').append('[').append(level).append(']');
+			if (channel != null) sb.append('[').append(channel).append(']');
+			sb.append(": ").append(getMessage());
+			if (error != null) sb.append('\n').append(error);
+			return sb.toString();
+		}
+
+		/**
+		 * Render this log as a JSON object
+		 * 
+		 * @return the JSON
+		 */
+		public String toJson() {
+			StringBuilder sb = new StringBuilder().append("{\"time\":").append(millis).append(",\"level\":");
+			appendJson(sb, level.name());
+			sb.append(",\"channel\":");
+			appendJson(sb, channel);
+			sb.append(",\"thread\":");
+			appendJson(sb, threadName);
+			sb.append(",\"template\":");
+			appendJson(sb, template);
+			sb.append(",\"message\":");
+			appendJson(sb, getMessage());
+			sb.append(",\"args\":");
+			if (args == null) sb.append("null");
+			else {
+				sb.append('[');
+				for (int i = 0; i < args.length; i++) {
+					if (i > 0) sb.append(',');
+					appendJson(sb, args[i]);
+				}
+				sb.append(']');
+			}
+			sb.append(",\"error\":");
+			appendJson(sb, error);
+			return sb.append('}').toString();
+		}
+
+		private static void appendJson(StringBuilder sb, Object value) {
+			if (value == null || value instanceof Boolean) sb.append(value);
+			else if (value instanceof Number && !(value instanceof Double && !Double.isFinite((Double) value)) && !(value instanceof Float && !Float.isFinite((Float) value)))
+				sb.append(value);
+			else {
+				String s = value.toString();
+				sb.append('"');
+				for (int i = 0; i < s.length(); i++) {
+					char c = s.charAt(i);
+					switch (c) {
+						case '"':
+							sb.append("\\\"");
+							break;
+						case '\\':
+							sb.append("\\\\");
+							break;
+						case '\n':
+							sb.append("\\n");
+							break;
+						case '\r':
+							sb.append("\\r");
+							break;
+						case '\t':
+							sb.append("\\t");
+							break;
+						default:
+							if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+							else sb.append(c);
+					}
+				}
+				sb.append('"');
+			}
+		}
+
+		@Override
+		public String toString() {
+			return toText();
+		}
+	}
+}
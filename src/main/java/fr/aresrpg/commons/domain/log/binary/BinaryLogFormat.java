@@ -0,0 +1,42 @@
+package fr.aresrpg.commons.domain.log.binary;
+
+/**
+ * The layout shared by the {@link BinaryHandler} and the {@link BinaryLogDecoder}.<br>
+ * A file starts with {@link #MAGIC} and {@link #VERSION} followed by records, each starting with its type.
+ * The channels, templates and threads are written once in a definition record and then referenced by their id, the numbers are big endian and the strings are an int length followed by UTF-8 bytes.
+ * <ul>
+ * <li>{@link #CHANNEL} and {@link #TEMPLATE} : int id, string</li>
+ * <li>{@link #THREAD} : long id, string name</li>
+ * <li>{@link #LOG} : long millis, byte level, int channel, int template, long thread, short args count then the tagged args, byte error flag then the string stack trace</li>
+ * </ul>
+ * A channel id of {@link #NO_ID} means no channel, an id of {@link #INLINE} is followed by the string itself when too many channels or templates are defined.
+ * A count of -1 means the log has no args array
+ */
+final class BinaryLogFormat {
+	static final int MAGIC = 0x4152474C;
+	static final byte VERSION = 1;
+
+	static final byte CHANNEL = 1;
+	static final byte TEMPLATE = 2;
+	static final byte THREAD = 3;
+	static final byte LOG = 4;
+
+	static final int NO_ID = -1;
+	static final int INLINE = -2;
+	static final int MAX_DEFINITIONS = 4096;
+
+	static final byte TAG_NULL = 0;
+	static final byte TAG_TRUE = 1;
+	static final byte TAG_FALSE = 2;
+	static final byte TAG_BYTE = 3;
+	static final byte TAG_SHORT = 4;
+	static final byte TAG_CHAR = 5;
+	static final byte TAG_INT = 6;
+	static final byte TAG_LONG = 7;
+	static final byte TAG_FLOAT = 8;
+	static final byte TAG_DOUBLE = 9;
+	static final byte TAG_STRING = 10;
+
+	private BinaryLogFormat() {
+	}
+}
@@ -0,0 +1,288 @@
+package fr.aresrpg.commons.domain.log.handler;
+
+import fr.aresrpg.commons.domain.concurrent.RingBuffer;
+import fr.aresrpg.commons.domain.concurrent.ThreadBuilder;
+import fr.aresrpg.commons.domain.log.Log;
+import fr.aresrpg.commons.domain.log.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * An handler moving the work of other handlers to a background thread.<br>
+ * The logging threads only copy the logs in the preallocated logs of a {@link RingBuffer}, the background thread renders them and passes them to the handlers by batches and
+ * flushes them once per batch, so a {@link Logger#setGarbageFree(boolean) garbage-free} logger stays garbage-free. The handlers keeping a log must keep its {@link Log#snapshot()}.
+ * What happens when the buffer is full depends on the {@link OverflowPolicy}.<br>
+ * The pending logs are written when the handler is closed or when the JVM shuts down, the logs handled once it is closed are dropped as its handlers are closed
+ */
+public class AsyncHandler implements Handler {
+	/**
+	 * The default capacity of the buffer
+	 */
+	public static final int DEFAULT_CAPACITY = 8192;
+	/**
+	 * The max number of logs handled before flushing the handlers
+	 */
+	public static final int BATCH_SIZE = 512;
+	private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long FULL_PARK = TimeUnit.MICROSECONDS.toNanos(50);
+	private static final String LOG_CHANNEL = "AsyncHandler";
+	private static final BiConsumer<Log, Log> COPY = Log::copy;
+
+	/**
+	 * What to do with a log when the buffer is full
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * Wait until the background thread frees a slot
+		 */
+		BLOCK,
+		/**
+		 * Drop the logs less severe than the {@link AsyncHandler#setDropThreshold(Logger.Level) threshold} and wait for the others
+		 */
+		DROP_BELOW_LEVEL,
+		/**
+		 * Keep one log out of {@link AsyncHandler#setSampleRate(int) rate} and drop the others, errors are always kept
+		 */
+		SAMPLE
+	}
+
+	private final List<Handler> handlers;
+	private final RingBuffer<Log> buffer;
+	private final OverflowPolicy policy;
+	private final Thread worker;
+	private final Thread shutdownHook;
+	private final Consumer<Log> consumer = this::consume;
+	private final LongAdder dropped = new LongAdder();
+	private final AtomicLong overflows = new AtomicLong();
+	private long reportedDrops;
+	private volatile long handled;
+	private volatile Logger.Level dropThreshold = Logger.Level.WARNING;
+	private volatile int sampleRate = 100;
+	private volatile boolean captureSource;
+	private volatile boolean sleeping;
+	private volatile boolean running = true;
+	private volatile boolean closed;
+
+	/**
+	 * Create a new asynchronous handler and start its thread
+	 * 
+	 * @param handlers
+	 *            the handlers called on the background thread
+	 * @param capacity
+	 *            the capacity of the buffer
+	 * @param policy
+	 *            the policy applied when the buffer is full
+	 */
+	public AsyncHandler(List<Handler> handlers, int capacity, OverflowPolicy policy) {
+		this.handlers = new ArrayList<>(handlers);
+		this.buffer = new RingBuffer<>(capacity, Log::reusable);
+		this.policy = policy;
+		this.worker = new ThreadBuilder().setName("AsyncHandler-%d").setDaemon(true).setRunnable(this::run).build();
+		this.shutdownHook = new ThreadBuilder().setName("AsyncHandler-Shutdown-%d").setRunnable(this::stop).build();
+		worker.start();
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * Create a new asynchronous handler with a buffer of {@link #DEFAULT_CAPACITY} blocking when full
+	 * 
+	 * @param handlers
+	 *            the handlers called on the background thread
+	 */
+	public AsyncHandler(Handler... handlers) {
+		this(Arrays.asList(handlers), DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+	}
+
+	/**
+	 * Set the level under which logs are dropped with {@link OverflowPolicy#DROP_BELOW_LEVEL}
+	 * 
+	 * @param dropThreshold
+	 *            the least severe level kept when the buffer is full
+	 */
+	public void setDropThreshold(Logger.Level dropThreshold) {
+		this.dropThreshold = dropThreshold;
+	}
+
+	/**
+	 * Set the sampling rate of {@link OverflowPolicy#SAMPLE}
+	 * 
+	 * @param sampleRate
+	 *            one overflowing log out of this rate is kept
+	 */
+	public void setSampleRate(int sampleRate) {
+		if (sampleRate <= 0) throw new IllegalArgumentException("Invalid sample rate : " + sampleRate);
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * Set if the source of the logs must be captured before leaving the logging thread, enable it when a handler uses {@link Log#getSource()}
+	 * 
+	 * @param captureSource
+	 *            true to capture the sources
+	 */
+	public void setCaptureSource(boolean captureSource) {
+		this.captureSource = captureSource;
+	}
+
+	@Override
+	public boolean isLoggable(Logger.Level level, String channel) {
+		for (int i = 0; i < handlers.size(); i++)
+			if (handlers.get(i).isLoggable(level, channel)) return true;
+		return false;
+	}
+
+	@Override
+	public void handle(Log log) throws IOException {
+		if (Thread.currentThread() == worker) { // A handler logging from the background thread would wait for itself
+			dispatch(log);
+			return;
+		}
+		if (closed) {
+			dropped.increment();
+			return;
+		}
+		if (!running) { // Stopped by the shutdown hook, the handlers are still open
+			dispatch(log);
+			return;
+		}
+		if (captureSource) log.captureSource();
+		if (!buffer.offer(log, COPY) && !overflow(log)) { // The log is copied, a pooled log is reused once this call returns
+			dropped.increment();
+			return;
+		}
+		if (sleeping) LockSupport.unpark(worker);
+	}
+
+	private boolean overflow(Log log) {
+		switch (policy) {
+			case DROP_BELOW_LEVEL:
+				if (!log.getLevel().isAtLeast(dropThreshold)) return false;
+				break;
+			case SAMPLE:
+				if (!log.getLevel().isError() && overflows.getAndIncrement() % sampleRate != 0) return false;
+				break;
+			default:
+				break;
+		}
+		while (!buffer.offer(log, COPY)) {
+			if (!running) return false;
+			LockSupport.unpark(worker);
+			LockSupport.parkNanos(FULL_PARK);
+		}
+		return true;
+	}
+
+	private void run() {
+		while (running || !buffer.isEmpty()) {
+			int count = buffer.drain(consumer, BATCH_SIZE);
+			if (count > 0) {
+				flushHandlers();
+				handled += count; // NOSONAR only written by the worker
+				continue;
+			}
+			reportDrops();
+			sleeping = true;
+			if (running && buffer.isEmpty()) LockSupport.parkNanos(this, IDLE_PARK);
+			sleeping = false;
+		}
+		reportDrops();
+		flushHandlers();
+	}
+
+	private void consume(Log log) {
+		dispatch(log);
+		log.clear();
+	}
+
+	private void dispatch(Log log) {
+		for (Handler handler : handlers)
+			try {
+				if (handler.isLoggable(log.getLevel(), log.getChannel())) handler.handle(log);
+			} catch (IOException | RuntimeException e) {
+				e.printStackTrace(); // NOSONAR the logging itself failed
+			}
+	}
+
+	private void flushHandlers() {
+		for (Handler handler : handlers)
+			try {
+				handler.flush();
+			} catch (IOException e) {
+				e.printStackTrace(); // NOSONAR the logging itself failed
+			}
+	}
+
+	private void reportDrops() {
+		long drops = dropped.sum();
+		if (drops == reportedDrops) return;
+		Object[] args = { drops - reportedDrops };
+		reportedDrops = drops;
+		dispatch(new Log(Logger.Level.WARNING, LOG_CHANNEL, args[0] + " logs dropped, the buffer was full", "{} logs dropped, the buffer was full", args, null,
+				System.currentTimeMillis(), worker, null, null));
+	}
+
+	/**
+	 * Get the number of logs dropped since the creation of this handler, including the logs handled once it is closed
+	 * 
+	 * @return the number of dropped logs
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Get the number of logs waiting in the buffer
+	 * 
+	 * @return the number of pending logs
+	 */
+	public int getPending() {
+		return buffer.size();
+	}
+
+	/**
+	 * Wait until all the logs enqueued before this call are handled and flushed
+	 */
+	@Override
+	public void flush() throws IOException {
+		long target = buffer.getOffered();
+		while (running && handled < target) {
+			LockSupport.unpark(worker);
+			LockSupport.parkNanos(FULL_PARK);
+		}
+	}
+
+	private void stop() {
+		running = false;
+		LockSupport.unpark(worker);
+		try {
+			worker.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Write the pending logs, stop the background thread and close the handlers
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed || !running) return;
+		closed = true;
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) { // NOSONAR the JVM is already shutting down and the hook drains the buffer
+		}
+		stop();
+		for (Handler handler : handlers)
+			handler.close();
+	}
+}
@@ -1,9 +1,12 @@
 package fr.aresrpg.commons.domain.log.handler;
 
 import fr.aresrpg.commons.domain.log.Log;
+import fr.aresrpg.commons.domain.log.Logger;
 import fr.aresrpg.commons.domain.log.handler.formatters.ErrorFormatter;
 import fr.aresrpg.commons.domain.log.handler.formatters.Formatter;
 
+import java.util.function.Predicate;
+
 /**
  * An abstract implementation of an handler providing some formatters
  * 
@@ -14,6 +17,10 @@ public abstract class BaseHandler implements Handler {
 
 	private ErrorFormatter errorFormatter = ErrorFormatter.DEFAULT;
 
+	private volatile Logger.Level level = Logger.Level.DEBUG;
+
+	private volatile Predicate<String> channelFilter;
+
 	/**
 	 * Set the log formatter
 	 * 
@@ -52,6 +59,50 @@ public abstract class BaseHandler implements Handler {
 		return errorFormatter;
 	}
 
+	/**
+	 * Set the least severe level handled by this handler
+	 * 
+	 * @param level
+	 *            the minimum level
+	 */
+	public void setLevel(Logger.Level level) {
+		this.level = level;
+	}
+
+	/**
+	 * Get the least severe level handled by this handler
+	 * 
+	 * @return the minimum level
+	 */
+	public Logger.Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Set the filter of the channels handled by this handler
+	 * 
+	 * @param channelFilter
+	 *            the filter, tested with the channel of each log which may be null, or null to accept all channels
+	 */
+	public void setChannelFilter(Predicate<String> channelFilter) {
+		this.channelFilter = channelFilter;
+	}
+
+	/**
+	 * Get the filter of the channels handled by this handler
+	 * 
+	 * @return the filter or null if all channels are accepted
+	 */
+	public Predicate<String> getChannelFilter() {
+		return channelFilter;
+	}
+
+	@Override
+	public boolean isLoggable(Logger.Level level, String channel) {
+		Predicate<String> filter = channelFilter;
+		return level.isAtLeast(this.level) && (filter == null || filter.test(channel));
+	}
+
 	/**
 	 * Format log as string using formatter
 	 * 
@@ -66,4 +117,19 @@ public abstract class BaseHandler implements Handler {
 		return formatter.format(log, errorFormatter);
 	}
 
+	/**
+	 * Format log into the builder using formatter, without rendering it as an intermediate String
+	 * 
+	 * @param log
+	 *            the log to transform
+	 * @param builder
+	 *            the builder receiving the formatted log
+	 * @throws NullPointerException
+	 *             when the formatter is null
+	 */
+	protected void formatTo(Log log, StringBuilder builder) throws NullPointerException {
+		if (formatter == null) throw new NullPointerException("Logger formatter not found");
+		formatter.formatTo(log, errorFormatter, builder);
+	}
+
 }
@@ -0,0 +1,244 @@
+package fr.aresrpg.commons.domain.log.handler;
+
+import fr.aresrpg.commons.domain.concurrent.ThreadBuilder;
+import fr.aresrpg.commons.domain.concurrent.ThreadPoolBuilder;
+import fr.aresrpg.commons.domain.log.Log;
+import fr.aresrpg.commons.domain.log.handler.formatters.BasicFormatter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An handler writing the logs to a file through a direct buffer.<br>
+ * The buffer is written to the file when it is full, when the handler is flushed and periodically, so a log costs no system call.
+ * The file can be rolled when it reaches a size or when the day changes, the rolled files are named {@code name-date-index.ext} and compressed in background
+ */
+public class FileHandler extends BaseHandler {
+	/**
+	 * The default size of the buffer
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+	/**
+	 * The default delay in milliseconds between two periodic flushes
+	 */
+	public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+	private static final String COMPRESSED_EXTENSION = ".gz";
+	private static final ScheduledExecutorService EXECUTOR = new ThreadPoolBuilder(new ThreadBuilder().setName("FileHandler-%d").setDaemon(true))
+			.setType(ThreadPoolBuilder.PoolType.SCHEDULED)
+			.setParallelism(1)
+			.buildAsScheduled();
+	// A slow compression must not delay the periodic flushes
+	private static final ExecutorService COMPRESSOR = new ThreadPoolBuilder(new ThreadBuilder().setName("FileHandler-Compress-%d").setDaemon(true))
+			.setType(ThreadPoolBuilder.PoolType.FIXED)
+			.setParallelism(1)
+			.buildAsService();
+
+	private final Path file;
+	private final ByteBuffer buffer;
+	private final LogEncoder encoder = new LogEncoder(StandardCharsets.UTF_8);
+	private final ScheduledFuture<?> flusher;
+	private final ZoneId zone = ZoneId.systemDefault();
+	private FileChannel channel;
+	private long size;
+	private LocalDate date;
+	private long nextDay;
+	private volatile long maxFileSize;
+	private volatile boolean rollDaily;
+	private volatile boolean compress = true;
+
+	/**
+	 * Create a new file handler appending to the file
+	 * 
+	 * @param file
+	 *            the file
+	 * @param bufferSize
+	 *            the size of the buffer
+	 * @param flushInterval
+	 *            the max delay before a buffered log is written to the file
+	 * @param unit
+	 *            the unit of the delay
+	 * @throws IOException
+	 *             if the file cannot be opened
+	 */
+	public FileHandler(Path file, int bufferSize, long flushInterval, TimeUnit unit) throws IOException {
+		this.file = file.toAbsolutePath();
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		Path parent = this.file.getParent();
+		if (parent != null) Files.createDirectories(parent);
+		open();
+		setFormatter(new BasicFormatter());
+		this.flusher = EXECUTOR.scheduleWithFixedDelay(this::periodicFlush, flushInterval, flushInterval, unit);
+	}
+
+	/**
+	 * Create a new file handler appending to the file with a buffer of {@link #DEFAULT_BUFFER_SIZE} flushed every {@link #DEFAULT_FLUSH_INTERVAL} milliseconds
+	 * 
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             if the file cannot be opened
+	 */
+	public FileHandler(Path file) throws IOException {
+		this(file, DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Set the size from which the file is rolled
+	 * 
+	 * @param maxFileSize
+	 *            the max size of a file in bytes or 0 to never roll on size
+	 */
+	public void setMaxFileSize(long maxFileSize) {
+		this.maxFileSize = maxFileSize;
+	}
+
+	/**
+	 * Set if the file is rolled when the day changes
+	 * 
+	 * @param rollDaily
+	 *            true to roll every day
+	 */
+	public void setRollDaily(boolean rollDaily) {
+		this.rollDaily = rollDaily;
+	}
+
+	/**
+	 * Set if the rolled files are compressed with gzip
+	 * 
+	 * @param compress
+	 *            true to compress the rolled files
+	 */
+	public void setCompress(boolean compress) {
+		this.compress = compress;
+	}
+
+	/**
+	 * Get the file written by this handler
+	 * 
+	 * @return the file
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	@Override
+	public synchronized void handle(Log log) throws IOException {
+		if (channel == null) throw new IOException("The handler is closed");
+		if (rollDaily && log.getMillis() >= nextDay) roll();
+		StringBuilder builder = encoder.builder();
+		formatTo(log, builder);
+		builder.append('\n');
+		ByteBuffer bytes = encoder.encode();
+		long max = maxFileSize;
+		if (max > 0 && size > 0 && size + bytes.remaining() > max) roll();
+		size += bytes.remaining();
+		if (bytes.remaining() > buffer.remaining()) writeBuffer();
+		if (bytes.remaining() > buffer.capacity()) write(bytes); // Larger than the buffer, written directly
+		else buffer.put(bytes);
+		encoder.trim();
+	}
+
+	/**
+	 * Write the buffered logs to the file
+	 */
+	@Override
+	public synchronized void flush() throws IOException {
+		if (channel != null) writeBuffer();
+	}
+
+	private void periodicFlush() {
+		try {
+			flush();
+		} catch (IOException e) {
+			e.printStackTrace(); // NOSONAR the logging itself failed
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		if (buffer.position() == 0) return;
+		buffer.flip();
+		write(buffer);
+		buffer.clear();
+	}
+
+	private void write(ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining())
+			channel.write(bytes);
+	}
+
+	private void open() throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		size = channel.size();
+		long since = size > 0 ? Files.getLastModifiedTime(file).toMillis() : System.currentTimeMillis(); // A file left by a previous day is rolled on the first log
+		date = Instant.ofEpochMilli(since).atZone(zone).toLocalDate();
+		nextDay = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+	}
+
+	private void roll() throws IOException {
+		writeBuffer();
+		channel.close();
+		Path rolled = rolledFile();
+		Files.move(file, rolled);
+		open();
+		if (compress) COMPRESSOR.execute(() -> compress(rolled));
+	}
+
+	private Path rolledFile() {
+		String name = file.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		String stem = dot > 0 ? name.substring(0, dot) : name;
+		String extension = dot > 0 ? name.substring(dot) : "";
+		for (int i = 1;; i++) {
+			Path rolled = file.resolveSibling(stem + '-' + date + '-' + i + extension);
+			if (!Files.exists(rolled) && !Files.exists(rolled.resolveSibling(rolled.getFileName() + COMPRESSED_EXTENSION))) return rolled;
+		}
+	}
+
+	private static void compress(Path rolled) {
+		Path compressed = rolled.resolveSibling(rolled.getFileName() + COMPRESSED_EXTENSION);
+		try (InputStream in = Files.newInputStream(rolled); OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+			byte[] chunk = new byte[8192];
+			int read;
+			while ((read = in.read(chunk)) != -1)
+				out.write(chunk, 0, read);
+		} catch (IOException e) {
+			e.printStackTrace(); // NOSONAR the logging itself failed, the rolled file is kept uncompressed
+			return;
+		}
+		try {
+			Files.delete(rolled);
+		} catch (IOException e) {
+			e.printStackTrace(); // NOSONAR the logging itself failed
+		}
+	}
+
+	/**
+	 * Write the buffered logs and close the file, the rolled files still being compressed are finished in background
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel == null) return;
+		flusher.cancel(false);
+		try {
+			writeBuffer();
+		} finally {
+			channel.close();
+			channel = null;
+		}
+	}
+}
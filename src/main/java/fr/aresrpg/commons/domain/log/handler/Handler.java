@@ -1,7 +1,9 @@
 package fr.aresrpg.commons.domain.log.handler;
 
 import fr.aresrpg.commons.domain.log.Log;
+import fr.aresrpg.commons.domain.log.Logger;
 
+import java.io.Closeable;
 import java.io.IOException;
 
 /**
@@ -10,7 +12,7 @@ import java.io.IOException;
  * @author Duarte David {@literal <deltaduartedavid@gmail.com>}
  */
 @FunctionalInterface
-public interface Handler {
+public interface Handler extends Closeable {
 	/**
 	 * Handle the log sent by a logger
 	 * 
@@ -20,4 +22,38 @@ public interface Handler {
 	 *             if an exception occurred when writing the log
 	 */
 	void handle(Log log) throws IOException;
+
+	/**
+	 * Get if this handler wants the logs of this level and channel, called before the log is created
+	 * 
+	 * @param level
+	 *            the level of the log
+	 * @param channel
+	 *            the channel of the log
+	 * @return true if the log must be passed to this handler
+	 */
+	default boolean isLoggable(Logger.Level level, String channel) {
+		return true;
+	}
+
+	/**
+	 * Write the logs buffered by this handler
+	 * 
+	 * @throws IOException
+	 *             if an exception occurred when writing the logs
+	 */
+	default void flush() throws IOException {
+		// Nothing buffered by default
+	}
+
+	/**
+	 * Flush and release the resources of this handler
+	 * 
+	 * @throws IOException
+	 *             if an exception occurred when closing the handler
+	 */
+	@Override
+	default void close() throws IOException {
+		flush();
+	}
 }
@@ -0,0 +1,83 @@
+package fr.aresrpg.commons.domain.log.handler;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * The buffers reused by an handler to render logs and encode them without allocating.<br>
+ * An encoder is not thread safe, the handler owning it must synchronize its use.
+ * The buffers grow with the logs and are shrunk after an oversized log so a single huge log does not keep its memory
+ */
+public class LogEncoder {
+	/**
+	 * The max capacity in chars kept between two logs
+	 */
+	public static final int MAX_CAPACITY = 8192;
+	private static final int INITIAL_CAPACITY = 256;
+
+	private final CharsetEncoder encoder;
+	private StringBuilder builder = new StringBuilder(INITIAL_CAPACITY);
+	private char[] chars = new char[INITIAL_CAPACITY];
+	private CharBuffer charBuffer = CharBuffer.wrap(chars);
+	private ByteBuffer byteBuffer;
+
+	/**
+	 * Create a new encoder
+	 * 
+	 * @param charset
+	 *            the charset of the encoded logs
+	 */
+	public LogEncoder(Charset charset) {
+		this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.byteBuffer = ByteBuffer.allocate((int) (INITIAL_CAPACITY * encoder.maxBytesPerChar()));
+	}
+
+	/**
+	 * Get the builder receiving the next log, it is cleared by this call
+	 * 
+	 * @return the empty builder
+	 */
+	public StringBuilder builder() {
+		builder.setLength(0);
+		return builder;
+	}
+
+	/**
+	 * Encode the content of the builder
+	 * 
+	 * @return the encoded bytes, backed by an array from 0 to the limit and only valid until the next call
+	 */
+	public ByteBuffer encode() {
+		int length = builder.length();
+		if (chars.length < length) {
+			chars = new char[Math.max(length, chars.length * 2)];
+			charBuffer = CharBuffer.wrap(chars);
+		}
+		builder.getChars(0, length, chars, 0);
+		charBuffer.clear().limit(length);
+		int bytes = (int) (length * encoder.maxBytesPerChar());
+		if (byteBuffer.capacity() < bytes) byteBuffer = ByteBuffer.allocate(bytes);
+		byteBuffer.clear();
+		encoder.reset();
+		CoderResult result = encoder.encode(charBuffer, byteBuffer, true);
+		if (result.isUnderflow()) encoder.flush(byteBuffer);
+		byteBuffer.flip();
+		return byteBuffer;
+	}
+
+	/**
+	 * Release the buffers grown over {@link #MAX_CAPACITY} by the last log
+	 */
+	public void trim() {
+		if (builder.capacity() > MAX_CAPACITY) builder = new StringBuilder(INITIAL_CAPACITY);
+		if (chars.length > MAX_CAPACITY) {
+			chars = new char[INITIAL_CAPACITY];
+			charBuffer = CharBuffer.wrap(chars);
+		}
+		if (byteBuffer.capacity() > MAX_CAPACITY * encoder.maxBytesPerChar()) byteBuffer = ByteBuffer.allocate((int) (INITIAL_CAPACITY * encoder.maxBytesPerChar()));
+	}
+}
@@ -4,6 +4,8 @@ import fr.aresrpg.commons.domain.log.Log;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 
 /**
  * An handler using streams
@@ -13,7 +15,8 @@ import java.io.OutputStream;
 public class StreamHandler extends BaseHandler {
 	private OutputStream outStream;
 	private OutputStream errorStream;
-	private String charset;
+	private final LogEncoder encoder;
+	private boolean autoFlush = true;
 
 	/**
 	 * Create a stream handler using passed streams and charset
@@ -28,7 +31,7 @@ public class StreamHandler extends BaseHandler {
 	public StreamHandler(OutputStream outStream, OutputStream errorStream, String charset) {
 		this.outStream = outStream;
 		this.errorStream = errorStream;
-		this.charset = charset;
+		this.encoder = new LogEncoder(Charset.forName(charset));
 	}
 
 	/**
@@ -53,16 +56,50 @@ public class StreamHandler extends BaseHandler {
 		this(stream, stream);
 	}
 
+	/**
+	 * Set if the streams must be flushed after each log, the {@link AsyncHandler} disables it to flush once per batch
+	 * 
+	 * @param autoFlush
+	 *            true to flush after each log
+	 */
+	public void setAutoFlush(boolean autoFlush) {
+		this.autoFlush = autoFlush;
+	}
+
+	/**
+	 * Get if the streams are flushed after each log
+	 * 
+	 * @return true if the streams are flushed after each log
+	 */
+	public boolean isAutoFlush() {
+		return autoFlush;
+	}
+
 	@Override
 	public void handle(Log log) throws IOException {
-		if (log.getLevel().isError()) {
-			errorStream.write(format(log).getBytes(charset));
-			errorStream.write('\n');
-			errorStream.flush();
-		} else {
-			outStream.write(format(log).getBytes(charset));
-			outStream.write('\n');
-			outStream.flush();
+		OutputStream stream = log.getLevel().isError() ? errorStream : outStream;
+		synchronized (encoder) { // The log is rendered and encoded in reused buffers then written in one call
+			StringBuilder builder = encoder.builder();
+			formatTo(log, builder);
+			builder.append('\n');
+			ByteBuffer bytes = encoder.encode();
+			stream.write(bytes.array(), bytes.arrayOffset(), bytes.limit());
+			encoder.trim();
 		}
+		if (autoFlush) stream.flush();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		outStream.flush();
+		if (errorStream != outStream) errorStream.flush();
+	}
+
+	/**
+	 * Flush the streams, they are not closed as they are owned by the creator of this handler
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
 	}
 }
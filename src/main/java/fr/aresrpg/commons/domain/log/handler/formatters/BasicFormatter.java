@@ -3,7 +3,6 @@ package fr.aresrpg.commons.domain.log.handler.formatters;
 import fr.aresrpg.commons.domain.log.Log;
 
 import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
@@ -13,14 +12,14 @@ import java.util.Date;
  */
 public class BasicFormatter implements Formatter {
 	/**
-	 * The default format of this formatter used with {@link #BasicFormatter()}
+	 * The default format of this formatter used with {@link #BasicFormatter()}, it is thread safe
 	 */
-	public static final DateFormat DEFAULT_FORMAT = new SimpleDateFormat("HH:mm:ss");
+	public static final DateFormat DEFAULT_FORMAT = new CachedDateFormat("HH:mm:ss");
 
 	private DateFormat dateFormat;
 
 	/**
-	 * Create a new formatter using the provided DateFormat
+	 * Create a new formatter using the provided DateFormat, formats other than {@link CachedDateFormat} are synchronized as they are not thread safe
 	 * 
 	 * @param dateFormat
 	 *            the format to use
@@ -57,20 +56,38 @@ public class BasicFormatter implements Formatter {
 
 	@Override
 	public String format(Log log, ErrorFormatter errorFormatter) {
-		StringBuilder sb = new StringBuilder()
-						.append('[')
-						.append(dateFormat.format(new Date(log.getMillis())))
-						.append(']').append('[')
-						.append(log.getThread().getName())
-						.append(']').append('[')
-						.append(log.getLevel()).append(']');
+		StringBuilder sb = new StringBuilder();
+		formatTo(log, errorFormatter, sb);
+		return sb.toString();
+	}
+
+	@Override
+	public void formatTo(Log log, ErrorFormatter errorFormatter, StringBuilder sb) {
+		sb.append('[');
+		appendDate(sb, log.getMillis());
+		sb.append(']').append('[')
+				.append(log.getThread().getName())
+				.append(']').append('[')
+				.append(log.getLevel()).append(']');
 		if(log.getChannel() != null)
 			sb.append('[').append(log.getChannel()).append(']');
-		sb.append(": ").append(log.getMessage());
-		if(!log.getMessage().isEmpty() && log.getThrowable() != null)
-			sb.append('\n');
-		if(log.getThrowable() != null)
+		sb.append(": ");
+		int start = sb.length();
+		log.appendMessage(sb);
+		if(log.getThrowable() != null) {
+			if(sb.length() != start)
+				sb.append('\n');
 			sb.append(errorFormatter.formatError(log.getLevel(), log.getThrowable()));
-		return sb.toString();
+		}
+	}
+
+	private void appendDate(StringBuilder sb, long millis) {
+		DateFormat format = dateFormat;
+		if(format instanceof CachedDateFormat)
+			((CachedDateFormat) format).appendTo(sb, millis);
+		else
+			synchronized (format) {
+				sb.append(format.format(new Date(millis)));
+			}
 	}
 }
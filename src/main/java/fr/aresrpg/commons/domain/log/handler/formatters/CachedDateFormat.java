@@ -0,0 +1,150 @@
+package fr.aresrpg.commons.domain.log.handler.formatters;
+
+import java.text.DateFormat;
+import java.text.FieldPosition;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * A thread safe {@link DateFormat} for log timestamps.<br>
+ * The text of the current second is rendered once and shared by the threads, only the milliseconds are written for each log.
+ * The pattern follows {@link DateTimeFormatter} and may end with {@code .SSS} or {@code ,SSS} to add the milliseconds
+ */
+public class CachedDateFormat extends DateFormat {
+	private static final long serialVersionUID = 1L;
+	private static final String MILLIS = "SSS";
+
+	private final String pattern;
+	private final ZoneId zone;
+	private final transient DateTimeFormatter formatter;
+	private final char millisSeparator;
+	private final SimpleDateFormat parser;
+	private transient volatile Second cached = new Second(Long.MIN_VALUE, "");
+
+	/**
+	 * Create a new cached format in the default time zone
+	 * 
+	 * @param pattern
+	 *            the pattern of the timestamps
+	 */
+	public CachedDateFormat(String pattern) {
+		this(pattern, ZoneId.systemDefault());
+	}
+
+	/**
+	 * Create a new cached format
+	 * 
+	 * @param pattern
+	 *            the pattern of the timestamps
+	 * @param zone
+	 *            the time zone of the timestamps
+	 */
+	public CachedDateFormat(String pattern, ZoneId zone) {
+		String secondPattern = pattern;
+		char separator = 0;
+		if (pattern.endsWith(MILLIS) && pattern.length() > MILLIS.length()) {
+			separator = pattern.charAt(pattern.length() - MILLIS.length() - 1);
+			secondPattern = pattern.substring(0, pattern.length() - MILLIS.length() - 1);
+		}
+		if (secondPattern.indexOf('S') != -1) throw new IllegalArgumentException("The fraction of second must end the pattern : " + pattern);
+		this.pattern = pattern;
+		this.zone = zone;
+		this.formatter = DateTimeFormatter.ofPattern(secondPattern).withZone(zone);
+		this.millisSeparator = separator;
+		this.parser = new SimpleDateFormat(pattern);
+		this.parser.setTimeZone(TimeZone.getTimeZone(zone));
+		this.calendar = Calendar.getInstance(TimeZone.getTimeZone(zone));
+		this.numberFormat = NumberFormat.getIntegerInstance();
+	}
+
+	/**
+	 * Append a timestamp to the builder
+	 * 
+	 * @param builder
+	 *            the builder
+	 * @param millis
+	 *            the timestamp in milliseconds
+	 * @return the builder
+	 */
+	public StringBuilder appendTo(StringBuilder builder, long millis) {
+		builder.append(second(millis));
+		if (millisSeparator != 0) {
+			int ms = (int) Math.floorMod(millis, 1000L);
+			builder.append(millisSeparator).append((char) ('0' + ms / 100)).append((char) ('0' + ms / 10 % 10)).append((char) ('0' + ms % 10));
+		}
+		return builder;
+	}
+
+	/**
+	 * Format a timestamp
+	 * 
+	 * @param millis
+	 *            the timestamp in milliseconds
+	 * @return the formatted timestamp
+	 */
+	public String format(long millis) {
+		return millisSeparator == 0 ? second(millis) : appendTo(new StringBuilder(), millis).toString();
+	}
+
+	private String second(long millis) {
+		long epochSecond = Math.floorDiv(millis, 1000L);
+		Second second = cached;
+		if (second.epochSecond != epochSecond) { // Once per second, concurrent threads may render it twice but always publish a consistent pair
+			second = new Second(epochSecond, formatter.format(Instant.ofEpochSecond(epochSecond)));
+			cached = second;
+		}
+		return second.text;
+	}
+
+	/**
+	 * Get the pattern of this format
+	 * 
+	 * @return the pattern
+	 */
+	public String getPattern() {
+		return pattern;
+	}
+
+	@Override
+	public StringBuffer format(Date date, StringBuffer toAppendTo, FieldPosition fieldPosition) {
+		return toAppendTo.append(format(date.getTime()));
+	}
+
+	@Override
+	public Date parse(String source, ParsePosition pos) {
+		synchronized (parser) {
+			return parser.parse(source, pos);
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof CachedDateFormat && ((CachedDateFormat) obj).pattern.equals(pattern) && ((CachedDateFormat) obj).zone.equals(zone);
+	}
+
+	@Override
+	public int hashCode() {
+		return pattern.hashCode();
+	}
+
+	private Object readResolve() {
+		return new CachedDateFormat(pattern, zone);
+	}
+
+	private static final class Second {
+		private final long epochSecond;
+		private final String text;
+
+		private Second(long epochSecond, String text) {
+			this.epochSecond = epochSecond;
+			this.text = text;
+		}
+	}
+}
@@ -9,6 +9,13 @@ import fr.aresrpg.commons.domain.log.AnsiColors.AnsiColor;
  * @author Duarte David {@literal <deltaduartedavid@gmail.com>}
  */
 public class ColorFormatter implements Formatter {
+	private static final String[] COLORS = new String[Logger.Level.values().length];
+
+	static {
+		for (Logger.Level level : Logger.Level.values())
+			COLORS[level.ordinal()] = color(level);
+	}
+
 	private Formatter parent;
 
 	/**
@@ -29,6 +36,10 @@ public class ColorFormatter implements Formatter {
 	 * @return the color
 	 */
 	public String getColor(Logger.Level level) {
+		return COLORS[level.ordinal()];
+	}
+
+	private static String color(Logger.Level level) {
 		switch (level) {
 			case INFO:
 				return AnsiColors.getCode(AnsiColor.BLUE, null, false);
@@ -51,4 +62,11 @@ public class ColorFormatter implements Formatter {
 	public String format(Log log, ErrorFormatter errorFormatter) {
 		return getColor(log.getLevel()) + parent.format(log, errorFormatter) + AnsiColors.ANSI_RESET;
 	}
+
+	@Override
+	public void formatTo(Log log, ErrorFormatter errorFormatter, StringBuilder builder) {
+		builder.append(getColor(log.getLevel()));
+		parent.formatTo(log, errorFormatter, builder);
+		builder.append(AnsiColors.ANSI_RESET);
+	}
 }
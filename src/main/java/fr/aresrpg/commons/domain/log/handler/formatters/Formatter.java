@@ -19,4 +19,18 @@ public interface Formatter {
 	 * @return a String representation of the log
 	 */
 	String format(Log log, ErrorFormatter errorFormatter);
+
+	/**
+	 * Format a log into a builder, override it to avoid rendering the log as an intermediate String
+	 * 
+	 * @param log
+	 *            the log to format
+	 * @param errorFormatter
+	 *            the error formatter
+	 * @param builder
+	 *            the builder receiving the log
+	 */
+	default void formatTo(Log log, ErrorFormatter errorFormatter, StringBuilder builder) {
+		builder.append(format(log, errorFormatter));
+	}
 }
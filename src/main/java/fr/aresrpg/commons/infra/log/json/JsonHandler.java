@@ -0,0 +1,169 @@
+package fr.aresrpg.commons.infra.log.json;
+
+import fr.aresrpg.commons.domain.log.Log;
+import fr.aresrpg.commons.domain.log.handler.BaseHandler;
+import fr.aresrpg.commons.domain.serialization.Format;
+import fr.aresrpg.commons.domain.serialization.SerializationContext;
+import fr.aresrpg.commons.domain.types.TypeEnum;
+import fr.aresrpg.commons.infra.serialization.formats.JsonFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An handler writing each log as a JSON object on its own line, written with the {@link JsonFormat}.<br>
+ * The fields are {@code time}, {@code level}, {@code channel}, {@code thread}, {@code template}, {@code message}, {@code args} and {@code throwable}.
+ * The arguments other than primitive wrappers and strings are written with their {@link Object#toString()}.
+ * The logs are encoded directly in a buffer written to the channel when it is full or when the handler is flushed, wrap it in an
+ * {@link fr.aresrpg.commons.domain.log.handler.AsyncHandler AsyncHandler} to flush it regularly
+ */
+public class JsonHandler extends BaseHandler {
+	public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+	public static final String TIME = "time";
+	public static final String LEVEL = "level";
+	public static final String CHANNEL = "channel";
+	public static final String THREAD = "thread";
+	public static final String TEMPLATE = "template";
+	public static final String MESSAGE = "message";
+	public static final String ARGS = "args";
+	public static final String THROWABLE = "throwable";
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+	private final OutputStream out = new ChannelStream();
+	private final JsonFormat format = JsonFormat.INSTANCE;
+	private final SerializationContext context = new ArgumentContext();
+	private boolean closed;
+
+	/**
+	 * Create a new JSON handler writing to the channel
+	 * 
+	 * @param channel
+	 *            the channel
+	 * @param bufferSize
+	 *            the size of the buffer
+	 */
+	public JsonHandler(WritableByteChannel channel, int bufferSize) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	/**
+	 * Create a new JSON handler appending to the file with a buffer of {@link #DEFAULT_BUFFER_SIZE}
+	 * 
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             if the file cannot be opened
+	 */
+	public JsonHandler(Path file) throws IOException {
+		this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND), DEFAULT_BUFFER_SIZE);
+	}
+
+	@Override
+	public synchronized void handle(Log log) throws IOException {
+		if (closed) throw new IOException("The handler is closed");
+		format.writeBeginObject(out);
+		format.writeValue(out, TIME, TypeEnum.LONG, log.getMillis(), context);
+		format.writeFieldSeparator(out, true, false);
+		format.writeValue(out, LEVEL, TypeEnum.STRING, log.getLevel().name(), context);
+		format.writeFieldSeparator(out, false, false);
+		writeNullable(CHANNEL, log.getChannel());
+		format.writeFieldSeparator(out, false, false);
+		writeNullable(THREAD, log.getThread() == null ? null : log.getThread().getName());
+		format.writeFieldSeparator(out, false, false);
+		writeNullable(TEMPLATE, log.getBaseMessage());
+		format.writeFieldSeparator(out, false, false);
+		writeNullable(MESSAGE, log.getMessage());
+		format.writeFieldSeparator(out, false, false);
+		Object[] args = log.getArgs();
+		format.writeValue(out, ARGS, args == null ? TypeEnum.NULL : TypeEnum.OBJECT_ARRAY, args, context);
+		format.writeFieldSeparator(out, false, false);
+		writeNullable(THROWABLE, log.getThrowable() == null ? null : getErrorFormatter().formatError(log.getLevel(), log.getThrowable()));
+		format.writeFieldSeparator(out, false, true);
+		format.writeEndObject(out);
+		out.write('\n');
+	}
+
+	private void writeNullable(String name, String value) throws IOException {
+		format.writeValue(out, name, value == null ? TypeEnum.NULL : TypeEnum.STRING, value, context);
+	}
+
+	private void writeBuffer() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	@Override
+	public synchronized void flush() throws IOException {
+		if (!closed) writeBuffer();
+	}
+
+	/**
+	 * Write the buffered logs and close the channel
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) return;
+		closed = true;
+		try {
+			writeBuffer();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private final class ChannelStream extends OutputStream {
+		@Override
+		public void write(int b) throws IOException {
+			if (!buffer.hasRemaining()) writeBuffer();
+			buffer.put((byte) b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			int offset = off;
+			int remaining = len;
+			while (remaining > 0) {
+				if (!buffer.hasRemaining()) writeBuffer();
+				int count = Math.min(remaining, buffer.remaining());
+				buffer.put(b, offset, count);
+				offset += count;
+				remaining -= count;
+			}
+		}
+	}
+
+	private static final class ArgumentContext implements SerializationContext {
+		@Override
+		public <T, O> void serialize(O out, T value, Format<?, O> format) throws IOException {
+			TypeEnum type = TypeEnum.getType(value);
+			switch (type) {
+				case NULL:
+				case BOOLEAN:
+				case BYTE:
+				case SHORT:
+				case CHAR:
+				case INT:
+				case LONG:
+				case STRING:
+					format.writeValue(out, null, type, value, this);
+					break;
+				case FLOAT:
+				case DOUBLE:
+					boolean finite = value instanceof Float ? Float.isFinite((Float) value) : Double.isFinite((Double) value);
+					format.writeValue(out, null, finite ? type : TypeEnum.STRING, finite ? value : value.toString(), this); // NaN and infinities are not JSON numbers
+					break;
+				default:
+					format.writeValue(out, null, TypeEnum.STRING, value.toString(), this);
+			}
+		}
+	}
+}
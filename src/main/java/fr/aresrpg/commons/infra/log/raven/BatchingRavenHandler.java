@@ -0,0 +1,293 @@
+package fr.aresrpg.commons.infra.log.raven;
+
+import com.getsentry.raven.Raven;
+import com.getsentry.raven.RavenFactory;
+import com.getsentry.raven.environment.RavenEnvironment;
+import com.getsentry.raven.event.EventBuilder;
+import fr.aresrpg.commons.domain.concurrent.ThreadBuilder;
+import fr.aresrpg.commons.domain.log.Log;
+import fr.aresrpg.commons.domain.log.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link RavenHandler} sending the events from a background thread.<br>
+ * The logs less severe than the {@link #setLevel(Logger.Level) level} are ignored.
+ * The logs sharing a fingerprint while waiting to be sent are merged into one event carrying their number in the {@link #OCCURRENCES} extra,
+ * each fingerprint can only send {@link #setRateLimit(int, long, TimeUnit) a number of events} by window and the logs over the limit are counted in the next event,
+ * or in a last event sent when the window expires or when the handler is closed.
+ * When the queue of distinct fingerprints is full the logs are dropped instead of blocking the logging thread, as the logs handled once the handler is closed
+ */
+public class BatchingRavenHandler extends RavenHandler {
+	public static final String OCCURRENCES = "Occurrences";
+	public static final int DEFAULT_CAPACITY = 1024;
+	public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+	private static final int SEALED = -1;
+
+	private final BlockingQueue<Aggregate> queue;
+	private final Map<String, Aggregate> pending = new ConcurrentHashMap<>();
+	private final Map<String, Window> windows = new HashMap<>();
+	private final LongAdder dropped = new LongAdder();
+	private final long flushInterval;
+	private final Thread worker;
+	private volatile Logger.Level level = Logger.Level.WARNING;
+	private volatile int maxEvents = 10;
+	private volatile long rateWindow = TimeUnit.MINUTES.toMillis(1);
+	private volatile boolean running = true;
+
+	/**
+	 * Create a new batching handler and start its thread
+	 * 
+	 * @param raven
+	 *            the raven instance
+	 * @param release
+	 *            the release or null
+	 * @param serverName
+	 *            the server name or null
+	 * @param capacity
+	 *            the max number of distinct fingerprints waiting to be sent
+	 * @param flushInterval
+	 *            the delay between two batches
+	 * @param unit
+	 *            the unit of the delay
+	 */
+	public BatchingRavenHandler(Raven raven, String release, String serverName, int capacity, long flushInterval, TimeUnit unit) {
+		super(raven, release, serverName);
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.flushInterval = unit.toNanos(flushInterval);
+		this.worker = new ThreadBuilder().setName("RavenHandler-%d").setDaemon(true).setRunnable(this::run).build();
+		worker.start();
+	}
+
+	/**
+	 * Create a new batching handler with a capacity of {@link #DEFAULT_CAPACITY} sending a batch every {@link #DEFAULT_FLUSH_INTERVAL} milliseconds
+	 * 
+	 * @param raven
+	 *            the raven instance
+	 */
+	public BatchingRavenHandler(Raven raven) {
+		this(raven, null, null, DEFAULT_CAPACITY, DEFAULT_FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Create a new batching handler with a capacity of {@link #DEFAULT_CAPACITY} sending a batch every {@link #DEFAULT_FLUSH_INTERVAL} milliseconds
+	 * 
+	 * @param dsn
+	 *            the dsn of sentry
+	 */
+	public BatchingRavenHandler(String dsn) {
+		this(RavenFactory.ravenInstance(dsn));
+	}
+
+	/**
+	 * Set the least severe level sent to sentry
+	 * 
+	 * @param level
+	 *            the minimum level, {@link Logger.Level#WARNING} by default
+	 */
+	public void setLevel(Logger.Level level) {
+		this.level = level;
+	}
+
+	/**
+	 * Set the max number of events sent for a fingerprint in a window
+	 * 
+	 * @param maxEvents
+	 *            the max number of events
+	 * @param window
+	 *            the duration of the window
+	 * @param unit
+	 *            the unit of the window
+	 */
+	public void setRateLimit(int maxEvents, long window, TimeUnit unit) {
+		if (maxEvents <= 0) throw new IllegalArgumentException("Invalid max events : " + maxEvents);
+		this.maxEvents = maxEvents;
+		this.rateWindow = unit.toMillis(window);
+	}
+
+	/**
+	 * Get the number of logs dropped because the queue was full or the handler was closed
+	 * 
+	 * @return the number of dropped logs
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	@Override
+	public boolean isLoggable(Logger.Level level, String channel) {
+		return level.isAtLeast(this.level);
+	}
+
+	@Override
+	public void handle(Log log) throws IOException {
+		if (!running) { // Nothing would send it
+			dropped.increment();
+			return;
+		}
+		String fingerprint = fingerprint(log);
+		while (true) {
+			Aggregate aggregate = pending.get(fingerprint);
+			if (aggregate == null) {
+				log.captureSource(); // Only possible on the logging thread
+				aggregate = new Aggregate(fingerprint, log.snapshot());
+				if (pending.putIfAbsent(fingerprint, aggregate) != null) continue;
+				if (!queue.offer(aggregate)) {
+					pending.remove(fingerprint, aggregate);
+					dropped.increment();
+				}
+				return;
+			}
+			int count = aggregate.count.get();
+			if (count == SEALED) pending.remove(fingerprint, aggregate); // Being sent, the next log starts a new event
+			else if (aggregate.count.compareAndSet(count, count + 1)) return;
+		}
+	}
+
+	/**
+	 * Get the key used to merge the logs, the base message and the class of the throwable by default
+	 * 
+	 * @param log
+	 *            the log
+	 * @return the fingerprint
+	 */
+	protected String fingerprint(Log log) {
+		String base = log.getBaseMessage() == null ? log.getMessage() : log.getBaseMessage();
+		return log.getThrowable() == null ? base : base + '|' + log.getThrowable().getClass().getName();
+	}
+
+	/**
+	 * Get the time of the rate limit windows, the system time by default
+	 * 
+	 * @return the current time in milliseconds
+	 */
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	private void run() {
+		while (running) {
+			long deadline = System.nanoTime() + flushInterval;
+			long remaining;
+			while (running && (remaining = deadline - System.nanoTime()) > 0)
+				LockSupport.parkNanos(this, remaining); // A spurious wakeup must not send the batch early
+			send(false);
+		}
+	}
+
+	private synchronized void send(boolean closing) {
+		if (queue.isEmpty() && windows.isEmpty()) return;
+		List<Aggregate> batch = new ArrayList<>(queue.size());
+		queue.drainTo(batch);
+		long now = currentTimeMillis();
+		RavenEnvironment.startManagingThread();
+		try {
+			for (Aggregate aggregate : batch)
+				send(aggregate, now);
+			expire(now, closing);
+		} finally {
+			RavenEnvironment.stopManagingThread();
+		}
+	}
+
+	/**
+	 * Drop the expired windows to keep the rate limits bounded to the active fingerprints, the logs they suppressed are sent in a last event
+	 */
+	private void expire(long now, boolean all) {
+		Iterator<Window> iterator = windows.values().iterator();
+		while (iterator.hasNext()) {
+			Window window = iterator.next();
+			if (!all && now - window.start < rateWindow) continue;
+			iterator.remove();
+			if (window.suppressed > 0) send(window.log, window.suppressed);
+		}
+	}
+
+	private void send(Aggregate aggregate, long now) {
+		int count = aggregate.count.getAndSet(SEALED);
+		pending.remove(aggregate.fingerprint, aggregate);
+		Window window = windows.computeIfAbsent(aggregate.fingerprint, k -> new Window(now));
+		if (now - window.start >= rateWindow) {
+			window.start = now;
+			window.sent = 0;
+		}
+		if (window.sent >= maxEvents) {
+			window.suppressed += count;
+			window.log = aggregate.log;
+			return;
+		}
+		window.sent++;
+		long occurrences = count + window.suppressed;
+		window.suppressed = 0;
+		window.log = null;
+		send(aggregate.log, occurrences);
+	}
+
+	private void send(Log log, long occurrences) {
+		EventBuilder builder = createEventBuilder(log).withExtra(OCCURRENCES, occurrences);
+		raven.runBuilderHelpers(builder);
+		try {
+			raven.sendEvent(builder.build());
+		} catch (RuntimeException e) {
+			e.printStackTrace(); // NOSONAR the logging itself failed
+		}
+	}
+
+	/**
+	 * Send the waiting logs now
+	 */
+	@Override
+	public void flush() throws IOException {
+		send(false);
+	}
+
+	/**
+	 * Stop the background thread and send the waiting logs and the counts of the suppressed logs
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!running) return;
+		running = false;
+		LockSupport.unpark(worker);
+		try {
+			worker.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		send(true);
+	}
+
+	private static final class Aggregate {
+		private final String fingerprint;
+		private final Log log;
+		private final AtomicInteger count = new AtomicInteger(1);
+
+		private Aggregate(String fingerprint, Log log) {
+			this.fingerprint = fingerprint;
+			this.log = log;
+		}
+	}
+
+	private static final class Window {
+		private long start;
+		private int sent;
+		private long suppressed;
+		private Log log; // The last suppressed log
+
+		private Window(long start) {
+			this.start = start;
+		}
+	}
+}
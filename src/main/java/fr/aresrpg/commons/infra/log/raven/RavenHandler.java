@@ -59,6 +59,12 @@ public class RavenHandler implements Handler {
 	}
 
 	protected Event createEvent(Log log){
+		EventBuilder eventBuilder = createEventBuilder(log);
+		raven.runBuilderHelpers(eventBuilder);
+		return eventBuilder.build();
+	}
+
+	protected EventBuilder createEventBuilder(Log log){
 		EventBuilder eventBuilder = new EventBuilder()
 				.withMessage(log.getMessage())
 				.withTag(ARGUMENTS , Arrays.toString(log.getArgs()))
@@ -83,9 +89,7 @@ public class RavenHandler implements Handler {
 		eventBuilder.withExtra(THREAD_NAME , log.getThread().getName());
 		eventBuilder.withExtra(THREAD_ID , log.getThread().getId());
 
-		raven.runBuilderHelpers(eventBuilder);
-
-		return eventBuilder.build();
+		return eventBuilder;
 	}
 
 	protected Event.Level convertLevel(Logger.Level baseLevel){
@@ -0,0 +1,367 @@
+package fr.aresrpg.commons.infra.serialization.formats;
+
+import fr.aresrpg.commons.domain.io.IO;
+import fr.aresrpg.commons.domain.serialization.Format;
+import fr.aresrpg.commons.domain.serialization.SerializationContext;
+import fr.aresrpg.commons.domain.types.TypeEnum;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * A compact binary format, each value is prefixed by a one byte tag and numbers are written in big endian.<br>
+ * Like the {@link JsonFormat} objects are read back as {@link Map} and collections as {@code Object[]}
+ */
+public class BinaryFormat implements Format<InputStream, OutputStream> {
+	public static final BinaryFormat INSTANCE = new BinaryFormat();
+	public static final byte TAG_NULL = 0;
+	public static final byte TAG_TRUE = 1;
+	public static final byte TAG_FALSE = 2;
+	public static final byte TAG_BYTE = 3;
+	public static final byte TAG_SHORT = 4;
+	public static final byte TAG_CHAR = 5;
+	public static final byte TAG_INT = 6;
+	public static final byte TAG_LONG = 7;
+	public static final byte TAG_FLOAT = 8;
+	public static final byte TAG_DOUBLE = 9;
+	public static final byte TAG_STRING = 10;
+	public static final byte TAG_ARRAY = 11;
+	public static final byte TAG_MAP = 12;
+	public static final byte TAG_OBJECT = 13;
+	public static final byte TAG_FIELD = 14;
+	public static final byte TAG_END_OBJECT = 15;
+	public static final byte TAG_BOOLEAN_ARRAY = 16;
+	public static final byte TAG_BYTE_ARRAY = 17;
+	public static final byte TAG_SHORT_ARRAY = 18;
+	public static final byte TAG_CHAR_ARRAY = 19;
+	public static final byte TAG_INT_ARRAY = 20;
+	public static final byte TAG_LONG_ARRAY = 21;
+	public static final byte TAG_FLOAT_ARRAY = 22;
+	public static final byte TAG_DOUBLE_ARRAY = 23;
+
+	private static final String UNKNOWN_TAG = "Unknown tag ";
+
+	private BinaryFormat() {
+	}
+
+	@Override
+	public void writeBegin(OutputStream out) throws IOException {
+		// Ignore
+	}
+
+	@Override
+	public void writeValue(OutputStream out, String name, TypeEnum type, Object value, SerializationContext context) throws IOException {
+		if (name != null) {
+			out.write(TAG_FIELD);
+			writeString(out, name);
+		}
+		switch (type) {
+			case BOOLEAN:
+				out.write((Boolean) value ? TAG_TRUE : TAG_FALSE);
+				break;
+			case BYTE:
+				out.write(TAG_BYTE);
+				out.write((Byte) value);
+				break;
+			case SHORT:
+				out.write(TAG_SHORT);
+				writeShort(out, (Short) value);
+				break;
+			case CHAR:
+				out.write(TAG_CHAR);
+				writeShort(out, (Character) value);
+				break;
+			case INT:
+				out.write(TAG_INT);
+				writeInt(out, (Integer) value);
+				break;
+			case LONG:
+				out.write(TAG_LONG);
+				writeLong(out, (Long) value);
+				break;
+			case FLOAT:
+				out.write(TAG_FLOAT);
+				writeInt(out, Float.floatToIntBits((Float) value));
+				break;
+			case DOUBLE:
+				out.write(TAG_DOUBLE);
+				writeLong(out, Double.doubleToLongBits((Double) value));
+				break;
+			case NULL:
+				out.write(TAG_NULL);
+				break;
+			case STRING:
+				out.write(TAG_STRING);
+				writeString(out, (String) value);
+				break;
+			case COLLECTION:
+				Collection<?> collection = (Collection<?>) value;
+				out.write(TAG_ARRAY);
+				writeInt(out, collection.size());
+				for (Object o : collection)
+					writeElement(out, o, context);
+				break;
+			case MAP:
+				Map<?, ?> map = (Map<?, ?>) value;
+				out.write(TAG_MAP);
+				writeInt(out, map.size());
+				for (Map.Entry<?, ?> e : map.entrySet()) {
+					writeString(out, String.valueOf(e.getKey()));
+					writeElement(out, e.getValue(), context);
+				}
+				break;
+			case OBJECT_ARRAY:
+				Object[] objects = (Object[]) value;
+				out.write(TAG_ARRAY);
+				writeInt(out, objects.length);
+				for (Object o : objects)
+					writeElement(out, o, context);
+				break;
+			case BOOLEAN_ARRAY:
+				boolean[] booleans = (boolean[]) value;
+				out.write(TAG_BOOLEAN_ARRAY);
+				writeInt(out, booleans.length);
+				for (boolean b : booleans)
+					out.write(b ? 1 : 0);
+				break;
+			case BYTE_ARRAY:
+				byte[] bytes = (byte[]) value;
+				out.write(TAG_BYTE_ARRAY);
+				writeInt(out, bytes.length);
+				out.write(bytes);
+				break;
+			case SHORT_ARRAY:
+				short[] shorts = (short[]) value;
+				out.write(TAG_SHORT_ARRAY);
+				writeInt(out, shorts.length);
+				for (short s : shorts)
+					writeShort(out, s);
+				break;
+			case CHAR_ARRAY:
+				char[] chars = (char[]) value;
+				out.write(TAG_CHAR_ARRAY);
+				writeInt(out, chars.length);
+				for (char c : chars)
+					writeShort(out, c);
+				break;
+			case INT_ARRAY:
+				int[] ints = (int[]) value;
+				out.write(TAG_INT_ARRAY);
+				writeInt(out, ints.length);
+				for (int i : ints)
+					writeInt(out, i);
+				break;
+			case LONG_ARRAY:
+				long[] longs = (long[]) value;
+				out.write(TAG_LONG_ARRAY);
+				writeInt(out, longs.length);
+				for (long l : longs)
+					writeLong(out, l);
+				break;
+			case FLOAT_ARRAY:
+				float[] floats = (float[]) value;
+				out.write(TAG_FLOAT_ARRAY);
+				writeInt(out, floats.length);
+				for (float f : floats)
+					writeInt(out, Float.floatToIntBits(f));
+				break;
+			case DOUBLE_ARRAY:
+				double[] doubles = (double[]) value;
+				out.write(TAG_DOUBLE_ARRAY);
+				writeInt(out, doubles.length);
+				for (double d : doubles)
+					writeLong(out, Double.doubleToLongBits(d));
+				break;
+			case OBJECT:
+				context.serialize(out, value, this);
+				break;
+			default:
+				break;
+		}
+	}
+
+	@Override
+	public void writeBeginObject(OutputStream out) throws IOException {
+		out.write(TAG_OBJECT);
+	}
+
+	@Override
+	public void writeFieldSeparator(OutputStream out, boolean firstField, boolean lastField) throws IOException {
+		// Ignore, fields are prefixed by a tag
+	}
+
+	@Override
+	public void writeEndObject(OutputStream out) throws IOException {
+		out.write(TAG_END_OBJECT);
+	}
+
+	@Override
+	public void writeEnd(OutputStream out) throws IOException {
+		// Ignore
+	}
+
+	private void writeElement(OutputStream out, Object value, SerializationContext context) throws IOException {
+		TypeEnum type = TypeEnum.getType(value);
+		if (type == TypeEnum.OBJECT) context.serialize(out, value, this);
+		else writeValue(out, null, type, value, context);
+	}
+
+	public static void writeString(OutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(IO.DEFAULT_CHARSET);
+		writeInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	public static void writeShort(OutputStream out, int s) throws IOException {
+		out.write(s >>> 8);
+		out.write(s);
+	}
+
+	public static void writeInt(OutputStream out, int i) throws IOException {
+		out.write(i >>> 24);
+		out.write(i >>> 16);
+		out.write(i >>> 8);
+		out.write(i);
+	}
+
+	public static void writeLong(OutputStream out, long l) throws IOException {
+		writeInt(out, (int) (l >>> 32));
+		writeInt(out, (int) l);
+	}
+
+	@Override
+	public Object read(InputStream in) throws IOException {
+		return readValue(in, readByte(in));
+	}
+
+	private Object readValue(InputStream in, int tag) throws IOException {
+		switch (tag) {
+			case TAG_NULL:
+				return null;
+			case TAG_TRUE:
+				return true;
+			case TAG_FALSE:
+				return false;
+			case TAG_BYTE:
+				return (byte) readByte(in);
+			case TAG_SHORT:
+				return (short) readShort(in);
+			case TAG_CHAR:
+				return (char) readShort(in);
+			case TAG_INT:
+				return readInt(in);
+			case TAG_LONG:
+				return readLong(in);
+			case TAG_FLOAT:
+				return Float.intBitsToFloat(readInt(in));
+			case TAG_DOUBLE:
+				return Double.longBitsToDouble(readLong(in));
+			case TAG_STRING:
+				return readString(in);
+			case TAG_ARRAY:
+				Object[] objects = new Object[readInt(in)];
+				for (int i = 0; i < objects.length; i++)
+					objects[i] = read(in);
+				return objects;
+			case TAG_MAP:
+				int size = readInt(in);
+				Map<String, Object> map = new LinkedHashMap<>();
+				for (int i = 0; i < size; i++)
+					map.put(readString(in), read(in));
+				return map;
+			case TAG_OBJECT:
+				return readObjectContent(in);
+			default:
+				return readArray(in, tag);
+		}
+	}
+
+	private Map<String, Object> readObjectContent(InputStream in) throws IOException {
+		Map<String, Object> map = new HashMap<>();
+		int tag;
+		while ((tag = readByte(in)) == TAG_FIELD)
+			map.put(readString(in), read(in));
+		if (tag != TAG_END_OBJECT) throw new IOException(UNKNOWN_TAG + tag);
+		return map;
+	}
+
+	private Object readArray(InputStream in, int tag) throws IOException {
+		int length = readInt(in);
+		switch (tag) {
+			case TAG_BOOLEAN_ARRAY:
+				boolean[] booleans = new boolean[length];
+				for (int i = 0; i < length; i++)
+					booleans[i] = readByte(in) != 0;
+				return booleans;
+			case TAG_BYTE_ARRAY:
+				byte[] bytes = new byte[length];
+				readFully(in, bytes);
+				return bytes;
+			case TAG_SHORT_ARRAY:
+				short[] shorts = new short[length];
+				for (int i = 0; i < length; i++)
+					shorts[i] = (short) readShort(in);
+				return shorts;
+			case TAG_CHAR_ARRAY:
+				char[] chars = new char[length];
+				for (int i = 0; i < length; i++)
+					chars[i] = (char) readShort(in);
+				return chars;
+			case TAG_INT_ARRAY:
+				int[] ints = new int[length];
+				for (int i = 0; i < length; i++)
+					ints[i] = readInt(in);
+				return ints;
+			case TAG_LONG_ARRAY:
+				long[] longs = new long[length];
+				for (int i = 0; i < length; i++)
+					longs[i] = readLong(in);
+				return longs;
+			case TAG_FLOAT_ARRAY:
+				float[] floats = new float[length];
+				for (int i = 0; i < length; i++)
+					floats[i] = Float.intBitsToFloat(readInt(in));
+				return floats;
+			case TAG_DOUBLE_ARRAY:
+				double[] doubles = new double[length];
+				for (int i = 0; i < length; i++)
+					doubles[i] = Double.longBitsToDouble(readLong(in));
+				return doubles;
+			default:
+				throw new IOException(UNKNOWN_TAG + tag);
+		}
+	}
+
+	public static String readString(InputStream in) throws IOException {
+		byte[] bytes = new byte[readInt(in)];
+		readFully(in, bytes);
+		return new String(bytes, IO.DEFAULT_CHARSET);
+	}
+
+	public static int readByte(InputStream in) throws IOException {
+		int read = in.read();
+		if (read < 0) throw new EOFException();
+		return read;
+	}
+
+	public static int readShort(InputStream in) throws IOException {
+		return (readByte(in) << 8) | readByte(in);
+	}
+
+	public static int readInt(InputStream in) throws IOException {
+		return (readByte(in) << 24) | (readByte(in) << 16) | (readByte(in) << 8) | readByte(in);
+	}
+
+	public static long readLong(InputStream in) throws IOException {
+		return ((long) readInt(in) << 32) | (readInt(in) & 0xFFFFFFFFL);
+	}
+
+	private static void readFully(InputStream in, byte[] bytes) throws IOException {
+		int off = 0;
+		while (off < bytes.length) {
+			int read = in.read(bytes, off, bytes.length - off);
+			if (read < 0) throw new EOFException();
+			off += read;
+		}
+	}
+}
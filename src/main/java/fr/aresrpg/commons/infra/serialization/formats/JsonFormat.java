@@ -19,6 +19,8 @@ public class JsonFormat implements Format<InputStream, OutputStream> {
 	public static final char END_ARRAY = ']';
 	public static final char ARRAY_SEPARATOR = ',';
 	public static final char FIELD_SEPARATOR = ',';
+	public static final char ESCAPE = '\\';
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
 	private static final byte[] JSON_TRUE = getBytes("true");
 	private static final byte[] JSON_FALSE = getBytes("false");
 	private static final byte[] JSON_NULL = getBytes("null");
@@ -129,10 +131,66 @@ public class JsonFormat implements Format<InputStream, OutputStream> {
 
 	public void writeString(OutputStream out, String s) throws IOException {
 		out.write(STRING_DELIMITER);
-		out.write(s.getBytes(ENCODING));
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == STRING_DELIMITER || c == ESCAPE) {
+				out.write(ESCAPE);
+				out.write(c);
+			} else if (c < 0x20) writeControl(out, c);
+			else if (c < 0x80) out.write(c);
+			else if (c < 0x800) {
+				out.write(0xC0 | c >> 6);
+				out.write(0x80 | c & 0x3F);
+			} else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				out.write(0xF0 | cp >> 18);
+				out.write(0x80 | cp >> 12 & 0x3F);
+				out.write(0x80 | cp >> 6 & 0x3F);
+				out.write(0x80 | cp & 0x3F);
+			} else if (Character.isSurrogate(c)) writeUnicodeEscape(out, c);
+			else {
+				out.write(0xE0 | c >> 12);
+				out.write(0x80 | c >> 6 & 0x3F);
+				out.write(0x80 | c & 0x3F);
+			}
+		}
 		out.write(STRING_DELIMITER);
 	}
 
+	private void writeControl(OutputStream out, char c) throws IOException {
+		switch (c) {
+			case '\n':
+				out.write(ESCAPE);
+				out.write('n');
+				break;
+			case '\r':
+				out.write(ESCAPE);
+				out.write('r');
+				break;
+			case '\t':
+				out.write(ESCAPE);
+				out.write('t');
+				break;
+			case '\b':
+				out.write(ESCAPE);
+				out.write('b');
+				break;
+			case '\f':
+				out.write(ESCAPE);
+				out.write('f');
+				break;
+			default:
+				writeUnicodeEscape(out, c);
+		}
+	}
+
+	private void writeUnicodeEscape(OutputStream out, char c) throws IOException {
+		out.write(ESCAPE);
+		out.write('u');
+		for (int shift = 12; shift >= 0; shift -= 4)
+			out.write(HEX[c >> shift & 0xF]);
+	}
+
 	public void writeCollection(OutputStream out, Collection<?> collection, SerializationContext context) throws IOException {
 		out.write(BEGIN_ARRAY);
 		Iterator<?> it = collection.iterator();
@@ -180,7 +238,7 @@ public class JsonFormat implements Format<InputStream, OutputStream> {
 		out.write(BEGIN_ARRAY);
 		int end = chars.length - 1;
 		for (int i = 0; i < chars.length; i++) {
-			out.write(chars[i]);
+			writeString(out, Character.toString(chars[i]));
 			if (i != end) out.write(ARRAY_SEPARATOR);
 		}
 		out.write(END_ARRAY);
@@ -253,15 +311,52 @@ public class JsonFormat implements Format<InputStream, OutputStream> {
 
 	private String readStringContent(InputStream in) throws IOException {
 		StringBuilder sb = new StringBuilder();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
 		assumeToken(in, STRING_DELIMITER);
 		while (true) {
-			char c = (char) in.read();
-			if (c == STRING_DELIMITER)
+			int c = in.read();
+			if (c == -1)
+				throw new EOFException("Unterminated string");
+			else if (c == STRING_DELIMITER)
 				break;
-			else
-				sb.append(c);
+			else if (c == ESCAPE) {
+				sb.append(bytes.toString(ENCODING));
+				bytes.reset();
+				sb.append(readEscaped(in));
+			} else
+				bytes.write(c);
+		}
+		return sb.append(bytes.toString(ENCODING)).toString();
+	}
+
+	private char readEscaped(InputStream in) throws IOException {
+		int c = in.read();
+		switch (c) {
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 't':
+				return '\t';
+			case 'b':
+				return '\b';
+			case 'f':
+				return '\f';
+			case 'u':
+				int code = 0;
+				for (int i = 0; i < 4; i++) {
+					int digit = Character.digit(in.read(), 16);
+					if (digit == -1) throw new IOException("Invalid unicode escape");
+					code = code << 4 | digit;
+				}
+				return (char) code;
+			case STRING_DELIMITER:
+			case ESCAPE:
+			case '/':
+				return (char) c;
+			default:
+				throw new IOException(FOUND_ILLEGAL + "\\" + (char) c);
 		}
-		return sb.toString();
 	}
 
 	private Object parseValue(InputStream in) throws IOException {
@@ -283,7 +378,7 @@ public class JsonFormat implements Format<InputStream, OutputStream> {
 				break;
 			case BEGIN_FALSE:
 				checkTokenEq(in, JSON_FALSE);
-				value = true;
+				value = false;
 				break;
 			case BEGIN_NULL:
 				checkTokenEq(in, JSON_NULL);
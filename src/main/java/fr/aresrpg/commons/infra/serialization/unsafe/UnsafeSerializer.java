@@ -102,6 +102,7 @@ public class UnsafeSerializer<T> implements Serializer<T> {
 	public void deserialize(Map<String, Object> values, T object) throws IOException {
 		for (int i = 0; i < names.length; i++) {
 			Object o = values.get(names[i]);
+			if (o == null && !values.containsKey(names[i])) continue; // Left out by a projection, the field keeps its value
 			if (o != null) {
 				Class<?> c = classes[i];
 
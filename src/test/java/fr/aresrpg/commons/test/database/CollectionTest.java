@@ -0,0 +1,222 @@
+package fr.aresrpg.commons.test.database;
+
+import fr.aresrpg.commons.domain.database.AsyncCollection;
+import fr.aresrpg.commons.domain.database.Cursor;
+import fr.aresrpg.commons.domain.database.Filter;
+import fr.aresrpg.commons.domain.database.Page;
+import fr.aresrpg.commons.domain.database.Query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CollectionTest {
+	@Test
+	public void bulk() {
+		MemoryCollection<Player> players = new MemoryCollection<>(Player.class);
+		players.putAll(Arrays.asList(new Player("storm", 1), new Player("logan", 2), new Player("jean", 3)));
+		Assert.assertEquals(3, players.count());
+		Assert.assertEquals("Values not put one by one", 3, players.getPuts());
+		players.bulk()
+				.put(new Player("hank", 4))
+				.update(Filter.eq("name", "storm"), new Player("storm", 10))
+				.putOrUpdate(Filter.eq("name", "scott"), new Player("scott", 5))
+				.remove(Filter.eq("name", "logan"))
+				.execute();
+		Assert.assertEquals("Writes not executed one by one", 5, players.getPuts());
+		Assert.assertEquals(4, players.count());
+		Assert.assertEquals(10, players.findFirst(Filter.eq("name", "storm")).score);
+		Assert.assertNotNull(players.findFirst(Filter.eq("name", "scott")));
+		Assert.assertFalse(players.exist(Filter.eq("name", "logan")));
+		players.bulk().removeAll(null).execute();
+		Assert.assertTrue(players.isEmpty());
+	}
+
+	@Test
+	public void bulkFailures() {
+		MemoryCollection<Player> players = new MemoryCollection<Player>(Player.class) {
+			@Override
+			public synchronized void put(Player value) {
+				if (value.name.startsWith("bad")) throw new IllegalArgumentException(value.name);
+				super.put(value);
+			}
+		};
+		try {
+			players.bulk().put(new Player("storm", 1)).put(new Player("bad", 2)).put(new Player("logan", 3)).execute();
+			Assert.fail("Failure of an ordered bulk skipped");
+		} catch (IllegalArgumentException e) { // NOSONAR expected
+		}
+		Assert.assertEquals("Ordered bulk not stopped at the failure", 1, players.count());
+		try {
+			players.bulk().setOrdered(false).put(new Player("bad1", 1)).put(new Player("jean", 2)).put(new Player("bad2", 3)).put(new Player("hank", 4)).execute();
+			Assert.fail("Failures of an unordered bulk skipped");
+		} catch (IllegalArgumentException e) {
+			Assert.assertEquals("bad1", e.getMessage());
+			Assert.assertEquals("bad2", e.getSuppressed()[0].getMessage());
+		}
+		Assert.assertEquals("Unordered bulk stopped at a failure", 3, players.count());
+	}
+
+	@Test
+	public void async() throws Exception {
+		MemoryCollection<Player> players = new MemoryCollection<>(Player.class);
+		AsyncCollection<Player> async = players.async();
+		async.putAll(Arrays.asList(new Player("storm", 1), new Player("logan", 2))).get();
+		Assert.assertEquals(Long.valueOf(2), async.count().get());
+		Assert.assertEquals("logan", async.findFirst(Filter.eq("score", 2)).get().name);
+		Assert.assertEquals(Integer.valueOf(1), async.remove(Filter.eq("name", "storm"), 1).get());
+		List<Runnable> queued = new ArrayList<>();
+		AsyncCollection<Player> limited = new AsyncCollection<>(players, queued::add, 1);
+		CompletableFuture<Void> put = limited.put(new Player("jean", 3));
+		try {
+			limited.count().get();
+			Assert.fail("The limit of operations in flight was ignored");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+		queued.remove(0).run();
+		Assert.assertTrue(put.isDone());
+		Assert.assertEquals(1, limited.getAvailable());
+		Assert.assertTrue(players.exist(Filter.eq("name", "jean")));
+	}
+
+	@Test
+	public void asyncSharedLimit() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		MemoryCollection<Player> blocking = new MemoryCollection<Player>(Player.class) {
+			@Override
+			public synchronized long count() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.count();
+			}
+		};
+		AsyncCollection<Player> other = new MemoryCollection<>(Player.class).async();
+		int available = other.getAvailable();
+		CompletableFuture<Long> count = blocking.async().count();
+		Assert.assertEquals("Default views not sharing their limit", available - 1, other.getAvailable());
+		release.countDown();
+		Assert.assertEquals(Long.valueOf(0), count.get());
+	}
+
+	@Test
+	public void cursor() {
+		MemoryCollection<Player> players = new MemoryCollection<>(Player.class);
+		players.putAll(Arrays.asList(new Player("storm", 1), new Player("logan", 2), new Player("jean", 1)));
+		try (Stream<Player> found = players.cursor(Filter.eq("score", 1)).stream()) {
+			Assert.assertEquals(2, found.count());
+		}
+		AtomicBoolean closed = new AtomicBoolean();
+		Cursor<Player> cursor = players.cursor(null);
+		Cursor<Player> tracked = new Cursor<Player>() {
+			@Override
+			public boolean hasNext() {
+				return cursor.hasNext();
+			}
+
+			@Override
+			public Player next() {
+				return cursor.next();
+			}
+
+			@Override
+			public void close() {
+				closed.set(true);
+			}
+		};
+		try (Stream<Player> all = tracked.stream()) {
+			Assert.assertEquals("storm", all.findFirst().get().name);
+		}
+		Assert.assertTrue(closed.get());
+	}
+
+	@Test
+	public void cursorFallback() {
+		int[] max = { -1 };
+		MemoryCollection<Player> players = new MemoryCollection<Player>(Player.class) {
+			@Override
+			public Player[] find(Filter filter, int limit) {
+				max[0] = limit;
+				return null; // Allowed by the contract when nothing is found
+			}
+		};
+		players.putAll(Arrays.asList(new Player("storm", 1), new Player("logan", 2)));
+		try (Cursor<Player> cursor = players.cursor(null)) {
+			Assert.assertEquals("storm", cursor.next().name);
+		}
+		Assert.assertEquals("All the values not read by the iterator", -1, max[0]);
+		try (Cursor<Player> cursor = players.cursor(Filter.eq("score", 1))) {
+			Assert.assertFalse("Null find not handled", cursor.hasNext());
+		}
+		Assert.assertEquals("Find not limited to the size of the collection", 2, max[0]);
+	}
+
+	@Test
+	public void queryPages() {
+		MemoryCollection<Player> players = new MemoryCollection<>(Player.class);
+		players.putAll(Arrays.asList(new Player("storm", 4), new Player("logan", 2), new Player("jean", 7), new Player("hank", 1), new Player("scott", 5), new Player("kurt", 3),
+				new Player("remy", 6)));
+		Query query = new Query().addSort("score", Query.Direction.ASCENDING).setLimit(3);
+		List<String> names = new ArrayList<>();
+		Assert.assertEquals(3, walk(players, query, names));
+		Assert.assertEquals(Arrays.asList("hank", "logan", "kurt", "storm", "scott", "remy", "jean"), names);
+		Page<Player> filtered = players.query(new Query().setFilter(Filter.eq("score", 4)).addSort("score", Query.Direction.ASCENDING));
+		Assert.assertEquals(1, filtered.getValues().size());
+		Assert.assertFalse(filtered.hasNext());
+	}
+
+	@Test
+	public void queryTies() {
+		MemoryCollection<Player> players = new MemoryCollection<>(Player.class);
+		players.putAll(Arrays.asList(new Player("storm", 5), new Player("logan", 9), new Player("jean", 5), new Player("hank", 5), new Player("scott", 5), new Player(null, 5),
+				new Player("kurt", 1)));
+		Query query = new Query().addSort("score", Query.Direction.DESCENDING).addSort("name", Query.Direction.ASCENDING).setLimit(2);
+		List<String> names = new ArrayList<>();
+		Assert.assertEquals(4, walk(players, query, names));
+		Assert.assertEquals("Descending sort broken by the names, null first", Arrays.asList("logan", null, "hank", "jean", "scott", "storm", "kurt"), names);
+		names.clear();
+		walk(players, new Query().addSort("score", Query.Direction.DESCENDING).setLimit(2), names);
+		Assert.assertEquals("Values equal on all the sort fields skipped or repeated", Arrays.asList("logan", "storm", "jean", "hank", "scott", null, "kurt"), names);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void queryInvalidContinuation() {
+		MemoryCollection<Player> players = new MemoryCollection<>(Player.class);
+		players.put(new Player("storm", 1));
+		players.query(new Query().addSort("score", Query.Direction.ASCENDING).setContinuation("invalid"));
+	}
+
+	private static int walk(MemoryCollection<Player> players, Query query, List<String> names) {
+		int pages = 0;
+		Page<Player> page;
+		do {
+			page = players.query(query);
+			page.forEach(p -> names.add(p.name));
+			query.setContinuation(page.getContinuation());
+			pages++;
+		} while (page.hasNext());
+		return pages;
+	}
+
+	public static class Player {
+		String name;
+		int score;
+
+		public Player(String name, int score) {
+			this.name = name;
+			this.score = score;
+		}
+	}
+}
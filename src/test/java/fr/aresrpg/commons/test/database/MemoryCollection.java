@@ -0,0 +1,134 @@
+package fr.aresrpg.commons.test.database;
+
+import fr.aresrpg.commons.domain.database.Collection;
+import fr.aresrpg.commons.domain.database.Filter;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A collection kept in memory only implementing the abstract methods, so the default methods of {@link Collection} are tested.
+ * Only the {@link Filter.Type#AND} and {@link Filter.Type#EQUALS} filters are supported
+ */
+public class MemoryCollection<T> implements Collection<T> {
+	private final List<T> values = new ArrayList<>();
+	private final Class<T> type;
+	private int puts;
+
+	public MemoryCollection(Class<T> type) {
+		this.type = type;
+	}
+
+	public int getPuts() {
+		return puts;
+	}
+
+	@Override
+	public synchronized void put(T value) {
+		puts++;
+		values.add(value);
+	}
+
+	@Override
+	public void update(Filter filter, T value) {
+		replace(filter, value, false, 1);
+	}
+
+	@Override
+	public void putOrUpdate(Filter filter, T value) {
+		replace(filter, value, true, 1);
+	}
+
+	@Override
+	public void updateAll(Filter filter, T value) {
+		replace(filter, value, false, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public void putOrUpdateAll(Filter filter, T value) {
+		replace(filter, value, true, Integer.MAX_VALUE);
+	}
+
+	private synchronized void replace(Filter filter, T value, boolean upsert, int max) {
+		int replaced = 0;
+		for (int i = 0; i < values.size() && replaced < max; i++)
+			if (matches(filter, values.get(i))) {
+				values.set(i, value);
+				replaced++;
+			}
+		if (replaced == 0 && upsert) put(value);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized T[] find(Filter filter, int max) {
+		List<T> found = new ArrayList<>();
+		for (T value : values)
+			if (found.size() < max && matches(filter, value)) found.add(value);
+		return found.toArray((T[]) Array.newInstance(type, found.size()));
+	}
+
+	@Override
+	public T[] sorted(String fieldname, int max) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public synchronized int remove(Filter filter, int removed) {
+		int count = 0;
+		for (Iterator<T> it = values.iterator(); it.hasNext() && count < removed;)
+			if (matches(filter, it.next())) {
+				it.remove();
+				count++;
+			}
+		return count;
+	}
+
+	@Override
+	public synchronized long count() {
+		return values.size();
+	}
+
+	@Override
+	public String getId() {
+		return "memory";
+	}
+
+	@Override
+	public synchronized boolean isEmpty() {
+		return values.isEmpty();
+	}
+
+	@Override
+	public synchronized Iterator<T> iterator() {
+		return new ArrayList<>(values).iterator();
+	}
+
+	private static boolean matches(Filter filter, Object value) {
+		if (filter == null) return true;
+		switch (filter.getType()) {
+			case AND:
+				for (Filter f : (Filter[]) filter.getValue())
+					if (!matches(f, value)) return false;
+				return true;
+			case EQUALS:
+				return Objects.equals(get(value, filter.getName()), filter.getValue());
+			default:
+				throw new UnsupportedOperationException(filter.getType().name());
+		}
+	}
+
+	private static Object get(Object value, String name) {
+		try {
+			Field field = value.getClass().getDeclaredField(name);
+			field.setAccessible(true);
+			return field.get(value);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+}
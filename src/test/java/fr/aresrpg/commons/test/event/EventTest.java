@@ -1,14 +1,46 @@
 package fr.aresrpg.commons.test.event;
 
-import fr.aresrpg.commons.domain.event.Event;
-import fr.aresrpg.commons.domain.event.EventBus;
+import fr.aresrpg.commons.domain.event.*;
+
+import fr.aresrpg.commons.domain.serialization.Format;
+import fr.aresrpg.commons.domain.serialization.Serializer;
+import fr.aresrpg.commons.domain.util.Pair;
+import fr.aresrpg.commons.infra.serialization.formats.BinaryFormat;
+import fr.aresrpg.commons.infra.serialization.unsafe.UnsafeSerializationFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class EventTest {
 	public static final int COUNT = 50;
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	public static class PriorityTestEvent implements Event<PriorityTestEvent> {
 		public static final EventBus<PriorityTestEvent> BUS = new EventBus<>(PriorityTestEvent.class);
 
@@ -138,4 +170,745 @@ public class EventTest {
 		Assert.assertTrue("Method executed", true);
 	}
 
+
+	public static class CancellableTestEvent implements Event<CancellableTestEvent>, Cancellable, Keyed {
+		public static final EventBus<CancellableTestEvent> BUS = new EventBus<>(CancellableTestEvent.class);
+
+		public final String key;
+		public boolean cancelled;
+		public int received;
+		public int called;
+
+		public CancellableTestEvent(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public void setCancelled(boolean cancelled) {
+			this.cancelled = cancelled;
+		}
+
+		@Override
+		public Object getKey() {
+			return key;
+		}
+
+		@Override
+		public EventBus<CancellableTestEvent> getBus() {
+			return BUS;
+		}
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	public static class CancellableTestListener implements Listener, Keyed {
+		private final String key;
+
+		public CancellableTestListener(String key) {
+			this.key = key;
+		}
+
+		@Subscribe(priority = 0, keyed = true)
+		public void cancel(CancellableTestEvent event) {
+			event.cancel();
+		}
+
+		@Subscribe(priority = 1, ignoreCancelled = true)
+		public void ignored(CancellableTestEvent event) {
+			event.received++;
+		}
+
+		@Subscribe(priority = 2, filter = "isLong")
+		public void filtered(CancellableTestEvent event) {
+			event.called++;
+		}
+
+		public boolean isLong(CancellableTestEvent event) {
+			return event.key.length() > 1;
+		}
+
+		@Override
+		public Object getKey() {
+			return key;
+		}
+	}
+
+	@Test
+	public void cancellableTestEvent() throws Exception {
+		Events.register(new CancellableTestListener("a"));
+		Events.register(new CancellableTestListener("ab"));
+		CancellableTestEvent event = new CancellableTestEvent("a");
+		event.send();
+		Assert.assertTrue("Keyed subscriber not called", event.cancelled);
+		Assert.assertEquals("Cancelled event received", 0, event.received);
+		Assert.assertEquals("Filtered subscriber called", 0, event.called);
+		event = new CancellableTestEvent("ab");
+		event.send();
+		Assert.assertEquals("Filtered subscriber not called", 2, event.called);
+		event = new CancellableTestEvent("c");
+		event.send();
+		Assert.assertFalse("Keyed subscriber called for another key", event.cancelled);
+		Assert.assertEquals("Event not received", 2, event.received);
+	}
+
+	@Test
+	public void keyedListenerWithoutKey() throws Exception {
+		int subscribers = CancellableTestEvent.BUS.subscribersSize();
+		try {
+			Events.register(new CancellableTestListener(null));
+			Assert.fail("A keyed listener without key was registered");
+		} catch (IllegalStateException e) { // NOSONAR expected
+		}
+		Assert.assertEquals("A failed registration subscribed methods", subscribers, CancellableTestEvent.BUS.subscribersSize());
+	}
+
+	@SuppressWarnings("rawtypes")
+	public abstract static class ParentTestEvent<T extends ParentTestEvent<T>> implements Event<T> {
+		public static final EventBus<ParentTestEvent> BUS = new EventBus<>(ParentTestEvent.class);
+
+		public int parentCalls;
+		public int childCalls;
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	public static class ChildTestEvent extends ParentTestEvent<ChildTestEvent> {
+		public static final EventBus<ChildTestEvent> BUS = new EventBus<>(ChildTestEvent.class);
+
+		@Override
+		public EventBus<ChildTestEvent> getBus() {
+			return BUS;
+		}
+	}
+
+	@Test
+	public void hierarchyTestEvent() {
+		ChildTestEvent event = new ChildTestEvent();
+		event.send();
+		Assert.assertEquals(0, event.parentCalls);
+		Subscriber<ParentTestEvent> parent = EventBus.getBus(ParentTestEvent.class).subscribe(e -> e.parentCalls++, 1);
+		event.send();
+		Assert.assertEquals("Parent subscriber not called", 1, event.parentCalls);
+		EventBus.getBus(ChildTestEvent.class).subscribe(e -> {
+			Assert.assertEquals("Priority not respected between buses", 1, e.parentCalls);
+			e.childCalls++;
+		}, 2);
+		event = new ChildTestEvent();
+		event.send();
+		Assert.assertEquals(1, event.childCalls);
+		EventBus.getBus(ParentTestEvent.class).unsubscribe(parent);
+		event.send();
+		Assert.assertEquals("Parent subscriber called after unsubscribe", 1, event.parentCalls);
+	}
+
+	public abstract static class CacheParentTestEvent implements Event<CacheParentTestEvent> {
+		public static final EventBus<CacheParentTestEvent> BUS = new EventBus<>(CacheParentTestEvent.class);
+
+		public int parentCalls;
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	public static class CacheChildTestEvent extends CacheParentTestEvent {
+		public static final EventBus<CacheChildTestEvent> BUS = new EventBus<>(CacheChildTestEvent.class);
+
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public EventBus<CacheParentTestEvent> getBus() {
+			return (EventBus) BUS;
+		}
+	}
+
+	@Test
+	public void dispatchCacheScopedToHierarchy() throws Exception {
+		Field dispatch = EventBus.class.getDeclaredField("dispatch");
+		dispatch.setAccessible(true);
+		new CacheChildTestEvent().send();
+		Object cached = dispatch.get(CacheChildTestEvent.BUS);
+		Subscriber<ScopeTestEvent> unrelated = ScopeTestEvent.BUS.subscribe(e -> e.called++);
+		ScopeTestEvent.BUS.unsubscribe(unrelated);
+		new CacheChildTestEvent().send();
+		Assert.assertSame("An unrelated subscription invalidated the dispatch", cached, dispatch.get(CacheChildTestEvent.BUS));
+		Subscriber<CacheParentTestEvent> parent = CacheParentTestEvent.BUS.subscribe(e -> e.parentCalls++);
+		CacheChildTestEvent event = new CacheChildTestEvent();
+		event.send();
+		CacheParentTestEvent.BUS.unsubscribe(parent);
+		Assert.assertEquals("A super bus subscription was not seen", 1, event.parentCalls);
+		Assert.assertNotSame(cached, dispatch.get(CacheChildTestEvent.BUS));
+	}
+
+	@Test
+	public void secondBusOfOwner() {
+		EventBus<CacheChildTestEvent> second = new EventBus<>(CacheChildTestEvent.class);
+		Assert.assertSame("The registered bus was replaced", CacheChildTestEvent.BUS, EventBus.getBus(CacheChildTestEvent.class));
+		second.subscribe(e -> e.parentCalls += 10);
+		Subscriber<CacheParentTestEvent> parent = CacheParentTestEvent.BUS.subscribe(e -> e.parentCalls++);
+		CacheChildTestEvent event = new CacheChildTestEvent();
+		second.send(event);
+		CacheParentTestEvent.BUS.unsubscribe(parent);
+		Assert.assertEquals("The subscribers of the second bus or of the super bus were not called", 11, event.parentCalls);
+		event.send();
+		Assert.assertEquals("The subscribers of the second bus were called by the registered bus", 11, event.parentCalls);
+	}
+
+	public static class ScopeTestEvent implements Event<ScopeTestEvent> {
+		public static final EventBus<ScopeTestEvent> BUS = new EventBus<>(ScopeTestEvent.class);
+
+		public int called;
+
+		@Override
+		public EventBus<ScopeTestEvent> getBus() {
+			return BUS;
+		}
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	public static class ScopeTestListener implements Listener {
+		@Subscribe
+		public void called(ScopeTestEvent event) {
+			event.called++;
+		}
+	}
+
+	@Test
+	public void scopeTestEvent() throws Exception {
+		SubscriptionScope scope = new SubscriptionScope();
+		for (int i = 0; i < COUNT; i++)
+			scope.register(new ScopeTestListener());
+		scope.subscribe(ScopeTestEvent.BUS, e -> e.called++, 0);
+		ScopeTestEvent event = new ScopeTestEvent();
+		event.send();
+		Assert.assertEquals(COUNT + 1, event.called);
+		scope.close();
+		Assert.assertEquals("Subscribers not removed", 0, ScopeTestEvent.BUS.subscribersSize());
+	}
+
+	@Test
+	public void weakTestEvent() throws Exception {
+		ScopeTestListener listener = new ScopeTestListener();
+		SubscriptionScope scope = new SubscriptionScope(true);
+		scope.register(listener);
+		ScopeTestEvent event = new ScopeTestEvent();
+		event.send();
+		Assert.assertEquals(1, event.called);
+		WeakReference<ScopeTestListener> reference = new WeakReference<>(listener);
+		listener = null; // NOSONAR
+		for (int i = 0; i < 10 && reference.get() != null; i++)
+			System.gc();
+		Assert.assertNull("Weak listener still reachable", reference.get());
+		ScopeTestEvent.BUS.send(event);
+		Assert.assertEquals("Collected listener called", 1, event.called);
+		Assert.assertEquals("Collected listener not dropped", 0, ScopeTestEvent.BUS.subscribersSize());
+		scope.close();
+	}
+
+	public static class InstanceTestEvent implements Event<InstanceTestEvent> {
+		public static final EventBus<InstanceTestEvent> BUS = new EventBus<>(InstanceTestEvent.class);
+
+		@Override
+		public EventBus<InstanceTestEvent> getBus() {
+			return BUS;
+		}
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	public static class InstanceTestListener implements Listener {
+		public int calls;
+
+		@Subscribe
+		public void called(InstanceTestEvent event) {
+			calls++;
+		}
+	}
+
+	@Test(timeout = 10000)
+	@SuppressWarnings("rawtypes")
+	public void listenerInstancesRegisteredConcurrently() throws Exception {
+		InstanceTestListener[] listeners = new InstanceTestListener[COUNT * 4];
+		List<List<Pair<EventBus, Subscriber>>> registered = new ArrayList<>();
+		for (int i = 0; i < listeners.length; i++) {
+			listeners[i] = new InstanceTestListener();
+			registered.add(null);
+		}
+		CountDownLatch start = new CountDownLatch(1);
+		List<Throwable> failures = new CopyOnWriteArrayList<>();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			int first = t;
+			threads[t] = new Thread(() -> {
+				try {
+					start.await();
+					for (int i = first; i < listeners.length; i += threads.length)
+						registered.set(i, Events.register(listeners[i]));
+				} catch (Throwable e) { // NOSONAR reported by the test thread
+					failures.add(e);
+				}
+			});
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread thread : threads)
+			thread.join();
+		Assert.assertEquals(Collections.emptyList(), failures);
+		Assert.assertEquals(listeners.length, InstanceTestEvent.BUS.subscribersSize());
+		new InstanceTestEvent().send();
+		for (int i = 0; i < listeners.length; i += 2)
+			Events.unregister(registered.get(i));
+		new InstanceTestEvent().send();
+		for (int i = 0; i < listeners.length; i++)
+			Assert.assertEquals("Wrong subscribers for the listener " + i, i % 2 == 0 ? 1 : 2, listeners[i].calls);
+		for (int i = 1; i < listeners.length; i += 2)
+			Events.unregister(registered.get(i));
+		Assert.assertEquals(0, InstanceTestEvent.BUS.subscribersSize());
+	}
+
+	public static class LazyTestEvent implements Event<LazyTestEvent> {
+		public static final EventBus<LazyTestEvent> BUS = new EventBus<>(LazyTestEvent.class);
+
+		@Override
+		public EventBus<LazyTestEvent> getBus() {
+			return BUS;
+		}
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void getBusInitializesConcurrently() throws Exception {
+		Class<LazyTestEvent> type = LazyTestEvent.class; // The literal does not initialize the class
+		Assert.assertFalse("Bus registered before the initialization", EventBus.getBuses().containsKey(type));
+		CyclicBarrier start = new CyclicBarrier(8);
+		List<Object> found = new CopyOnWriteArrayList<>();
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				try {
+					start.await();
+					found.add(EventBus.getBus(type));
+				} catch (Exception e) { // NOSONAR reported by the assertions
+					found.add(e);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		Assert.assertEquals(threads.length, found.size());
+		for (Object bus : found)
+			Assert.assertSame("Uninitialized event class not resolved to its bus", LazyTestEvent.BUS, bus);
+	}
+
+	public static class MetricsTestEvent implements Event<MetricsTestEvent> {
+		public static final EventBus<MetricsTestEvent> BUS = new EventBus<>(MetricsTestEvent.class);
+
+		public boolean fail;
+
+		@Override
+		public EventBus<MetricsTestEvent> getBus() {
+			return BUS;
+		}
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	@Test
+	public void metricsTestEvent() {
+		Subscriber<MetricsTestEvent> before = MetricsTestEvent.BUS.subscribe(e -> {
+			if (e.fail) throw new IllegalStateException();
+		}, 0);
+		Assert.assertNull("Metrics collected while disabled", before.getMetrics());
+		MetricsTestEvent.BUS.setMetricsEnabled(true);
+		Subscriber<MetricsTestEvent> after = MetricsTestEvent.BUS.subscribe(e -> {}, 1);
+		for (int i = 0; i < COUNT; i++)
+			new MetricsTestEvent().send();
+		MetricsTestEvent failing = new MetricsTestEvent();
+		failing.fail = true;
+		try {
+			failing.send();
+			Assert.fail("Exception not propagated");
+		} catch (IllegalStateException e) { // NOSONAR
+		}
+		Assert.assertEquals(COUNT + 1, before.getMetrics().getInvocations());
+		Assert.assertEquals(1, before.getMetrics().getExceptions());
+		Assert.assertEquals("Subscriber called after a failure", COUNT, after.getMetrics().getInvocations());
+		Assert.assertEquals(0, after.getMetrics().getExceptions());
+		Assert.assertNotNull(MetricsTestEvent.BUS.getMetrics());
+		MetricsTestEvent.BUS.setMetricsEnabled(false);
+		Assert.assertNull("Metrics not disabled", before.getMetrics());
+	}
+
+	public static class JournalTestEvent implements Event<JournalTestEvent> {
+		public static final EventBus<JournalTestEvent> BUS = new EventBus<>(JournalTestEvent.class);
+
+		private String name;
+		private int amount;
+		private long[] values;
+
+		@Override
+		public EventBus<JournalTestEvent> getBus() {
+			return BUS;
+		}
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	@Test
+	public void journalTestEvent() throws Exception {
+		Path directory = folder.newFolder("journal").toPath();
+		Serializer<JournalTestEvent> serializer = new UnsafeSerializationFactory().createOrGetSerializer(JournalTestEvent.class);
+		try (EventJournal<JournalTestEvent> journal = new EventJournal<>(directory, serializer, BinaryFormat.INSTANCE, 256)) {
+			Subscriber<JournalTestEvent> subscriber = journal.attach(JournalTestEvent.BUS, e -> e.amount % 2 == 0);
+			for (int i = 0; i < COUNT; i++) {
+				JournalTestEvent event = new JournalTestEvent();
+				event.name = "event" + i;
+				event.amount = i;
+				event.values = new long[] { i, -i };
+				event.send();
+			}
+			journal.flush();
+			Assert.assertTrue("Journal not rolled", directory.toFile().list().length > 1);
+			List<JournalTestEvent> replayed = new ArrayList<>();
+			Subscriber<JournalTestEvent> consumer = JournalTestEvent.BUS.subscribe(replayed::add);
+			Assert.assertEquals(COUNT / 2, journal.replay(JournalTestEvent.BUS, 0, Long.MAX_VALUE));
+			JournalTestEvent.BUS.unsubscribe(consumer);
+			for (int i = 0; i < replayed.size(); i++) {
+				JournalTestEvent event = replayed.get(i);
+				Assert.assertEquals("event" + i * 2, event.name);
+				Assert.assertEquals(i * 2, event.amount);
+				Assert.assertArrayEquals(new long[] { i * 2, -i * 2 }, event.values);
+			}
+			journal.flush();
+			Assert.assertEquals("Replayed events journaled", COUNT / 2, journal.replay(0, Long.MAX_VALUE, e -> {}));
+			Assert.assertEquals("Events outside the range replayed", 0, journal.replay(0, 1, e -> {}));
+			JournalTestEvent.BUS.unsubscribe(subscriber);
+		}
+		try (EventJournal<JournalTestEvent> journal = new EventJournal<>(directory, serializer, BinaryFormat.INSTANCE, 256)) {
+			journal.append(new JournalTestEvent());
+			Assert.assertEquals("Journal not reopened at its end", COUNT / 2 + 1, journal.replay(0, Long.MAX_VALUE, e -> {}));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void journalSerializesOffTheSendingThread() throws Exception {
+		Serializer<JournalTestEvent> delegate = new UnsafeSerializationFactory().createOrGetSerializer(JournalTestEvent.class);
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Serializer<JournalTestEvent> serializer = new Serializer<JournalTestEvent>() {
+			@Override
+			public <O> void serialize(O output, JournalTestEvent object, Format<?, O> format) throws IOException {
+				blocked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				delegate.serialize(output, object, format);
+			}
+
+			@Override
+			public <I> void deserialize(I input, JournalTestEvent object, Format<I, ?> format) throws IOException {
+				delegate.deserialize(input, object, format);
+			}
+
+			@Override
+			public <I> JournalTestEvent deserialize(I input, Format<I, ?> format) throws IOException {
+				return delegate.deserialize(input, format);
+			}
+
+			@Override
+			public JournalTestEvent deserialize(Map<String, Object> values) throws IOException {
+				return delegate.deserialize(values);
+			}
+
+			@Override
+			public void deserialize(Map<String, Object> values, JournalTestEvent object) throws IOException {
+				delegate.deserialize(values, object);
+			}
+		};
+		int capacity = 8;
+		try (EventJournal<JournalTestEvent> journal = new EventJournal<>(folder.newFolder("slow").toPath(), serializer, BinaryFormat.INSTANCE, 4096, capacity,
+				EventJournal.OverflowPolicy.DROP)) {
+			Subscriber<JournalTestEvent> subscriber = journal.attach(JournalTestEvent.BUS);
+			new JournalTestEvent().send();
+			blocked.await();
+			for (int i = 0; i < COUNT; i++)
+				new JournalTestEvent().send(); // Would never return if the serialization ran on this thread
+			JournalTestEvent.BUS.unsubscribe(subscriber);
+			Assert.assertEquals("Events over the capacity not dropped", COUNT - capacity, journal.getDropped());
+			release.countDown();
+			journal.flush();
+			Assert.assertEquals(capacity + 1, journal.replay(0, Long.MAX_VALUE, e -> {}));
+		}
+	}
+
+	public static class BridgeTestEvent implements Event<BridgeTestEvent> {
+		public static final EventBus<BridgeTestEvent> BUS = new EventBus<>(BridgeTestEvent.class);
+
+		private transient boolean local = true; // Not serialized, false once received from the peer
+		private int index;
+
+		@Override
+		public EventBus<BridgeTestEvent> getBus() {
+			return BUS;
+		}
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	@Test
+	public void bridgeTestEvent() throws Exception {
+		UnsafeSerializationFactory factory = new UnsafeSerializationFactory();
+		try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+				EventBridge client = EventBridge.connect(server.getLocalAddress(), factory, BinaryFormat.INSTANCE);
+				EventBridge peer = EventBridge.accept(server, factory, BinaryFormat.INSTANCE)) {
+			peer.receive(BridgeTestEvent.BUS);
+			client.forward(BridgeTestEvent.BUS, e -> e.local);
+			CountDownLatch latch = new CountDownLatch(COUNT);
+			int[] next = new int[1];
+			Subscriber<BridgeTestEvent> subscriber = BridgeTestEvent.BUS.subscribe(e -> {
+				if (e.local) return;
+				Assert.assertEquals("Events reordered", next[0]++, e.index);
+				latch.countDown();
+			});
+			for (int i = 0; i < COUNT; i++) {
+				BridgeTestEvent event = new BridgeTestEvent();
+				event.index = i;
+				event.send();
+			}
+			Assert.assertTrue("Events not received", latch.await(10, TimeUnit.SECONDS));
+			BridgeTestEvent.BUS.unsubscribe(subscriber);
+		}
+		Assert.assertEquals("Bridge not unsubscribed", 0, BridgeTestEvent.BUS.subscribersSize());
+	}
+
+	public abstract static class BridgeBaseTestEvent implements Event<BridgeBaseTestEvent> {
+		public static final EventBus<BridgeBaseTestEvent> BUS = new EventBus<>(BridgeBaseTestEvent.class);
+
+		protected transient boolean local = true;
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	public static class BridgeSubTestEvent extends BridgeBaseTestEvent {
+		public static final EventBus<BridgeSubTestEvent> BUS = new EventBus<>(BridgeSubTestEvent.class);
+
+		private int index;
+		private String name;
+
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public EventBus<BridgeBaseTestEvent> getBus() {
+			return (EventBus) BUS;
+		}
+	}
+
+	@Test
+	public void bridgeSubclassEvent() throws Exception {
+		UnsafeSerializationFactory factory = new UnsafeSerializationFactory();
+		try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+				EventBridge client = EventBridge.connect(server.getLocalAddress(), factory, BinaryFormat.INSTANCE);
+				EventBridge peer = EventBridge.accept(server, factory, BinaryFormat.INSTANCE)) {
+			peer.receive(BridgeBaseTestEvent.BUS);
+			client.forward(BridgeBaseTestEvent.BUS, e -> e.local);
+			CountDownLatch latch = new CountDownLatch(COUNT);
+			List<BridgeBaseTestEvent> received = new ArrayList<>();
+			Subscriber<BridgeBaseTestEvent> subscriber = BridgeBaseTestEvent.BUS.subscribe(e -> {
+				if (e.local) return;
+				received.add(e);
+				latch.countDown();
+			});
+			for (int i = 0; i < COUNT; i++) {
+				BridgeSubTestEvent event = new BridgeSubTestEvent();
+				event.index = i;
+				event.name = "sub" + i;
+				event.send();
+			}
+			Assert.assertTrue("Subclass events not received", latch.await(10, TimeUnit.SECONDS));
+			BridgeBaseTestEvent.BUS.unsubscribe(subscriber);
+			for (int i = 0; i < COUNT; i++) {
+				BridgeSubTestEvent event = (BridgeSubTestEvent) received.get(i);
+				Assert.assertEquals(i, event.index);
+				Assert.assertEquals("sub" + i, event.name);
+			}
+		}
+	}
+
+	public static class BridgeReplyTestEvent implements Event<BridgeReplyTestEvent> {
+		public static final EventBus<BridgeReplyTestEvent> BUS = new EventBus<>(BridgeReplyTestEvent.class);
+
+		private transient boolean local = true;
+		private int index;
+
+		@Override
+		public EventBus<BridgeReplyTestEvent> getBus() {
+			return BUS;
+		}
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	@Test
+	public void bridgeForwardsReplies() throws Exception {
+		UnsafeSerializationFactory factory = new UnsafeSerializationFactory();
+		try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+				EventBridge client = EventBridge.connect(server.getLocalAddress(), factory, BinaryFormat.INSTANCE);
+				EventBridge peer = EventBridge.accept(server, factory, BinaryFormat.INSTANCE)) {
+			peer.receive(BridgeTestEvent.BUS);
+			client.forward(BridgeTestEvent.BUS, e -> e.local);
+			client.receive(BridgeReplyTestEvent.BUS);
+			peer.forward(BridgeReplyTestEvent.BUS, e -> e.local);
+			Subscriber<BridgeTestEvent> responder = BridgeTestEvent.BUS.subscribe(e -> {
+				if (e.local) return;
+				BridgeReplyTestEvent reply = new BridgeReplyTestEvent(); // Sent while the peer re-emits the request
+				reply.index = e.index;
+				reply.send();
+			});
+			CountDownLatch latch = new CountDownLatch(COUNT);
+			Subscriber<BridgeReplyTestEvent> subscriber = BridgeReplyTestEvent.BUS.subscribe(e -> {
+				if (!e.local) latch.countDown();
+			});
+			for (int i = 0; i < COUNT; i++) {
+				BridgeTestEvent event = new BridgeTestEvent();
+				event.index = i;
+				event.send();
+			}
+			Assert.assertTrue("Replies sent while receiving not forwarded", latch.await(10, TimeUnit.SECONDS));
+			BridgeTestEvent.BUS.unsubscribe(responder);
+			BridgeReplyTestEvent.BUS.unsubscribe(subscriber);
+		}
+	}
+
+	public static class BridgePingTestEvent implements Event<BridgePingTestEvent> {
+		public static final EventBus<BridgePingTestEvent> BUS = new EventBus<>(BridgePingTestEvent.class);
+
+		private transient boolean local = true;
+		private int hops;
+		private String payload;
+
+		@Override
+		public EventBus<BridgePingTestEvent> getBus() {
+			return BUS;
+		}
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	public static class BridgePongTestEvent implements Event<BridgePongTestEvent> {
+		public static final EventBus<BridgePongTestEvent> BUS = new EventBus<>(BridgePongTestEvent.class);
+
+		private transient boolean local = true;
+		private int hops;
+		private String payload;
+
+		@Override
+		public EventBus<BridgePongTestEvent> getBus() {
+			return BUS;
+		}
+
+		@Override
+		public boolean isAsynchronous() {
+			return false;
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void bridgeRepliesBothWaysUnderLoad() throws Exception {
+		UnsafeSerializationFactory factory = new UnsafeSerializationFactory();
+		char[] padding = new char[4096];
+		Arrays.fill(padding, 'x');
+		String payload = new String(padding);
+		AtomicInteger sent = new AtomicInteger();
+		AtomicInteger received = new AtomicInteger();
+		try (ServerSocketChannel server = ServerSocketChannel.open().setOption(StandardSocketOptions.SO_RCVBUF, 8192).bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+				EventBridge client = new EventBridge(smallBuffers(SocketChannel.open(), server.getLocalAddress()), factory, BinaryFormat.INSTANCE, 64);
+				EventBridge peer = new EventBridge(smallBuffers(server.accept(), null), factory, BinaryFormat.INSTANCE, 64)) {
+			peer.receive(BridgePingTestEvent.BUS);
+			client.forward(BridgePingTestEvent.BUS, e -> e.local);
+			client.receive(BridgePongTestEvent.BUS);
+			peer.forward(BridgePongTestEvent.BUS, e -> e.local);
+			Subscriber<BridgePingTestEvent> ping = BridgePingTestEvent.BUS.subscribe(e -> { // Both readers send while re-emitting
+				if (e.local) return;
+				received.incrementAndGet();
+				for (int i = 0; i < e.hops; i++) { // Fan out so both directions saturate
+					BridgePongTestEvent reply = new BridgePongTestEvent();
+					reply.hops = e.hops - 1;
+					reply.payload = e.payload;
+					sent.incrementAndGet();
+					reply.send();
+				}
+			});
+			Subscriber<BridgePongTestEvent> pong = BridgePongTestEvent.BUS.subscribe(e -> {
+				if (e.local) return;
+				received.incrementAndGet();
+				for (int i = 0; i < e.hops; i++) { // Fan out so both directions saturate
+					BridgePingTestEvent reply = new BridgePingTestEvent();
+					reply.hops = e.hops - 1;
+					reply.payload = e.payload;
+					sent.incrementAndGet();
+					reply.send();
+				}
+			});
+			for (int i = 0; i < COUNT; i++) {
+				BridgePingTestEvent event = new BridgePingTestEvent();
+				event.hops = 4;
+				event.payload = payload;
+				sent.incrementAndGet();
+				event.send();
+			}
+			while (received.get() + client.getDropped() + peer.getDropped() != sent.get()) // Each event sent is received or dropped, unless the bridges are stuck
+				Thread.sleep(10);
+			Assert.assertFalse("Bridge closed under load", client.isClosed() || peer.isClosed());
+			BridgePingTestEvent.BUS.unsubscribe(ping);
+			BridgePongTestEvent.BUS.unsubscribe(pong);
+		}
+	}
+
+	private static SocketChannel smallBuffers(SocketChannel channel, SocketAddress address) throws IOException { // Fill the connection with a few events
+		channel.setOption(StandardSocketOptions.SO_SNDBUF, 8192).setOption(StandardSocketOptions.SO_RCVBUF, 8192);
+		if (address != null) channel.connect(address);
+		return channel;
+	}
 }
@@ -0,0 +1,41 @@
+package fr.aresrpg.commons.test.infra.log.json;
+
+import fr.aresrpg.commons.domain.log.Logger;
+import fr.aresrpg.commons.infra.log.json.JsonHandler;
+import fr.aresrpg.commons.infra.serialization.formats.JsonFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JsonHandlerTest {
+	@Test
+	@SuppressWarnings("unchecked")
+	public void jsonLines() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonHandler handler = new JsonHandler(Channels.newChannel(out), 16);
+		try (Logger logger = new Logger("json", new ArrayList<>(Collections.singletonList(handler)))) {
+			logger.info("player {} said \"{}\"", 42, (Object) "hi\nthere");
+			logger.error("net", new IllegalStateException("boom"), "lost {}", Double.NaN);
+		}
+		String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+		Assert.assertEquals(2, lines.length);
+		Map<String, Object> info = (Map<String, Object>) JsonFormat.INSTANCE.read(new ByteArrayInputStream(lines[0].getBytes(StandardCharsets.UTF_8)));
+		Assert.assertEquals("INFO", info.get(JsonHandler.LEVEL));
+		Assert.assertEquals("player {} said \"{}\"", info.get(JsonHandler.TEMPLATE));
+		Assert.assertEquals("player 42 said \"hi\nthere\"", info.get(JsonHandler.MESSAGE));
+		Assert.assertArrayEquals(new Object[] { 42, "hi\nthere" }, (Object[]) info.get(JsonHandler.ARGS));
+		Assert.assertNull(info.get(JsonHandler.THROWABLE));
+		Map<String, Object> error = (Map<String, Object>) JsonFormat.INSTANCE.read(new ByteArrayInputStream(lines[1].getBytes(StandardCharsets.UTF_8)));
+		Assert.assertEquals("net", error.get(JsonHandler.CHANNEL));
+		Assert.assertArrayEquals(new Object[] { "NaN" }, (Object[]) error.get(JsonHandler.ARGS));
+		Assert.assertTrue(((String) error.get(JsonHandler.THROWABLE)).startsWith("java.lang.IllegalStateException: boom"));
+	}
+}
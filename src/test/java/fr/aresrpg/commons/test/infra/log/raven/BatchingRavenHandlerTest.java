@@ -0,0 +1,95 @@
+package fr.aresrpg.commons.test.infra.log.raven;
+
+import com.getsentry.raven.Raven;
+import com.getsentry.raven.event.Event;
+import fr.aresrpg.commons.domain.log.Logger;
+import fr.aresrpg.commons.infra.log.raven.BatchingRavenHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchingRavenHandlerTest {
+	public static final int COUNT = 1000;
+
+	public static class LocalRaven extends Raven {
+		public final List<Event> events = Collections.synchronizedList(new ArrayList<>());
+
+		@Override
+		public void sendEvent(Event event) {
+			events.add(event);
+		}
+	}
+
+	@Test
+	public void batching() throws Exception {
+		LocalRaven raven = new LocalRaven();
+		BatchingRavenHandler handler = new BatchingRavenHandler(raven, null, null, 16, 1, TimeUnit.HOURS);
+		handler.setRateLimit(2, 1, TimeUnit.HOURS);
+		try (Logger logger = new Logger("raven", new ArrayList<>(Collections.singletonList(handler)))) {
+			for (int i = 0; i < COUNT; i++)
+				logger.error(new IllegalStateException(), "failure {}", i);
+			logger.info("ignored");
+			logger.flush();
+			Assert.assertEquals("Identical logs not merged", 1, raven.events.size());
+			Assert.assertEquals((long) COUNT, raven.events.get(0).getExtra().get(BatchingRavenHandler.OCCURRENCES));
+			Assert.assertEquals("failure 0", raven.events.get(0).getMessage());
+			for (int round = 0; round < 2; round++) {
+				for (int i = 0; i < COUNT; i++)
+					logger.error(new IllegalStateException(), "failure {}", i);
+				logger.flush();
+			}
+			Assert.assertEquals("Rate limit not applied", 2, raven.events.size());
+			for (int i = 0; i < 100; i++)
+				logger.warning("distinct " + i);
+			logger.flush();
+			Assert.assertEquals("Queue not bounded", 2 + 16, raven.events.size());
+			Assert.assertEquals(100 - 16, handler.getDropped());
+		}
+	}
+
+	@Test
+	public void suppressedCountsSentOnExpiry() throws Exception {
+		LocalRaven raven = new LocalRaven();
+		long[] now = new long[1];
+		BatchingRavenHandler handler = new BatchingRavenHandler(raven, null, null, 16, 1, TimeUnit.HOURS) {
+			@Override
+			protected long currentTimeMillis() {
+				return now[0];
+			}
+		};
+		handler.setRateLimit(1, 1, TimeUnit.MINUTES);
+		try (Logger logger = new Logger("raven", new ArrayList<>(Collections.singletonList(handler)))) {
+			for (int round = 0; round < 3; round++) {
+				logger.error("expiring");
+				logger.flush();
+			}
+			Assert.assertEquals(1, raven.events.size());
+			now[0] += TimeUnit.MINUTES.toMillis(1) - 1;
+			logger.flush();
+			Assert.assertEquals("Window expired early", 1, raven.events.size());
+			now[0]++;
+			logger.flush();
+			Assert.assertEquals("Suppressed logs not sent when the window expired", 2, raven.events.size());
+			Assert.assertEquals(2L, raven.events.get(1).getExtra().get(BatchingRavenHandler.OCCURRENCES));
+			logger.flush();
+			Assert.assertEquals("Expired window not dropped", 2, raven.events.size());
+			logger.error("closing");
+			logger.flush();
+			logger.error("closing");
+			logger.flush();
+			Assert.assertEquals(3, raven.events.size());
+		}
+		Assert.assertEquals("Suppressed logs not sent on close", 4, raven.events.size());
+		Assert.assertEquals(1L, raven.events.get(3).getExtra().get(BatchingRavenHandler.OCCURRENCES));
+		try (Logger logger = new Logger("raven-closed", new ArrayList<>(Collections.singletonList(handler)))) {
+			logger.error("after close");
+		}
+		Assert.assertEquals("Log accepted after close", 1, handler.getDropped());
+		Assert.assertEquals(4, raven.events.size());
+	}
+}
@@ -53,5 +53,24 @@ public abstract class SerializerTest {
 				s.deserialize(map).getObject().hello());
 	}
 
+	private static class DeserializePartialMapTestObject {
+		private String name;
+		private int level;
+	}
+
+	@Test
+	public void deserialize_partial_map() throws IOException {
+		SerializationFactory factory = createFactory();
+		Serializer<DeserializePartialMapTestObject> s = factory.createOrGetSerializer(DeserializePartialMapTestObject.class);
+		DeserializePartialMapTestObject object = new DeserializePartialMapTestObject();
+		object.level = 42;
+		Map<String , Object> map = new HashMap<>();
+		map.put("name" , "world");
+		s.deserialize(map, object);
+
+		Assert.assertEquals("world", object.name);
+		Assert.assertEquals("Fields missing from the map must be left untouched", 42, object.level);
+	}
+
 	protected abstract SerializationFactory createFactory();
 }
@@ -0,0 +1,48 @@
+package fr.aresrpg.commons.test.infra.serialization.formats;
+
+import fr.aresrpg.commons.domain.io.ByteBufferInputStream;
+import fr.aresrpg.commons.infra.serialization.formats.BinaryFormat;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class BinaryTest {
+
+	@Test
+	public void readUnsignedBytes() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryFormat.writeInt(out, -2);
+		BinaryFormat.writeLong(out, 0xFEDCBA9876543210L);
+		BinaryFormat.writeString(out, "\u00e9t\u00e9");
+		ByteBufferInputStream in = new ByteBufferInputStream(ByteBuffer.wrap(out.toByteArray()));
+		Assert.assertEquals(-2, BinaryFormat.readInt(in));
+		Assert.assertEquals(0xFEDCBA9876543210L, BinaryFormat.readLong(in));
+		Assert.assertEquals("\u00e9t\u00e9", BinaryFormat.readString(in));
+		Assert.assertEquals("End of the buffer not reported", -1, in.read());
+	}
+
+	@Test
+	public void truncatedStream() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryFormat.writeLong(out, Long.MAX_VALUE);
+		BinaryFormat.writeString(out, "truncated");
+		byte[] bytes = out.toByteArray();
+		try {
+			BinaryFormat.readLong(new ByteBufferInputStream(ByteBuffer.wrap(bytes, 0, 5)));
+			Assert.fail("Truncated long read");
+		} catch (EOFException e) { // NOSONAR expected
+		}
+		ByteBufferInputStream in = new ByteBufferInputStream(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1)));
+		BinaryFormat.readLong(in);
+		try {
+			BinaryFormat.readString(in);
+			Assert.fail("Truncated string read");
+		} catch (EOFException e) { // NOSONAR expected
+		}
+	}
+}
@@ -8,6 +8,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 public class JsonTest {
@@ -61,4 +62,14 @@ public class JsonTest {
 				s.deserialize(new ByteArrayInputStream("[1 , 2 , 3]".getBytes("UTF-8")) ,
 						JsonFormat.INSTANCE));
 	}
+
+	@Test
+	public void escapeString() throws IOException {
+		String value = "quote \" backslash \\ line\n tab\t control\u0001 accent \u00e9 emoji \ud83d\ude00";
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonFormat.INSTANCE.writeString(out, value);
+		Assert.assertEquals("\"quote \\\" backslash \\\\ line\\n tab\\t control\\u0001 accent \u00e9 emoji \ud83d\ude00\"", out.toString("UTF-8"));
+		Assert.assertEquals(value, JsonFormat.INSTANCE.read(new ByteArrayInputStream(out.toByteArray())));
+		Assert.assertEquals(false, JsonFormat.INSTANCE.read(new ByteArrayInputStream("false".getBytes("UTF-8"))));
+	}
 }
@@ -0,0 +1,409 @@
+package fr.aresrpg.commons.test.log;
+
+import fr.aresrpg.commons.domain.concurrent.RingBuffer;
+import fr.aresrpg.commons.domain.log.Log;
+import fr.aresrpg.commons.domain.log.Logger;
+import fr.aresrpg.commons.domain.log.LoggerBuilder;
+import fr.aresrpg.commons.domain.log.MessageTemplate;
+import fr.aresrpg.commons.domain.log.RateLimitFilter;
+import fr.aresrpg.commons.domain.log.binary.BinaryHandler;
+import fr.aresrpg.commons.domain.log.binary.BinaryLogDecoder;
+import fr.aresrpg.commons.domain.log.handler.AsyncHandler;
+import fr.aresrpg.commons.domain.log.handler.AsyncHandler.OverflowPolicy;
+import fr.aresrpg.commons.domain.log.handler.BaseHandler;
+import fr.aresrpg.commons.domain.log.handler.FileHandler;
+import fr.aresrpg.commons.domain.log.handler.Handler;
+import fr.aresrpg.commons.domain.log.handler.StreamHandler;
+import fr.aresrpg.commons.domain.log.handler.formatters.CachedDateFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LoggerTest {
+	public static final int COUNT = 10000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	public static class CaptureHandler implements Handler {
+		public final List<Log> logs = Collections.synchronizedList(new ArrayList<>());
+		public int flushes;
+
+		@Override
+		public void handle(Log log) {
+			logs.add(log.snapshot());
+		}
+
+		@Override
+		public void flush() {
+			flushes++;
+		}
+	}
+
+	@Test
+	public void ringBuffer() throws Exception {
+		RingBuffer<Integer> buffer = new RingBuffer<>(100);
+		Assert.assertEquals("Capacity not rounded", 128, buffer.capacity());
+		Thread[] producers = new Thread[4];
+		for (int p = 0; p < producers.length; p++) {
+			int base = p * COUNT;
+			producers[p] = new Thread(() -> {
+				for (int i = 0; i < COUNT; i++)
+					while (!buffer.offer(base + i))
+						Thread.yield();
+			});
+			producers[p].start();
+		}
+		int[] last = new int[producers.length];
+		Arrays.fill(last, -1);
+		int received = 0;
+		while (received < producers.length * COUNT) {
+			Integer value = buffer.poll();
+			if (value == null) continue;
+			int producer = value / COUNT;
+			Assert.assertTrue("Elements of a producer reordered", value % COUNT > last[producer]);
+			last[producer] = value % COUNT;
+			received++;
+		}
+		Assert.assertNull(buffer.poll());
+	}
+
+	@Test
+	public void asynchronousLogger() throws Exception {
+		CaptureHandler capture = new CaptureHandler();
+		try (Logger logger = new LoggerBuilder("async").addHandler(capture).setAsynchronous(true, 64, OverflowPolicy.BLOCK).build()) {
+			Thread[] threads = new Thread[4];
+			for (int t = 0; t < threads.length; t++) {
+				threads[t] = new Thread(() -> {
+					for (int i = 0; i < COUNT; i++)
+						logger.info("{}", i);
+				});
+				threads[t].start();
+			}
+			for (Thread thread : threads)
+				thread.join();
+			logger.flush();
+			Assert.assertEquals("Logs lost", threads.length * COUNT, capture.logs.size());
+			Assert.assertTrue("Handler not flushed by batch", capture.flushes > 0 && capture.flushes < threads.length * COUNT);
+		}
+	}
+
+	@Test
+	public void dropBelowLevel() throws Exception {
+		CaptureHandler capture = new CaptureHandler();
+		CountDownLatch release = new CountDownLatch(1);
+		Handler slow = log -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			capture.handle(log);
+		};
+		AsyncHandler handler = new AsyncHandler(Collections.singletonList(slow), 8, OverflowPolicy.DROP_BELOW_LEVEL);
+		handler.setDropThreshold(Logger.Level.ERROR);
+		Logger logger = new Logger("drop", new ArrayList<>(Collections.singletonList(handler)));
+		for (int i = 0; i < 100; i++)
+			logger.info("dropped {}", i);
+		Assert.assertTrue("Logs not dropped", handler.getDropped() > 0);
+		release.countDown();
+		logger.error("kept");
+		logger.close();
+		Assert.assertTrue("Error not kept", capture.logs.stream().anyMatch(l -> "kept".equals(l.getMessage())));
+		Assert.assertTrue("Drops not reported", capture.logs.stream().anyMatch(l -> "AsyncHandler".equals(l.getChannel())));
+	}
+
+	@Test
+	public void asynchronousClosed() throws Exception {
+		CaptureHandler capture = new CaptureHandler();
+		Handler closing = new Handler() {
+			private boolean closed;
+
+			@Override
+			public void handle(Log log) {
+				if (closed) throw new IllegalStateException("The handler is closed");
+				capture.handle(log);
+			}
+
+			@Override
+			public void close() {
+				closed = true;
+			}
+		};
+		AsyncHandler async = new AsyncHandler(closing);
+		Logger logger = new Logger("async-closed", new ArrayList<>(Collections.singletonList(async)));
+		logger.info("before");
+		async.close();
+		Assert.assertEquals("Pending log not written on close", 1, capture.logs.size());
+		for (int i = 0; i < 10; i++)
+			logger.info("after {}", i);
+		Assert.assertEquals("Closed handlers called", 1, capture.logs.size());
+		Assert.assertEquals("Logs after close not counted", 10, async.getDropped());
+	}
+
+	@Test
+	public void levelAndChannelFilter() {
+		CaptureHandler capture = new CaptureHandler();
+		BaseHandler errors = new BaseHandler() {
+			@Override
+			public void handle(Log log) {
+				capture.handle(log);
+			}
+		};
+		errors.setLevel(Logger.Level.ERROR);
+		Logger logger = new LoggerBuilder("filter").addHandler(errors).setLevel(Logger.Level.INFO).setChannelFilter(c -> !"noisy".equals(c)).build();
+		int[] formatted = new int[1];
+		Object arg = new Object() {
+			@Override
+			public String toString() {
+				formatted[0]++;
+				return "arg";
+			}
+		};
+		logger.debug("debug {}", arg);
+		logger.warning("warning {}", arg);
+		logger.error("noisy", "error {}", arg);
+		Assert.assertEquals("Rejected logs formatted", 0, formatted[0]);
+		Assert.assertFalse(logger.isLoggable(Logger.Level.DEBUG));
+		Assert.assertTrue(logger.isLoggable(Logger.Level.SEVERE));
+		logger.error("error {}", arg);
+		Assert.assertEquals(1, formatted[0]);
+		Assert.assertEquals("error arg", capture.logs.get(0).getMessage());
+	}
+
+	@Test
+	public void messageTemplate() {
+		MessageTemplate template = MessageTemplate.of("a {} b {0} c {:?}{}");
+		Assert.assertSame("Template not cached", template, MessageTemplate.of("a {} b {0} c {:?}{}"));
+		Assert.assertEquals(4, template.getPlaceholders());
+		Assert.assertEquals("a 1 b 1 c 2null", template.format(1, 2, null));
+		Assert.assertEquals("Placeholders not removed without args", "a  b  c ", template.format());
+		Assert.assertEquals("Message changed without args array", "a {} b {0} c {:?}{}", template.format((Object[]) null));
+		Object nested = new Object() {
+			@Override
+			public String toString() {
+				return MessageTemplate.of("<{}>").format("nested");
+			}
+		};
+		Assert.assertEquals("Reentrant format corrupted", "x <nested> y", MessageTemplate.of("x {} y").format(nested));
+		for (int i = 0; i < MessageTemplate.MAX_CACHED * 2; i++)
+			MessageTemplate.of("dynamic " + i + " {}");
+		MessageTemplate late = MessageTemplate.of("late {}");
+		Assert.assertSame("Cache full after dynamic messages", late, MessageTemplate.of("late {}"));
+	}
+
+	@Test
+	public void lazySource() throws Exception {
+		List<StackTraceElement> sources = new ArrayList<>();
+		Logger logger = new LoggerBuilder("source").addHandler(log -> sources.add(log.getSource())).setSourceLevels(Logger.Level.ERROR).build();
+		logger.info("no source");
+		logger.error("source");
+		Assert.assertNull("Source captured for a disabled level", sources.get(0));
+		Assert.assertEquals("lazySource", sources.get(1).getMethodName());
+		CaptureHandler capture = new CaptureHandler();
+		AsyncHandler async = new AsyncHandler(capture);
+		async.setCaptureSource(true);
+		try (Logger asyncLogger = new Logger("async-source", new ArrayList<>(Collections.singletonList(async)))) {
+			asyncLogger.warning("source");
+			asyncLogger.flush();
+			Assert.assertEquals("Source not captured on the logging thread", "lazySource", capture.logs.get(0).getSource().getMethodName());
+		}
+	}
+
+	@Test
+	public void garbageFree() throws Exception {
+		List<Log> kept = new ArrayList<>();
+		List<Log> received = new ArrayList<>();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StreamHandler stream = new StreamHandler(out);
+		stream.setFormatter((log, errorFormatter) -> log.getLevel() + " " + log.getMessage());
+		Logger logger = new LoggerBuilder("garbage-free").addHandler(stream).addHandler(log -> {
+			received.add(log);
+			kept.add(log.snapshot());
+		}).setGarbageFree(true).build();
+		logger.info("first {}", 1);
+		logger.info("second {}", '\u00e9');
+		Assert.assertTrue(received.get(0).isPooled());
+		Assert.assertSame("Log not reused", received.get(0), received.get(1));
+		Assert.assertEquals("first 1", kept.get(0).getMessage());
+		Assert.assertEquals("second \u00e9", kept.get(1).getMessage());
+		Assert.assertEquals("INFO first 1\nINFO second \u00e9\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void garbageFreeAsynchronous() throws Exception {
+		List<Log> received = Collections.synchronizedList(new ArrayList<>());
+		List<Log> kept = Collections.synchronizedList(new ArrayList<>());
+		String[] renderer = new String[1];
+		Object arg = new Object() {
+			@Override
+			public String toString() {
+				renderer[0] = Thread.currentThread().getName();
+				return "arg";
+			}
+		};
+		Object[] args = { arg };
+		try (Logger logger = new LoggerBuilder("garbage-free-async").addHandler(log -> {
+			received.add(log);
+			kept.add(log.snapshot());
+		}).setGarbageFree(true).setAsynchronous(true, 2, OverflowPolicy.BLOCK).build()) {
+			for (int i = 0; i < 8; i++)
+				logger.info("async {}", args);
+			logger.flush();
+			Assert.assertEquals(8, received.size());
+			Assert.assertSame("Buffered log not reused", received.get(0), received.get(2)); // Two slots used in turn
+			Assert.assertNotSame("Args not copied", args, kept.get(0).getArgs());
+			Assert.assertTrue("Message rendered on the logging thread", renderer[0].startsWith("AsyncHandler-"));
+			for (Log log : kept)
+				Assert.assertEquals("async arg", log.getMessage());
+		}
+	}
+
+	@Test
+	public void cachedDateFormat() throws Exception {
+		CachedDateFormat format = new CachedDateFormat("HH:mm:ss.SSS", ZoneId.of("UTC"));
+		DateTimeFormatter expected = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.of("UTC"));
+		long start = System.currentTimeMillis();
+		List<String> errors = Collections.synchronizedList(new ArrayList<>());
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			int offset = t;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < COUNT; i++) {
+					long millis = start + (i * 7L + offset * 501L) % 5000;
+					String text = format.appendTo(new StringBuilder(), millis).toString();
+					if (!text.equals(expected.format(Instant.ofEpochMilli(millis)))) errors.add(text);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		Assert.assertEquals("Corrupted timestamps", Collections.emptyList(), errors);
+		Assert.assertEquals("00:00:01", new CachedDateFormat("HH:mm:ss", ZoneId.of("UTC")).format(new Date(1999)));
+	}
+
+	@Test
+	public void fileHandler() throws Exception {
+		Path dir = folder.newFolder("logs").toPath();
+		FileHandler handler = new FileHandler(dir.resolve("server.log"), 1024, 1, TimeUnit.HOURS);
+		handler.setFormatter((log, errorFormatter) -> log.getMessage());
+		handler.setMaxFileSize(1000);
+		handler.setCompress(false);
+		try (Logger logger = new Logger("file", new ArrayList<>(Collections.singletonList(handler)))) {
+			logger.info("first");
+			Assert.assertEquals("Log not buffered", 0, Files.size(handler.getFile()));
+			logger.flush();
+			Assert.assertEquals("first\n", new String(Files.readAllBytes(handler.getFile()), StandardCharsets.UTF_8));
+			for (int i = 0; i < 1000; i++)
+				logger.info("log {}", i);
+		}
+		long total = 0;
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Assert.assertTrue("File over the max size", Files.size(file) <= 1000);
+				total += Files.readAllLines(file).size();
+			}
+		}
+		Assert.assertEquals("Logs lost while rolling", 1001, total);
+		Assert.assertNotNull("File not rolled", findRolled(dir, "server", ".log"));
+		FileHandler compressed = new FileHandler(dir.resolve("other.log"));
+		compressed.setMaxFileSize(1);
+		Log log = new Log(Logger.Level.INFO, null, "roll", "roll", null, null, System.currentTimeMillis(), Thread.currentThread(), null, null);
+		compressed.handle(log);
+		compressed.handle(log);
+		compressed.close();
+		for (int i = 0; i < 100 && findRolled(dir, "other", ".log") != null; i++)
+			Thread.sleep(50);
+		Assert.assertNotNull("Rolled file not compressed", findRolled(dir, "other", ".log.gz"));
+	}
+
+	private static Path findRolled(Path dir, String stem, String extension) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(f -> f.getFileName().toString().matches(stem + "-\\d{4}-\\d{2}-\\d{2}-1" + Pattern.quote(extension))).findFirst().orElse(null);
+		}
+	}
+
+	@Test
+	public void binaryLog() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryHandler handler = new BinaryHandler(Channels.newChannel(out), 64);
+		try (Logger logger = new Logger("binary", new ArrayList<>(Collections.singletonList(handler)))) {
+			for (int i = 0; i < 3; i++)
+				logger.info("player {} joined with {} \u00e9", i, i * 1.5);
+			logger.error("net", new IllegalStateException("boom"), "lost {}", 'x');
+			logger.info("big {}", (Object) String.join("", Collections.nCopies(200, "a")));
+		}
+		try (BinaryLogDecoder decoder = new BinaryLogDecoder(new ByteArrayInputStream(out.toByteArray()))) {
+			for (int i = 0; i < 3; i++) {
+				BinaryLogDecoder.Entry entry = decoder.next();
+				Assert.assertEquals("player {} joined with {} \u00e9", entry.getTemplate());
+				Assert.assertEquals("player " + i + " joined with " + i * 1.5 + " \u00e9", entry.getMessage());
+				Assert.assertEquals(Thread.currentThread().getName(), entry.getThreadName());
+			}
+			BinaryLogDecoder.Entry error = decoder.next();
+			Assert.assertEquals(Logger.Level.ERROR, error.getLevel());
+			Assert.assertEquals("net", error.getChannel());
+			Assert.assertTrue(error.getError().startsWith("java.lang.IllegalStateException: boom"));
+			Assert.assertTrue(error.toJson().startsWith("{\"time\":" + error.getMillis() + ",\"level\":\"ERROR\",\"channel\":\"net\""));
+			Assert.assertTrue(error.toJson().contains("\"args\":[\"x\"]"));
+			Assert.assertEquals("Log larger than the buffer", 204, decoder.next().getMessage().length());
+			Assert.assertNull(decoder.next());
+		}
+	}
+
+	@Test
+	public void rateLimit() {
+		CaptureHandler capture = new CaptureHandler();
+		Logger logger = new LoggerBuilder("limit").addHandler(capture).addFilter(new RateLimitFilter(16, 0.001, 5, 0, TimeUnit.SECONDS)).build();
+		for (int i = 0; i < COUNT; i++)
+			logger.error("flood {}", i);
+		logger.info("other");
+		long floods = capture.logs.stream().filter(l -> "flood {}".equals(l.getBaseMessage())).count();
+		long suppressed = capture.logs.stream().filter(l -> RateLimitFilter.SUMMARY.equals(l.getBaseMessage())).mapToLong(l -> (Long) l.getArgs()[0]).sum();
+		Assert.assertEquals("Burst not allowed", 5, floods);
+		Assert.assertEquals("Suppressed logs not reported", COUNT - 5, suppressed);
+		Assert.assertEquals("Other message limited", "other", capture.logs.get(capture.logs.size() - 1).getMessage());
+	}
+
+	@Test
+	public void rateLimitSummaryOnFlush() throws Exception {
+		CaptureHandler capture = new CaptureHandler();
+		try (Logger logger = new LoggerBuilder("limit-flush").addHandler(capture).addFilter(new RateLimitFilter(16, 0.001, 5, 1, TimeUnit.HOURS)).build()) {
+			for (int i = 0; i < COUNT; i++)
+				logger.error("flood {}", i);
+			Assert.assertEquals("Summary before the interval", 5, capture.logs.size());
+			logger.flush();
+			Assert.assertEquals("Suppressed logs not summarized on flush", 6, capture.logs.size());
+			Log summary = capture.logs.get(5);
+			Assert.assertEquals(RateLimitFilter.SUMMARY, summary.getBaseMessage());
+			Assert.assertEquals(Logger.Level.ERROR, summary.getLevel());
+			Assert.assertEquals((long) COUNT - 5, summary.getArgs()[0]);
+			Assert.assertEquals("flood {}", summary.getArgs()[1]);
+			logger.flush();
+			Assert.assertEquals("Summary repeated", 6, capture.logs.size());
+		}
+	}
+}